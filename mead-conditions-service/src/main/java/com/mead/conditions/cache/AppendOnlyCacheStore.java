@@ -0,0 +1,381 @@
+package com.mead.conditions.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Append-only file of serialized cache entries. Opening the store memory-maps the file and
+ * indexes record headers only; values are deserialized lazily on the first {@link #read}.
+ * A mapping covers at most {@link Integer#MAX_VALUE} bytes, so records past that are read through
+ * the file channel, as are records appended after opening.
+ * <p>
+ * Record layout: {@code int keyLength, key, long writtenAtMillis, int valueLength, value}.
+ * A value length of {@code -1} is a tombstone. The last record for a key wins. The file is
+ * rewritten with its live records only when dead records make up more than half of it: on open,
+ * and while running once they also reach {@code compactAfterDeadBytes}, 64 MB by default.
+ */
+public class AppendOnlyCacheStore implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(AppendOnlyCacheStore.class);
+
+    private static final int TOMBSTONE = -1;
+    private static final int HEADER_BYTES = Integer.BYTES;
+    private static final int VALUE_HEADER_BYTES = Long.BYTES + Integer.BYTES;
+    private static final long MAX_MAPPED_BYTES = Integer.MAX_VALUE;
+    private static final long COMPACT_AFTER_DEAD_BYTES = 64L * 1024 * 1024;
+    private static final ObjectInputFilter DESERIALIZATION_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=20;java.lang.*;java.util.*;"
+                    + "org.springframework.cache.interceptor.SimpleKey;"
+                    + "org.springframework.cache.support.NullValue;"
+                    + "com.mead.**;!*"
+    );
+
+    private record IndexEntry(long recordOffset, long valueOffset, int valueLength, long writtenAt) {
+
+        long recordLength() {
+            return valueOffset + valueLength - recordOffset;
+        }
+    }
+
+    private final Path file;
+    private final Duration maxAge;
+    private final Clock clock;
+    private final long compactAfterDeadBytes;
+    private final Map<Object, IndexEntry> index = new ConcurrentHashMap<>();
+    private final AtomicLong liveBytes = new AtomicLong();
+    // Reads hold the read lock; compaction and clear swap the file contents under the write lock.
+    private final ReadWriteLock fileLock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long mappedLimit;
+    private long endOffset;
+
+    private AppendOnlyCacheStore(Path file, Duration maxAge, Clock clock, long compactAfterDeadBytes) throws IOException {
+        this.file = file;
+        this.maxAge = maxAge;
+        this.clock = clock;
+        this.compactAfterDeadBytes = compactAfterDeadBytes;
+        load();
+    }
+
+    public static AppendOnlyCacheStore open(Path file, Duration maxAge) throws IOException {
+        return open(file, maxAge, Clock.systemUTC());
+    }
+
+    static AppendOnlyCacheStore open(Path file, Duration maxAge, Clock clock) throws IOException {
+        return open(file, maxAge, clock, COMPACT_AFTER_DEAD_BYTES);
+    }
+
+    /**
+     * Opens the store, first rewriting the file without superseded, removed or expired records
+     * when those make up more than half of it.
+     */
+    static AppendOnlyCacheStore open(Path file, Duration maxAge, Clock clock, long compactAfterDeadBytes) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        AppendOnlyCacheStore store = new AppendOnlyCacheStore(file, maxAge, clock, compactAfterDeadBytes);
+        synchronized (store) {
+            if (store.isMostlyDead(store.unexpiredBytes(), 0)) {
+                store.compact();
+            }
+        }
+        return store;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Returns the stored value for the key, or {@code null} when it is absent, expired or unreadable.
+     */
+    public Object read(Object key) {
+        fileLock.readLock().lock();
+        try {
+            IndexEntry entry = index.get(key);
+            if (entry == null) return null;
+            if (isExpired(entry)) {
+                drop(key, entry);
+                return null;
+            }
+            try {
+                return deserialize(readBytes(entry.valueOffset(), entry.valueLength()));
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                log.warn("Dropping unreadable entry for key {} in {}: {}", key, file, e.getMessage());
+                drop(key, entry);
+                return null;
+            }
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    public void write(Object key, Object value) {
+        if (!(key instanceof Serializable) || !(value instanceof Serializable)) return;
+        try {
+            append(key, serialize(value));
+        } catch (IOException e) {
+            log.warn("Failed to persist entry for key {} in {}: {}", key, file, e.getMessage());
+        }
+    }
+
+    public void remove(Object key) {
+        if (!index.containsKey(key)) return;
+        try {
+            append(key, null);
+        } catch (IOException e) {
+            log.warn("Failed to persist removal of key {} in {}: {}", key, file, e.getMessage());
+        }
+    }
+
+    public synchronized void clear() {
+        fileLock.writeLock().lock();
+        try {
+            mappedLimit = 0;
+            channel.truncate(0);
+            index.clear();
+            liveBytes.set(0);
+            endOffset = 0;
+        } catch (IOException e) {
+            log.warn("Failed to clear {}: {}", file, e.getMessage());
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) return;
+        channel.force(true);
+        channel.close();
+    }
+
+    /**
+     * Opens and maps the file and indexes its records, dropping an incomplete trailing record.
+     */
+    private void load() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        lockExclusively();
+        long size = channel.size();
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAX_MAPPED_BYTES));
+        mappedLimit = mapped.capacity();
+        index.clear();
+        endOffset = scan(size);
+        if (endOffset < size) {
+            log.warn("Truncating incomplete trailing record in {}", file);
+            channel.truncate(endOffset);
+        }
+        mappedLimit = Math.min(endOffset, mapped.capacity());
+        liveBytes.set(index.values().stream().mapToLong(IndexEntry::recordLength).sum());
+    }
+
+    /**
+     * Appends from two writers would interleave, so a second process or context sharing the file
+     * fails to open and its cache stays memory-only.
+     */
+    private void lockExclusively() throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("Store is already in use: " + file);
+        }
+    }
+
+    private synchronized void append(Object key, byte[] valueBytes) throws IOException {
+        byte[] keyBytes = serialize(key);
+        int valueLength = valueBytes == null ? TOMBSTONE : valueBytes.length;
+        long writtenAt = clock.millis();
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + keyBytes.length + VALUE_HEADER_BYTES + Math.max(valueLength, 0));
+        record.putInt(keyBytes.length).put(keyBytes).putLong(writtenAt).putInt(valueLength);
+        if (valueBytes != null) record.put(valueBytes);
+        record.flip();
+
+        long recordOffset = endOffset;
+        while (record.hasRemaining()) {
+            endOffset += channel.write(record, endOffset);
+        }
+
+        IndexEntry previous;
+        if (valueBytes == null) {
+            previous = index.remove(key);
+        } else {
+            long valueOffset = recordOffset + HEADER_BYTES + keyBytes.length + VALUE_HEADER_BYTES;
+            IndexEntry entry = new IndexEntry(recordOffset, valueOffset, valueLength, writtenAt);
+            previous = index.put(key, entry);
+            liveBytes.addAndGet(entry.recordLength());
+        }
+        if (previous != null) {
+            liveBytes.addAndGet(-previous.recordLength());
+        }
+
+        if (isMostlyDead(liveBytes.get(), compactAfterDeadBytes)) {
+            try {
+                compact();
+            } catch (IOException e) {
+                log.warn("Failed to compact {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private void drop(Object key, IndexEntry entry) {
+        if (index.remove(key, entry)) {
+            liveBytes.addAndGet(-entry.recordLength());
+        }
+    }
+
+    private boolean isMostlyDead(long live, long minDeadBytes) {
+        long dead = endOffset - live;
+        return dead > live && dead >= minDeadBytes;
+    }
+
+    /**
+     * Rewrites the file without superseded, removed or expired records and reopens it. Callers
+     * hold the store's monitor, so no append runs meanwhile.
+     */
+    private void compact() throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        fileLock.writeLock().lock();
+        try {
+            long before = endOffset;
+            copyLiveRecordsTo(compacted);
+            FileChannel previous = channel;
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            try {
+                load();
+            } finally {
+                previous.close();
+            }
+            log.info("Compacted {} from {} to {} bytes", file, before, endOffset);
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes every complete record in the first {@code limit} bytes of the file and returns the
+     * offset after the last one.
+     */
+    private long scan(long limit) throws IOException {
+        long offset = 0;
+        while (offset + HEADER_BYTES <= limit) {
+            int keyLength = ByteBuffer.wrap(readBytes(offset, HEADER_BYTES)).getInt();
+            long valueHeaderOffset = offset + HEADER_BYTES + keyLength;
+            if (keyLength <= 0 || valueHeaderOffset + VALUE_HEADER_BYTES > limit) break;
+
+            ByteBuffer valueHeader = ByteBuffer.wrap(readBytes(valueHeaderOffset, VALUE_HEADER_BYTES));
+            long writtenAt = valueHeader.getLong();
+            int valueLength = valueHeader.getInt();
+            long valueOffset = valueHeaderOffset + VALUE_HEADER_BYTES;
+            long next = valueOffset + Math.max(valueLength, 0);
+            if (valueLength < TOMBSTONE || next > limit) break;
+
+            Object key;
+            try {
+                key = deserialize(readBytes(offset + HEADER_BYTES, keyLength));
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                log.warn("Stopping scan of {} at unreadable record: {}", file, e.getMessage());
+                break;
+            }
+            if (valueLength == TOMBSTONE) {
+                index.remove(key);
+            } else {
+                index.put(key, new IndexEntry(offset, valueOffset, valueLength, writtenAt));
+            }
+            offset = next;
+        }
+        return offset;
+    }
+
+    private long unexpiredBytes() {
+        return index.values().stream()
+                .filter(entry -> !isExpired(entry))
+                .mapToLong(IndexEntry::recordLength)
+                .sum();
+    }
+
+    private void copyLiveRecordsTo(Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<Object, IndexEntry> entry : index.entrySet()) {
+                IndexEntry indexEntry = entry.getValue();
+                if (isExpired(indexEntry)) continue;
+                byte[] keyBytes = serialize(entry.getKey());
+                byte[] valueBytes = readBytes(indexEntry.valueOffset(), indexEntry.valueLength());
+                ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + keyBytes.length + VALUE_HEADER_BYTES + valueBytes.length);
+                record.putInt(keyBytes.length).put(keyBytes)
+                        .putLong(indexEntry.writtenAt()).putInt(valueBytes.length).put(valueBytes);
+                record.flip();
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(true);
+        }
+    }
+
+    private byte[] readBytes(long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        if (offset + length <= mappedLimit) {
+            // mappedLimit never exceeds MAX_MAPPED_BYTES, so the offset fits in an int here.
+            mapped.get((int) offset, bytes);
+            return bytes;
+        }
+        // Records past the mapped region, or appended after opening, are read from the channel.
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of file");
+            position += read;
+        }
+        return bytes;
+    }
+
+    private boolean isExpired(IndexEntry entry) {
+        return clock.millis() - entry.writtenAt() > maxAge.toMillis();
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            in.setObjectInputFilter(DESERIALIZATION_FILTER);
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.mead.conditions.cache;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Caffeine cache manager that puts an on-disk store under every cache it has a store for.
+ * All caches it creates load single-flight, see {@link SingleFlightCaffeineCache}.
+ * Stores must be supplied before the caches are registered.
+ */
+public class PersistentCaffeineCacheManager extends CaffeineCacheManager implements DisposableBean {
+
+    private final Map<String, AppendOnlyCacheStore> stores;
+
+    public PersistentCaffeineCacheManager(Map<String, AppendOnlyCacheStore> stores) {
+        this.stores = Map.copyOf(stores);
+    }
+
+    @Override
+    protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+        AppendOnlyCacheStore store = stores.get(name);
+        if (store == null) {
+            return new SingleFlightCaffeineCache(name, cache, isAllowNullValues());
+        }
+        return new PersistentCaffeineCache(name, cache, isAllowNullValues(), store);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        for (AppendOnlyCacheStore store : stores.values()) {
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.mead.conditions.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Serves cached values past their freshness window while one background refresh per key rebuilds
+ * them. A refresh replaces the entry with a single {@link Cache#put}; a refresh that fails or comes
+ * back incomplete keeps the last good value and is not retried before {@code retryAfter}. A value
+ * cut short while its sources were still answering is replaced once they have all answered.
+ * Misses are single-flight: concurrent callers for a key that is already loading wait for that load.
+ */
+public class StaleWhileRevalidateCache<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(StaleWhileRevalidateCache.class);
+
+    /**
+     * A freshly built value; {@code complete} is false when some source failed and fallbacks were used.
+     * A value cut short while sources were still answering carries the {@code completion} those
+     * sources will build; it is stored in place of the value instead of refreshing it.
+     */
+    public record Loaded<T>(T value, boolean complete, CompletableFuture<Loaded<T>> completion) {
+
+        public Loaded(T value, boolean complete) {
+            this(value, complete, null);
+        }
+    }
+
+    private record Entry<T>(T value, long refreshedAt, boolean complete) {}
+
+    private final Cache cache;
+    private final Duration staleAfter;
+    private final Duration retryAfter;
+    private final Executor executor;
+    private final Clock clock;
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+    private final Map<Object, Long> retryNotBefore = new ConcurrentHashMap<>();
+    private final Map<Object, CompletableFuture<T>> loading = new ConcurrentHashMap<>();
+
+    public StaleWhileRevalidateCache(Cache cache, Duration staleAfter, Duration retryAfter, Executor executor) {
+        this(cache, staleAfter, retryAfter, executor, Clock.systemUTC());
+    }
+
+    StaleWhileRevalidateCache(Cache cache, Duration staleAfter, Duration retryAfter, Executor executor, Clock clock) {
+        this.cache = cache;
+        this.staleAfter = staleAfter;
+        this.retryAfter = retryAfter;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the cached value, scheduling a refresh when it is stale, or loads and caches it on a miss.
+     */
+    public T get(Object key, Supplier<Loaded<T>> loader) {
+        return get(key, loader, loader);
+    }
+
+    /**
+     * Like {@link #get(Object, Supplier)}, but builds misses with {@code loader} and refreshes with {@code refresher}.
+     */
+    public T get(Object key, Supplier<Loaded<T>> refresher, Supplier<Loaded<T>> loader) {
+        return getAll(List.of(key), k -> refresher, keys -> Map.of(key, loader.get())).get(key);
+    }
+
+    /**
+     * Returns the values of all keys, loading the misses no other caller is loading yet with a single
+     * {@code loader} call and waiting for the ones that are. Stale hits are refreshed with {@code refresher}.
+     */
+    public <K> Map<K, T> getAll(List<K> keys,
+                                Function<K, Supplier<Loaded<T>>> refresher,
+                                Function<List<K>, Map<K, Loaded<T>>> loader) {
+        Map<K, T> values = new HashMap<>();
+        Map<K, CompletableFuture<T>> owned = new LinkedHashMap<>();
+        Map<K, CompletableFuture<T>> awaited = new LinkedHashMap<>();
+
+        for (K key : keys) {
+            T cached = getIfPresent(key, refresher.apply(key));
+            if (cached != null) {
+                values.put(key, cached);
+                continue;
+            }
+            CompletableFuture<T> flight = new CompletableFuture<>();
+            CompletableFuture<T> inFlight = loading.putIfAbsent(key, flight);
+            if (inFlight != null) {
+                awaited.put(key, inFlight);
+                continue;
+            }
+            // The previous load may have finished between the miss and claiming the key.
+            T loadedMeanwhile = peek(key);
+            if (loadedMeanwhile != null) {
+                loading.remove(key, flight);
+                flight.complete(loadedMeanwhile);
+                values.put(key, loadedMeanwhile);
+            } else {
+                owned.put(key, flight);
+            }
+        }
+
+        if (!owned.isEmpty()) {
+            load(owned, loader, values);
+        }
+        awaited.forEach((key, flight) -> values.put(key, await(flight)));
+
+        Map<K, T> ordered = new LinkedHashMap<>();
+        keys.forEach(key -> ordered.put(key, values.get(key)));
+        return ordered;
+    }
+
+    /**
+     * Returns the cached value without loading on a miss; a stale hit schedules a refresh with {@code refresher}.
+     */
+    @SuppressWarnings("unchecked")
+    public T getIfPresent(Object key, Supplier<Loaded<T>> refresher) {
+        Entry<T> entry = cache.get(key, Entry.class);
+        if (entry == null) return null;
+        if (isStale(entry)) {
+            refreshInBackground(key, refresher);
+        }
+        return entry.value();
+    }
+
+    /**
+     * Stores a newly built value. Incomplete values are served but count as stale right away.
+     */
+    public void put(Object key, Loaded<T> loaded) {
+        cache.put(key, new Entry<>(loaded.value(), clock.millis(), loaded.complete()));
+        if (loaded.complete()) {
+            retryNotBefore.remove(key);
+        }
+    }
+
+    private <K> void load(Map<K, CompletableFuture<T>> owned,
+                          Function<List<K>, Map<K, Loaded<T>>> loader,
+                          Map<K, T> values) {
+        try {
+            Map<K, Loaded<T>> loaded = loader.apply(List.copyOf(owned.keySet()));
+            owned.forEach((key, flight) -> {
+                Loaded<T> value = loaded.get(key);
+                if (value != null) {
+                    put(key, value);
+                    values.put(key, value.value());
+                }
+                flight.complete(value == null ? null : value.value());
+                if (value != null && value.completion() != null) {
+                    completeInBackground(key, value.completion());
+                }
+            });
+        } catch (RuntimeException e) {
+            owned.values().forEach(flight -> flight.completeExceptionally(e));
+            throw e;
+        } finally {
+            owned.forEach((key, flight) -> {
+                loading.remove(key, flight);
+                flight.completeExceptionally(new IllegalStateException("Load of " + key + " did not complete"));
+            });
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T peek(Object key) {
+        Entry<T> entry = cache.get(key, Entry.class);
+        return entry == null ? null : entry.value();
+    }
+
+    private boolean isStale(Entry<T> entry) {
+        return !entry.complete() || clock.millis() - entry.refreshedAt() >= staleAfter.toMillis();
+    }
+
+    private void refreshInBackground(Object key, Supplier<Loaded<T>> refresher) {
+        Long notBefore = retryNotBefore.get(key);
+        if (notBefore != null && clock.millis() < notBefore) return;
+        if (!refreshing.add(key)) return;
+
+        try {
+            executor.execute(() -> {
+                try {
+                    refresh(key, refresher);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            log.debug("Refresh of {} skipped, executor is saturated", key);
+        }
+    }
+
+    private void refresh(Object key, Supplier<Loaded<T>> refresher) {
+        try {
+            Loaded<T> loaded = refresher.get();
+            if (loaded.complete()) {
+                put(key, loaded);
+                return;
+            }
+            log.warn("Refresh of {} was incomplete, keeping the cached value", key);
+        } catch (RuntimeException e) {
+            log.warn("Refresh of {} failed, keeping the cached value: {}", key, e.getMessage());
+        }
+        retryNotBefore.put(key, clock.millis() + retryAfter.toMillis());
+    }
+
+    /**
+     * Stores {@code completion} once its sources have answered. Until then the key counts as
+     * refreshing, so its partial value is not rebuilt alongside. A completion that is still
+     * incomplete replaces the partial value it grew from, but not a complete value.
+     */
+    private void completeInBackground(Object key, CompletableFuture<Loaded<T>> completion) {
+        if (!refreshing.add(key)) return;
+        completion.whenComplete((loaded, error) -> {
+            try {
+                if (error != null) {
+                    log.warn("Completion of {} failed, keeping the cached value: {}", key, error.getMessage());
+                } else if (loaded.complete() || !hasCompleteValue(key)) {
+                    put(key, loaded);
+                }
+                if (error != null || !loaded.complete()) {
+                    retryNotBefore.put(key, clock.millis() + retryAfter.toMillis());
+                }
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean hasCompleteValue(Object key) {
+        Entry<T> entry = cache.get(key, Entry.class);
+        return entry != null && entry.complete();
+    }
+}
@@ -1,7 +1,9 @@
 package com.mead.conditions.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
@@ -11,8 +13,28 @@ public class AsyncConfig {
 
     public static final String MEAD_EXECUTOR = "meadExecutor";
 
+    public static final String MODE_VIRTUAL = "virtual";
+    public static final String MODE_PLATFORM = "platform";
+
+    @Value("${mead.executor.mode:" + MODE_VIRTUAL + "}")
+    private String mode;
+
+    /**
+     * Runs the blocking enrichment I/O. In {@value #MODE_VIRTUAL} mode every task gets its own
+     * virtual thread, so in-flight upstream calls scale with load instead of a fixed pool size;
+     * {@value #MODE_PLATFORM} keeps the bounded pool of 8 platform threads.
+     */
     @Bean(name = MEAD_EXECUTOR)
     public Executor meadExecutor() {
+        if (MODE_VIRTUAL.equalsIgnoreCase(mode)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("mead-virtual-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        if (!MODE_PLATFORM.equalsIgnoreCase(mode)) {
+            throw new IllegalStateException("Unknown mead.executor.mode: " + mode);
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setThreadNamePrefix("mead-async-");
         executor.setCorePoolSize(8);
@@ -1,9 +1,118 @@
 package com.mead.conditions.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.mead.conditions.cache.AppendOnlyCacheStore;
+import com.mead.conditions.cache.PersistentCaffeineCacheManager;
+import com.mead.conditions.cache.StaleWhileRevalidateCache;
+import com.mead.conditions.dto.ConditionDto.ConditionDetail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static com.mead.conditions.config.AsyncConfig.MEAD_EXECUTOR;
+
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(CacheSpecProperties.class)
 public class CachingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingConfig.class);
+
+    public static final String CONDITION_DETAILS = "conditionDetails";
+    public static final String WIKIDATA_ENRICHMENT = "wikidataEnrichment";
+    public static final String DBPEDIA_ENRICHMENT = "dbpediaEnrichment";
+    public static final String WIKIDOC_OVERVIEW = "wikidocOverview";
+    public static final String WIKIDOC_CAUSES = "wikidocCauses";
+    public static final String WIKIDOC_RISK_FACTORS = "wikidocRiskFactors";
+    public static final String WIKIDOC_SYMPTOMS = "wikidocSymptoms";
+    public static final String WIKIDOC_PAGES = "wikidocPages";
+    public static final String WIKIDOC_TITLES = "wikidocTitles";
+    public static final String WIKIDOC_MISSING_TITLES = "wikidocMissingTitles";
+
+    /**
+     * Caffeine-backed caches (W-TinyLFU eviction) with a bound and TTL per cache name.
+     * Stats are always recorded so the actuator exposes hit/miss/eviction metrics.
+     * Caches listed under {@code mead.cache.persistent.caches} are also kept on disk across restarts,
+     * where entries expire with their cache's TTL, capped at {@code mead.cache.persistent.max-age}.
+     */
+    @Bean
+    public CacheManager cacheManager(CacheSpecProperties properties) {
+        Map<String, Cache<Object, Object>> caches = new LinkedHashMap<>();
+        properties.specs().forEach((cacheName, spec) -> caches.put(cacheName, Caffeine.from(spec).recordStats().build()));
+
+        PersistentCaffeineCacheManager cacheManager = new PersistentCaffeineCacheManager(openStores(properties, caches));
+        cacheManager.setCaffeine(Caffeine.from(properties.defaultSpec()).recordStats());
+        caches.forEach(cacheManager::registerCustomCache);
+        return cacheManager;
+    }
+
+    /**
+     * Detail cache served stale-while-revalidate, refreshing on the shared executor.
+     */
+    @Bean
+    public StaleWhileRevalidateCache<ConditionDetail> conditionDetailsCache(CacheManager cacheManager,
+                                                                            CacheSpecProperties properties,
+                                                                            @Qualifier(MEAD_EXECUTOR) Executor meadExecutor) {
+        CacheSpecProperties.StaleWhileRevalidate swr = properties.staleWhileRevalidate();
+        return new StaleWhileRevalidateCache<>(
+                cacheManager.getCache(CONDITION_DETAILS),
+                swr.staleAfter(),
+                swr.retryAfter(),
+                meadExecutor
+        );
+    }
+
+    private static Map<String, AppendOnlyCacheStore> openStores(CacheSpecProperties properties,
+                                                                Map<String, Cache<Object, Object>> caches) {
+        CacheSpecProperties.Persistent persistent = properties.persistent();
+        Map<String, AppendOnlyCacheStore> stores = new HashMap<>();
+        if (!persistent.enabled()) return stores;
+        Path directory = Path.of(persistent.directory()).toAbsolutePath();
+        if (directory.startsWith(Path.of(System.getProperty("java.io.tmpdir")).toAbsolutePath())) {
+            log.warn("Persistent caches are kept in {}, under the temporary directory, and may not survive a restart; "
+                    + "set MEAD_CACHE_DIR to keep them", directory);
+        }
+
+        for (String cacheName : persistent.caches()) {
+            Path file = directory.resolve(cacheName + ".log");
+            Cache<Object, Object> cache = caches.containsKey(cacheName)
+                    ? caches.get(cacheName)
+                    : Caffeine.from(properties.defaultSpec()).build();
+            Duration maxAge = storeMaxAge(cache, persistent.maxAge());
+            try {
+                AppendOnlyCacheStore store = AppendOnlyCacheStore.open(file, maxAge);
+                log.info("Opened persistent cache {} with {} entries, kept for {}", cacheName, store.size(), maxAge);
+                stores.put(cacheName, store);
+            } catch (IOException e) {
+                log.warn("Cache {} stays memory-only, could not open {}: {}", cacheName, file, e.getMessage());
+            }
+        }
+        return stores;
+    }
+
+    /**
+     * A disk record must not outlive the memory entry it backs, or a value Caffeine has expired
+     * would be read back from disk.
+     */
+    private static Duration storeMaxAge(Cache<Object, Object> cache, Duration maxAge) {
+        return cache.policy().expireAfterWrite()
+                .map(Policy.FixedExpiration::getExpiresAfter)
+                .filter(ttl -> ttl.compareTo(maxAge) < 0)
+                .orElse(maxAge);
+    }
 }
@@ -0,0 +1,140 @@
+package com.mead.conditions.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Source-priority plan for one field: its sources in order of priority, each started only once
+ * every source ahead of it has failed or answered without a usable value. With a speculation
+ * delay, a source is also started when the one ahead of it has been running that long, but its
+ * value is still used only if everything ahead of it comes up empty. Sources are started under
+ * the {@link Deadline} that was current when the chain was resolved.
+ */
+public final class FallbackChain<T> {
+
+    private final Predicate<T> usable;
+    private final List<Supplier<CompletableFuture<T>>> sources = new ArrayList<>();
+    private T fallback;
+
+    private FallbackChain(Predicate<T> usable) {
+        this.usable = usable;
+    }
+
+    /**
+     * A chain taking the first value {@code usable} accepts.
+     */
+    public static <T> FallbackChain<T> firstUsable(Predicate<T> usable) {
+        return new FallbackChain<>(usable);
+    }
+
+    /**
+     * Adds a source that is already running, such as one that feeds several fields.
+     */
+    public FallbackChain<T> then(CompletableFuture<T> running) {
+        sources.add(() -> running);
+        return this;
+    }
+
+    /**
+     * Adds a source that is started only when it is needed.
+     */
+    public FallbackChain<T> thenLazily(Supplier<CompletableFuture<T>> source) {
+        sources.add(source);
+        return this;
+    }
+
+    /**
+     * Value of the field when every source answered but none had a usable value; {@code null} by default.
+     */
+    public FallbackChain<T> orElse(T fallback) {
+        this.fallback = fallback;
+        return this;
+    }
+
+    /**
+     * Starts the plan. The result is the first usable value in priority order, or the fallback
+     * when every source answered without one. When no source had a usable value and some failed,
+     * the result fails as well, since the field may have had a value there.
+     *
+     * @param speculateAfterMs how long a source may run before the next one is started alongside
+     *                         it; negative to wait for each source to settle
+     */
+    public CompletableFuture<T> resolve(long speculateAfterMs, Executor executor) {
+        Resolution resolution = new Resolution(Deadline.current(), speculateAfterMs, executor);
+        resolution.settle();
+        return resolution.result;
+    }
+
+    private final class Resolution {
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicReferenceArray<CompletableFuture<T>> started = new AtomicReferenceArray<>(sources.size());
+        private final Deadline deadline;
+        private final long speculateAfterMs;
+        private final Executor executor;
+
+        private Resolution(Deadline deadline, long speculateAfterMs, Executor executor) {
+            this.deadline = deadline;
+            this.speculateAfterMs = speculateAfterMs;
+            this.executor = executor;
+        }
+
+        /**
+         * Walks the sources in priority order: completes the result with the first usable value,
+         * stops at the first source still running, and starts the first one not yet started.
+         */
+        private void settle() {
+            Throwable failure = null;
+            for (int i = 0; i < sources.size(); i++) {
+                CompletableFuture<T> source = started.get(i);
+                if (source == null) {
+                    start(i);
+                    return;
+                }
+                if (!source.isDone()) return;
+                if (source.state() == Future.State.SUCCESS) {
+                    if (usable.test(source.resultNow())) {
+                        result.complete(source.resultNow());
+                        return;
+                    }
+                } else if (failure == null) {
+                    failure = source.exceptionNow();
+                }
+            }
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(fallback);
+            }
+        }
+
+        private void start(int index) {
+            if (result.isDone() || index >= sources.size()) return;
+            CompletableFuture<T> source = new CompletableFuture<>();
+            if (!started.compareAndSet(index, null, source)) return;
+            if (speculateAfterMs >= 0 && index + 1 < sources.size()) {
+                CompletableFuture.delayedExecutor(speculateAfterMs, TimeUnit.MILLISECONDS, executor)
+                        .execute(() -> start(index + 1));
+            }
+            try {
+                deadline.call(sources.get(index)).whenComplete((value, error) -> {
+                    if (error != null) {
+                        source.completeExceptionally(error);
+                    } else {
+                        source.complete(value);
+                    }
+                });
+            } catch (RuntimeException e) {
+                source.completeExceptionally(e);
+            }
+            source.whenComplete((value, error) -> settle());
+        }
+    }
+}
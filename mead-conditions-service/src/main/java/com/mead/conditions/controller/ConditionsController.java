@@ -1,10 +1,16 @@
 package com.mead.conditions.controller;
 
+import com.mead.conditions.dto.ConditionDto.BatchGetConditionsRequest;
+import com.mead.conditions.dto.ConditionDto.BatchGetConditionsResponse;
 import com.mead.conditions.dto.ConditionDto.ConditionDetail;
 import com.mead.conditions.dto.ConditionDto.ConditionSummary;
+import com.mead.conditions.exception.BadRequestException;
 import com.mead.conditions.service.ConditionService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -16,6 +22,9 @@ public class ConditionsController {
 
     private final ConditionService service;
 
+    @Value("${mead.api.batch-get.max-ids:50}")
+    private int batchGetMaxIds;
+
     public ConditionsController(ConditionService service) {
         this.service = service;
     }
@@ -29,4 +38,16 @@ public class ConditionsController {
     public ConditionDetail get(@PathVariable String id) {
         return service.get(id);
     }
+
+    @PostMapping("/conditions:batchGet")
+    public BatchGetConditionsResponse batchGet(@RequestBody BatchGetConditionsRequest request) {
+        List<String> ids = request == null ? null : request.ids();
+        if (ids == null || ids.isEmpty()) {
+            throw new BadRequestException("At least one id is required.");
+        }
+        if (ids.size() > batchGetMaxIds) {
+            throw new BadRequestException("Too many ids. Max allowed: " + batchGetMaxIds);
+        }
+        return service.getAll(ids);
+    }
 }
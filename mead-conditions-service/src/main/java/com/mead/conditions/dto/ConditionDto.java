@@ -25,7 +25,18 @@ public final class ConditionDto {
             List<String> riskFactors,
 
             List<String> sameAs,
-            String wikidocSnippet
+            String wikidocSnippet,
+
+            List<String> missingFields
+    ) {}
+
+    public record BatchGetConditionsRequest(
+            List<String> ids
+    ) {}
+
+    public record BatchGetConditionsResponse(
+            List<ConditionDetail> conditions,
+            List<String> missingIds
     ) {}
 
     private ConditionDto() {}
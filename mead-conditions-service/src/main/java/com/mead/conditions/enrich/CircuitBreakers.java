@@ -0,0 +1,34 @@
+package com.mead.conditions.enrich;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link CircuitBreaker} per upstream source, shared by every client that calls it.
+ */
+@Component
+public class CircuitBreakers {
+
+    @Value("${mead.external.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${mead.external.circuit-breaker.open-ms:30000}")
+    private long openMs;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CircuitBreaker> bySource = new ConcurrentHashMap<>();
+
+    public CircuitBreakers(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public CircuitBreaker forSource(String source) {
+        return bySource.computeIfAbsent(source,
+                key -> new CircuitBreaker(key, failureThreshold, Duration.ofMillis(openMs), meterRegistry));
+    }
+}
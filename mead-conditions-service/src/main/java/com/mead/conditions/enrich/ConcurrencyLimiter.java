@@ -0,0 +1,255 @@
+package com.mead.conditions.enrich;
+
+import com.mead.conditions.config.Deadline;
+import com.mead.conditions.exception.UpstreamException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive limit on the concurrent requests to one upstream host, adjusted AIMD-style: each answer
+ * received while the limit is in use raises it by {@code 1/limit}, and each 429, 503 or timeout
+ * multiplies it by {@code backoffRatio}. A {@code Retry-After} on such an answer holds back every
+ * request to the host until it has passed. Requests over the limit wait in line, interactive ones
+ * ahead of background ones, each for at most its own maximum wait.
+ */
+public class ConcurrencyLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    public static final String LIMIT = "mead.upstream.concurrency.limit";
+    public static final String QUEUED = "mead.upstream.concurrency.queued";
+    public static final String BACKOFFS = "mead.upstream.concurrency.backoffs";
+
+    public enum Priority { INTERACTIVE, BACKGROUND }
+
+    private enum Outcome { SUCCESS, OVERLOAD, IGNORED }
+
+    /**
+     * Bounds of the limit; unset values fall back to defaults.
+     */
+    public record Limits(int initial, int min, int max, double backoffRatio, Duration maxRetryAfter) {
+
+        public Limits {
+            min = min <= 0 ? 1 : min;
+            max = max <= 0 ? 64 : Math.max(min, max);
+            initial = initial <= 0 ? Math.min(8, max) : Math.clamp(initial, min, max);
+            backoffRatio = backoffRatio <= 0 || backoffRatio >= 1 ? 0.5 : backoffRatio;
+            maxRetryAfter = maxRetryAfter == null || maxRetryAfter.isZero() ? Duration.ofMinutes(5) : maxRetryAfter;
+        }
+    }
+
+    private final String host;
+    private final Limits limits;
+    private final ScheduledExecutorService scheduler;
+    private final Clock clock;
+    private final Counter backoffs;
+    private final Deque<CompletableFuture<Void>> interactive = new ArrayDeque<>();
+    private final Deque<CompletableFuture<Void>> background = new ArrayDeque<>();
+
+    private double limit;
+    private int inFlight;
+    private long blockedUntil;
+    private boolean wakeUpScheduled;
+
+    public ConcurrencyLimiter(String host, Limits limits, ScheduledExecutorService scheduler, MeterRegistry meterRegistry) {
+        this(host, limits, scheduler, meterRegistry, Clock.systemUTC());
+    }
+
+    ConcurrencyLimiter(String host, Limits limits, ScheduledExecutorService scheduler, MeterRegistry meterRegistry, Clock clock) {
+        this.host = host;
+        this.limits = limits;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.limit = limits.initial();
+        this.backoffs = Counter.builder(BACKOFFS)
+                .description("Times the concurrency limit was cut after a 429, 503 or timeout")
+                .tag("host", host)
+                .register(meterRegistry);
+        Gauge.builder(LIMIT, this, ConcurrencyLimiter::limit)
+                .description("Current limit on concurrent upstream requests")
+                .tag("host", host)
+                .register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            Gauge.builder(QUEUED, this, limiter -> limiter.queued(priority))
+                    .description("Upstream requests waiting for a slot")
+                    .tag("host", host)
+                    .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Calls made under a background deadline queue behind interactive ones.
+     */
+    public static Priority priorityOf(Deadline deadline) {
+        return deadline.isBackground() ? Priority.BACKGROUND : Priority.INTERACTIVE;
+    }
+
+    /**
+     * Completes once a request may be sent, or fails with an {@link HttpTimeoutException} when no
+     * slot frees up within {@code maxWaitMs}. While the host holds requests back for longer than
+     * that, fails right away with an {@link UpstreamException} instead. A negative {@code maxWaitMs}
+     * waits as long as it takes. Every permit granted must be given back with one of the
+     * {@code release} methods.
+     */
+    public CompletableFuture<Void> acquire(Priority priority, long maxWaitMs) {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        Deque<CompletableFuture<Void>> queue = queue(priority);
+        synchronized (this) {
+            long heldForMs = blockedUntil - clock.millis();
+            if (maxWaitMs >= 0 && heldForMs > maxWaitMs) {
+                return CompletableFuture.failedFuture(
+                        new UpstreamException(host + " asked to back off for another " + heldForMs + " ms"));
+            }
+            queue.addLast(permit);
+        }
+        dispatch();
+        if (!permit.isDone() && maxWaitMs >= 0) {
+            scheduler.schedule(() -> expire(permit, queue, maxWaitMs), maxWaitMs, TimeUnit.MILLISECONDS);
+        }
+        return permit;
+    }
+
+    public void release(HttpResponse<?> response) {
+        int status = response.statusCode();
+        if (status == 429 || status == 503) {
+            release(Outcome.OVERLOAD, retryAfter(response.headers()));
+        } else {
+            release(Outcome.SUCCESS, null);
+        }
+    }
+
+    /**
+     * Gives back the permit of a request that failed.
+     */
+    public void release(Throwable error) {
+        release(Timeouts.isTimeout(error) ? Outcome.OVERLOAD : Outcome.IGNORED, null);
+    }
+
+    /**
+     * Gives back a permit whose request was never sent.
+     */
+    public void releaseUnused() {
+        release(Outcome.IGNORED, null);
+    }
+
+    public synchronized double limit() {
+        return limit;
+    }
+
+    synchronized int queued(Priority priority) {
+        int waiting = 0;
+        for (CompletableFuture<Void> permit : queue(priority)) {
+            if (!permit.isDone()) waiting++;
+        }
+        return waiting;
+    }
+
+    private void release(Outcome outcome, Duration retryAfter) {
+        synchronized (this) {
+            boolean saturated = inFlight >= (int) limit || !interactive.isEmpty() || !background.isEmpty();
+            inFlight--;
+            if (outcome == Outcome.SUCCESS && saturated) {
+                limit = Math.min(limits.max(), limit + 1 / limit);
+            } else if (outcome == Outcome.OVERLOAD) {
+                limit = Math.max(limits.min(), limit * limits.backoffRatio());
+                backoffs.increment();
+                if (retryAfter != null) {
+                    long until = clock.millis() + Math.min(retryAfter.toMillis(), limits.maxRetryAfter().toMillis());
+                    if (until > blockedUntil) {
+                        blockedUntil = until;
+                        log.warn("{} asked to back off, holding requests for {} ms", host, until - clock.millis());
+                    }
+                }
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Hands free slots to the waiters, interactive ones first. Permits are completed outside the
+     * lock, since completing one runs the request it was waiting for.
+     */
+    private void dispatch() {
+        List<CompletableFuture<Void>> granted = new ArrayList<>();
+        synchronized (this) {
+            long now = clock.millis();
+            if (now < blockedUntil) {
+                scheduleWakeUp(blockedUntil - now);
+            } else {
+                while (inFlight < (int) limit) {
+                    CompletableFuture<Void> next = interactive.isEmpty() ? background.pollFirst() : interactive.pollFirst();
+                    if (next == null) break;
+                    if (next.isDone()) continue;
+                    inFlight++;
+                    granted.add(next);
+                }
+            }
+        }
+        for (CompletableFuture<Void> permit : granted) {
+            if (!permit.complete(null)) releaseUnused();
+        }
+    }
+
+    private void scheduleWakeUp(long delayMs) {
+        if (wakeUpScheduled || (interactive.isEmpty() && background.isEmpty())) return;
+        wakeUpScheduled = true;
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                wakeUpScheduled = false;
+            }
+            dispatch();
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void expire(CompletableFuture<Void> permit, Deque<CompletableFuture<Void>> queue, long maxWaitMs) {
+        if (permit.completeExceptionally(new HttpTimeoutException("No " + host + " request slot within " + maxWaitMs + " ms"))) {
+            synchronized (this) {
+                queue.remove(permit);
+            }
+        }
+    }
+
+    private Deque<CompletableFuture<Void>> queue(Priority priority) {
+        return priority == Priority.INTERACTIVE ? interactive : background;
+    }
+
+    /**
+     * {@code Retry-After} as either delay-seconds or an HTTP date; null when absent or unreadable.
+     */
+    private Duration retryAfter(HttpHeaders headers) {
+        String value = headers.firstValue("Retry-After").orElse("").trim();
+        if (value.isEmpty()) return null;
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            // Not delay-seconds, try an HTTP date.
+        }
+        try {
+            long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Duration.ofMillis(Math.max(0, at - clock.millis()));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -3,17 +3,29 @@ package com.mead.conditions.enrich;
 import com.mead.conditions.config.AsyncConfig;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.mead.conditions.config.CachingConfig.DBPEDIA_ENRICHMENT;
+import static com.mead.conditions.config.ForkJoinTasks.fork;
+import static com.mead.conditions.config.ForkJoinTasks.joinAll;
 
 @Component
 public class DbpediaClient {
@@ -30,20 +42,31 @@ public class DbpediaClient {
     private static final int LIMIT_ONE = 1;
     private static final int LIMIT_LABELS = 50;
     private static final int LIMIT_IMAGES = 10;
+    private static final int LIMIT_BATCH_ROWS = 10000;
+    private static final Pattern SAFE_IRI_PATTERN = Pattern.compile("https?://[^\\s<>\"{}|\\\\^`]+");
 
     @Value("${mead.external.dbpedia.endpoint}")
     private String endpoint;
 
+    @Value("${mead.external.dbpedia.mirror-endpoint:}")
+    private String mirrorEndpoint;
+
     @Value("${mead.external.dbpedia.timeout-ms:8000}")
     private long timeoutMs;
 
+    @Value("${mead.external.dbpedia.batch-size:25}")
+    private int batchSize;
+
     private final SparqlHttpClient sparql;
     private final Executor meadExecutor;
+    private final CacheManager cacheManager;
 
     public DbpediaClient(SparqlHttpClient sparql,
-                         @Qualifier(AsyncConfig.MEAD_EXECUTOR) Executor meadExecutor) {
+                         @Qualifier(AsyncConfig.MEAD_EXECUTOR) Executor meadExecutor,
+                         CacheManager cacheManager) {
         this.sparql = sparql;
         this.meadExecutor = meadExecutor;
+        this.cacheManager = cacheManager;
     }
 
     public record DbpediaEnrichment(
@@ -51,16 +74,16 @@ public class DbpediaClient {
             List<String> symptoms,
             List<String> riskFactors,
             List<String> images
-    ) {}
+    ) implements Serializable {}
 
-    @Cacheable("dbpediaEnrichment")
+    @Cacheable(cacheNames = DBPEDIA_ENRICHMENT, sync = true)
     public DbpediaEnrichment enrichFromResourceUri(String dbpediaResourceUri) {
         CompletableFuture<String> descriptionFuture = executeAsync(() -> fetchEnglishDescription(dbpediaResourceUri));
         CompletableFuture<List<String>> symptomsFuture = executeAsync(() -> fetchSymptoms(dbpediaResourceUri));
         CompletableFuture<List<String>> riskFactorsFuture = executeAsync(() -> fetchRiskFactors(dbpediaResourceUri));
         CompletableFuture<List<String>> imagesFuture = executeAsync(() -> fetchImageUrls(dbpediaResourceUri));
 
-        CompletableFuture.allOf(descriptionFuture, symptomsFuture, riskFactorsFuture, imagesFuture).join();
+        joinAll(descriptionFuture, symptomsFuture, riskFactorsFuture, imagesFuture);
 
         return new DbpediaEnrichment(
                 descriptionFuture.join(),
@@ -70,6 +93,122 @@ public class DbpediaClient {
         );
     }
 
+    /**
+     * Enriches many resources with one {@code VALUES} query per batch and stores each result
+     * under the same key {@link #enrichFromResourceUri} uses, so later single lookups are cache hits.
+     * Resources that come back without any rows are left out and not cached.
+     */
+    public Map<String, DbpediaEnrichment> enrichFromResourceUris(Collection<String> dbpediaResourceUris) {
+        Map<String, DbpediaEnrichment> results = new LinkedHashMap<>();
+        Cache cache = cacheManager.getCache(DBPEDIA_ENRICHMENT);
+        List<String> pending = new ArrayList<>();
+
+        for (String uri : new LinkedHashSet<>(dbpediaResourceUris)) {
+            if (uri == null) continue;
+            DbpediaEnrichment cached = cache == null ? null : cache.get(uri, DbpediaEnrichment.class);
+            if (cached != null) {
+                results.put(uri, cached);
+            } else if (SAFE_IRI_PATTERN.matcher(uri).matches()) {
+                pending.add(uri);
+            }
+        }
+
+        // Batches run one after another so a full warm-up stays within DBpedia's rate limits.
+        for (List<String> batch : partition(pending, batchSize)) {
+            fetchBatch(batch).forEach((uri, enrichment) -> {
+                if (cache != null) cache.put(uri, enrichment);
+                results.put(uri, enrichment);
+            });
+        }
+        return results;
+    }
+
+    /**
+     * Fetches all fields for the given resources in one round trip. Every UNION branch binds its
+     * own variable so the fallback chains of the single-resource path can be applied per resource.
+     * The row limit is shared by the whole batch, so one resource with many rows could cut off
+     * another's; a batch that fills it is queried again one resource at a time rather than cached
+     * with results missing.
+     */
+    private Map<String, DbpediaEnrichment> fetchBatch(List<String> resourceUris) {
+        String values = resourceUris.stream()
+                .map(uri -> "<" + uri + ">")
+                .collect(Collectors.joining(" "));
+
+        String sparqlQuery = """
+                PREFIX dbo: <%s>
+                PREFIX dbp: <%s>
+                PREFIX foaf: <%s>
+                PREFIX rdfs: <%s>
+                PREFIX schema: <%s>
+                SELECT ?item ?abstract ?description ?comment ?symptomLabel ?symptomLiteral
+                       ?causeLabel ?causeLiteral ?complicationLiteral ?img WHERE {
+                  VALUES ?item { %s }
+                  { ?item dbo:abstract ?abstract . FILTER(LANG(?abstract) = "%s") }
+                  UNION { ?item dbo:description ?description . FILTER(LANG(?description) = "%s") }
+                  UNION { ?item rdfs:comment ?comment . FILTER(LANG(?comment) = "%s") }
+                  UNION { ?item dbo:symptom ?symptomResource .
+                          ?symptomResource rdfs:label ?symptomLabel .
+                          FILTER(LANG(?symptomLabel) = "%s") }
+                  UNION { ?item dbp:symptoms ?symptomLiteral .
+                          FILTER(LANG(?symptomLiteral) = "%s" || LANG(?symptomLiteral) = "") }
+                  UNION { ?item dbo:medicalCause ?causeResource .
+                          ?causeResource rdfs:label ?causeLabel .
+                          FILTER(LANG(?causeLabel) = "%s") }
+                  UNION { ?item dbp:causes ?causeLiteral .
+                          FILTER(LANG(?causeLiteral) = "%s" || LANG(?causeLiteral) = "") }
+                  UNION { ?item dbp:complications ?complicationLiteral .
+                          FILTER(LANG(?complicationLiteral) = "%s" || LANG(?complicationLiteral) = "") }
+                  UNION { ?item dbo:complications ?complicationLiteral .
+                          FILTER(LANG(?complicationLiteral) = "%s" || LANG(?complicationLiteral) = "") }
+                  UNION { ?item dbo:thumbnail ?img . }
+                  UNION { ?item foaf:depiction ?img . }
+                  UNION { ?item schema:image ?img . }
+                  UNION { ?item dbp:image ?img . }
+                } LIMIT %d
+                """.formatted(DBO, DBP, FOAF, RDFS, SCHEMA, values,
+                LANG_EN, LANG_EN, LANG_EN, LANG_EN, LANG_EN, LANG_EN, LANG_EN, LANG_EN, LANG_EN,
+                LIMIT_BATCH_ROWS);
+
+        List<Map<String, String>> batchRows = sparql.selectRows(createRequest(sparqlQuery, null));
+        if (batchRows.size() >= LIMIT_BATCH_ROWS && resourceUris.size() > 1) {
+            Map<String, DbpediaEnrichment> enrichments = new LinkedHashMap<>();
+            resourceUris.forEach(uri -> enrichments.putAll(fetchBatch(List.of(uri))));
+            return enrichments;
+        }
+
+        Map<String, List<Map<String, String>>> rowsByUri = batchRows.stream()
+                .filter(row -> row.containsKey("item"))
+                .collect(Collectors.groupingBy(row -> row.get("item"), LinkedHashMap::new, Collectors.toList()));
+
+        Map<String, DbpediaEnrichment> enrichments = new LinkedHashMap<>();
+        rowsByUri.forEach((uri, rows) -> enrichments.put(uri, toEnrichment(rows)));
+        return enrichments;
+    }
+
+    private static DbpediaEnrichment toEnrichment(List<Map<String, String>> rows) {
+        String description = firstValue(rows, "abstract", "description", "comment");
+
+        List<String> symptoms = removeDuplicates(columnValues(rows, "symptomLabel", LIMIT_LABELS));
+        if (symptoms.isEmpty()) {
+            symptoms = removeDuplicates(splitCommaList(columnValues(rows, "symptomLiteral", LIMIT_LITERALS)));
+        }
+
+        List<String> riskFactors = new ArrayList<>(columnValues(rows, "causeLabel", LIMIT_LABELS));
+        riskFactors.addAll(splitCommaList(columnValues(rows, "causeLiteral", LIMIT_LITERALS)));
+        riskFactors = removeDuplicates(riskFactors);
+        if (riskFactors.isEmpty()) {
+            riskFactors = removeDuplicates(splitCommaList(columnValues(rows, "complicationLiteral", LIMIT_LITERALS)));
+        }
+
+        return new DbpediaEnrichment(
+                description,
+                symptoms,
+                riskFactors,
+                columnValues(rows, "img", LIMIT_IMAGES)
+        );
+    }
+
     private String fetchEnglishDescription(String resourceUri) {
         String abstractText = queryEnglishLiteral(resourceUri, DBO + "abstract");
         if (abstractText != null) return abstractText;
@@ -180,6 +319,7 @@ public class DbpediaClient {
     private SparqlHttpClient.SelectRequest createRequest(String sparqlQuery, String varName) {
         return new SparqlHttpClient.SelectRequest(
                 endpoint,
+                mirrorEndpoint,
                 timeoutMs,
                 Map.of(),
                 sparqlQuery,
@@ -189,7 +329,33 @@ public class DbpediaClient {
     }
 
     private <T> CompletableFuture<T> executeAsync(Supplier<T> supplier) {
-        return CompletableFuture.supplyAsync(supplier, meadExecutor);
+        return fork(supplier, meadExecutor);
+    }
+
+    private static String firstValue(List<Map<String, String>> rows, String... varNamesByPriority) {
+        for (String varName : varNamesByPriority) {
+            List<String> values = columnValues(rows, varName, LIMIT_ONE);
+            if (!values.isEmpty()) return values.get(0);
+        }
+        return null;
+    }
+
+    private static List<String> columnValues(List<Map<String, String>> rows, String varName, int limit) {
+        return rows.stream()
+                .map(row -> row.get(varName))
+                .filter(Objects::nonNull)
+                .distinct()
+                .limit(limit)
+                .toList();
+    }
+
+    private static <T> List<List<T>> partition(List<T> values, int size) {
+        List<List<T>> batches = new ArrayList<>();
+        int step = Math.max(1, size);
+        for (int i = 0; i < values.size(); i += step) {
+            batches.add(values.subList(i, Math.min(i + step, values.size())));
+        }
+        return batches;
     }
 
     private static List<String> splitCommaList(List<String> rawList) {
@@ -0,0 +1,439 @@
+package com.mead.conditions.enrich;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Single-pass HTML scanner for WikiDoc pages. Emits the text of every paragraph and list item in
+ * document order with entities decoded and bracketed markers such as {@code [1]} removed, skipping
+ * style, script, table, reference and table-of-contents subtrees, along with the headings found on
+ * the way. Malformed markup degrades to plain text; the scan is linear in the page size whatever
+ * the input.
+ */
+final class HtmlTextExtractor {
+
+    enum Kind { PARAGRAPH, LIST_ITEM }
+
+    /**
+     * Text of one paragraph or list item; {@code offset} is where its start tag begins in the page.
+     */
+    record Block(Kind kind, String text, int offset) {}
+
+    /**
+     * An {@code h1}-{@code h6} element; {@code ids} are the decoded ids of the heading and the
+     * elements inside it, {@code offset} is where its start tag begins and {@code contentOffset}
+     * is just past its end tag.
+     */
+    record Heading(int level, List<String> ids, int offset, int contentOffset) {}
+
+    record Page(List<Block> blocks, List<Heading> headings) {}
+
+    private static final Set<String> SKIPPED_ELEMENTS = Set.of("style", "script", "table");
+    private static final Set<String> INLINE_ELEMENTS = Set.of(
+            "a", "abbr", "b", "bdi", "cite", "code", "em", "font", "i", "small", "span", "strong", "sub", "sup", "u"
+    );
+    private static final Map<String, Integer> NAMED_ENTITIES = Map.of(
+            "amp", (int) '&',
+            "nbsp", (int) ' ',
+            "quot", (int) '"',
+            "apos", (int) '\'',
+            "lt", (int) '<',
+            "gt", (int) '>',
+            "ndash", (int) '-',
+            "mdash", (int) '-'
+    );
+    private static final int MAX_ENTITY_LENGTH = 10;
+
+    private HtmlTextExtractor() {
+    }
+
+    static List<Block> extract(String html) {
+        return parse(html).blocks();
+    }
+
+    static Page parse(String html) {
+        if (html == null || html.isEmpty()) return new Page(List.of(), List.of());
+        return new Scanner(html).scan();
+    }
+
+    private static final class OpenBlock {
+
+        private final Kind kind;
+        private final int offset;
+        private final int listDepth;
+        private final int slot;
+        private final StringBuilder text = new StringBuilder();
+
+        private OpenBlock(Kind kind, int offset, int listDepth, int slot) {
+            this.kind = kind;
+            this.offset = offset;
+            this.listDepth = listDepth;
+            this.slot = slot;
+        }
+    }
+
+    private static final class Scanner {
+
+        private final String html;
+        private final int length;
+        private final List<Block> slots = new ArrayList<>();
+        private final Deque<OpenBlock> open = new ArrayDeque<>();
+        private final List<Heading> headings = new ArrayList<>();
+        private int pos;
+        private int listDepth;
+        private String skipped;
+        private int skippedDepth;
+        private int headingLevel;
+        private int headingOffset;
+        private List<String> headingIds;
+
+        private Scanner(String html) {
+            this.html = html;
+            this.length = html.length();
+        }
+
+        private Page scan() {
+            while (pos < length) {
+                char c = html.charAt(pos);
+                if (c == '<') {
+                    readMarkup();
+                } else if (skipped != null) {
+                    pos++;
+                } else if (c == '&') {
+                    readEntity();
+                } else {
+                    appendText(c);
+                    pos++;
+                }
+            }
+            // Blocks never closed are dropped, like unterminated elements in the page.
+            List<Block> blocks = new ArrayList<>(slots.size());
+            for (Block block : slots) {
+                if (block != null) blocks.add(block);
+            }
+            return new Page(blocks, headings);
+        }
+
+        private void readMarkup() {
+            if (html.startsWith("<!--", pos)) {
+                int end = html.indexOf("-->", pos + 4);
+                pos = end < 0 ? length : end + 3;
+                return;
+            }
+            int nameStart = pos + 1;
+            boolean closing = nameStart < length && html.charAt(nameStart) == '/';
+            if (closing) nameStart++;
+            if (nameStart >= length || !Character.isLetter(html.charAt(nameStart))) {
+                if (nameStart < length && (html.charAt(nameStart) == '!' || html.charAt(nameStart) == '?')) {
+                    int end = html.indexOf('>', nameStart);
+                    pos = end < 0 ? length : end + 1;
+                    return;
+                }
+                if (skipped == null) appendText('<');
+                pos++;
+                return;
+            }
+
+            int nameEnd = nameStart;
+            while (nameEnd < length && Character.isLetterOrDigit(html.charAt(nameEnd))) nameEnd++;
+            int tagEnd = findTagEnd(nameEnd);
+            String name = html.substring(nameStart, nameEnd).toLowerCase(Locale.ROOT);
+            int tagStart = pos;
+            pos = tagEnd < 0 ? length : tagEnd + 1;
+            if (tagEnd < 0) return;
+
+            if (closing) {
+                closeTag(name);
+            } else {
+                boolean selfClosing = html.charAt(tagEnd - 1) == '/';
+                openTag(name, html.substring(nameEnd, tagEnd), selfClosing, tagStart);
+            }
+        }
+
+        private int findTagEnd(int from) {
+            char quote = 0;
+            for (int i = from; i < length; i++) {
+                char c = html.charAt(i);
+                if (quote != 0) {
+                    if (c == quote) quote = 0;
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '>') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void openTag(String name, String attributes, boolean selfClosing, int tagStart) {
+            if (skipped != null) {
+                if (name.equals(skipped) && !selfClosing) skippedDepth++;
+                return;
+            }
+            if (isNoise(name, attributes)) {
+                if (!selfClosing) {
+                    skipped = name;
+                    skippedDepth = 1;
+                }
+                return;
+            }
+            int level = headingLevel(name);
+            if (level > 0) {
+                // A heading left open ends where the next one starts.
+                headingLevel = level;
+                headingOffset = tagStart;
+                headingIds = new ArrayList<>();
+            }
+            if (headingIds != null) {
+                String id = rawAttribute(attributes, "id");
+                if (id != null && !id.isEmpty()) headingIds.add(decodeEntities(id));
+            }
+            switch (name) {
+                case "p" -> {
+                    if (!open.isEmpty() && open.peek().kind == Kind.PARAGRAPH) close(open.peek());
+                    openBlock(Kind.PARAGRAPH, tagStart);
+                }
+                case "li" -> {
+                    OpenBlock top = open.peek();
+                    if (top != null && top.kind == Kind.LIST_ITEM && top.listDepth == listDepth) close(top);
+                    openBlock(Kind.LIST_ITEM, tagStart);
+                }
+                case "ul", "ol" -> {
+                    appendText(' ');
+                    listDepth++;
+                }
+                default -> {
+                    if (!INLINE_ELEMENTS.contains(name)) appendText(' ');
+                }
+            }
+        }
+
+        private void closeTag(String name) {
+            if (skipped != null) {
+                if (name.equals(skipped) && --skippedDepth == 0) skipped = null;
+                return;
+            }
+            if (headingIds != null && headingLevel(name) == headingLevel) {
+                headings.add(new Heading(headingLevel, List.copyOf(headingIds), headingOffset, pos));
+                headingIds = null;
+            }
+            switch (name) {
+                case "p" -> closeInnermost(Kind.PARAGRAPH);
+                case "li" -> closeInnermost(Kind.LIST_ITEM);
+                case "ul", "ol" -> {
+                    // Items the list left open end with it.
+                    while (!open.isEmpty() && open.peek().listDepth >= listDepth && listDepth > 0) {
+                        close(open.peek());
+                    }
+                    listDepth = Math.max(0, listDepth - 1);
+                }
+                default -> {
+                    if (!INLINE_ELEMENTS.contains(name)) appendText(' ');
+                }
+            }
+        }
+
+        private void openBlock(Kind kind, int offset) {
+            open.push(new OpenBlock(kind, offset, listDepth, slots.size()));
+            slots.add(null);
+        }
+
+        private void closeInnermost(Kind kind) {
+            for (Iterator<OpenBlock> it = open.iterator(); it.hasNext(); ) {
+                OpenBlock block = it.next();
+                if (block.kind == kind) {
+                    close(block);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Closes {@code block} and every block opened inside it.
+         */
+        private void close(OpenBlock block) {
+            OpenBlock top;
+            do {
+                top = open.pop();
+                String text = finish(top.text);
+                if (!text.isEmpty()) {
+                    slots.set(top.slot, new Block(top.kind, text, top.offset));
+                }
+            } while (top != block);
+        }
+
+        private void readEntity() {
+            int end = Math.min(length, pos + MAX_ENTITY_LENGTH);
+            int semicolon = -1;
+            for (int i = pos + 1; i < end; i++) {
+                char c = html.charAt(i);
+                if (c == ';') {
+                    semicolon = i;
+                    break;
+                }
+                if (!Character.isLetterOrDigit(c) && c != '#') break;
+            }
+            int codePoint = semicolon < 0 ? -1 : decodeEntity(html.substring(pos + 1, semicolon));
+            if (codePoint < 0) {
+                appendText('&');
+                pos++;
+                return;
+            }
+            appendText(codePoint);
+            pos = semicolon + 1;
+        }
+
+        private void appendText(int codePoint) {
+            OpenBlock block = open.peek();
+            if (block == null) return;
+            StringBuilder text = block.text;
+            if (Character.isWhitespace(codePoint) || codePoint == '\u00A0') {
+                if (!text.isEmpty() && text.charAt(text.length() - 1) != ' ') text.append(' ');
+            } else if (codePoint != '\u2020' && codePoint != '\u2021' && codePoint != '\uFFFD') {
+                text.appendCodePoint(codePoint);
+            }
+        }
+    }
+
+    private static int headingLevel(String name) {
+        if (name.length() != 2 || name.charAt(0) != 'h') return 0;
+        char digit = name.charAt(1);
+        return digit >= '1' && digit <= '6' ? digit - '0' : 0;
+    }
+
+    /**
+     * Decodes the entities of an attribute value, leaving anything that is not one as it is.
+     */
+    private static String decodeEntities(String value) {
+        if (value.indexOf('&') < 0) return value;
+        StringBuilder decoded = new StringBuilder(value.length());
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            int semicolon = c == '&' ? value.indexOf(';', i + 1) : -1;
+            int codePoint = semicolon < 0 || semicolon - i > MAX_ENTITY_LENGTH
+                    ? -1
+                    : decodeEntity(value.substring(i + 1, semicolon));
+            if (codePoint < 0) {
+                decoded.append(c);
+                i++;
+            } else {
+                decoded.appendCodePoint(codePoint);
+                i = semicolon + 1;
+            }
+        }
+        return decoded.toString();
+    }
+
+    private static int decodeEntity(String entity) {
+        try {
+            if (entity.startsWith("#x") || entity.startsWith("#X")) {
+                int codePoint = Integer.parseInt(entity.substring(2), 16);
+                return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+            }
+            if (entity.startsWith("#")) {
+                int codePoint = Integer.parseInt(entity.substring(1));
+                return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+            }
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        return NAMED_ENTITIES.getOrDefault(entity, -1);
+    }
+
+    private static boolean isNoise(String name, String attributes) {
+        if (SKIPPED_ELEMENTS.contains(name)) return true;
+        return switch (name) {
+            case "ol" -> hasClass(attributes, "references");
+            case "sup" -> hasClass(attributes, "reference");
+            case "div" -> hasClass(attributes, "reflist")
+                    || contains(attribute(attributes, "id"), "toc")
+                    || contains(attribute(attributes, "class"), "toc");
+            default -> false;
+        };
+    }
+
+    private static boolean hasClass(String attributes, String className) {
+        String classes = attribute(attributes, "class");
+        if (classes == null) return false;
+        for (String candidate : classes.split("\\s+")) {
+            if (candidate.equals(className)) return true;
+        }
+        return false;
+    }
+
+    private static boolean contains(String value, String part) {
+        return value != null && value.contains(part);
+    }
+
+    /**
+     * Returns the lower-cased value of attribute {@code name}, or null when the tag does not have it.
+     */
+    private static String attribute(String attributes, String name) {
+        String value = rawAttribute(attributes, name);
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the value of attribute {@code name} as written, or null when the tag does not have it.
+     */
+    private static String rawAttribute(String attributes, String name) {
+        String lower = attributes.toLowerCase(Locale.ROOT);
+        // Lower-casing a few characters changes the length; their values are read lower-cased.
+        String written = lower.length() == attributes.length() ? attributes : lower;
+        int at = 0;
+        while ((at = lower.indexOf(name, at)) >= 0) {
+            int afterName = at + name.length();
+            boolean wordStart = at == 0 || Character.isWhitespace(lower.charAt(at - 1));
+            int equals = skipSpaces(lower, afterName);
+            if (wordStart && equals < lower.length() && lower.charAt(equals) == '=') {
+                int valueStart = skipSpaces(lower, equals + 1);
+                if (valueStart >= lower.length()) return "";
+                char quote = lower.charAt(valueStart);
+                if (quote == '"' || quote == '\'') {
+                    int valueEnd = lower.indexOf(quote, valueStart + 1);
+                    return written.substring(valueStart + 1, valueEnd < 0 ? lower.length() : valueEnd);
+                }
+                int valueEnd = valueStart;
+                while (valueEnd < lower.length() && !Character.isWhitespace(lower.charAt(valueEnd))) valueEnd++;
+                return written.substring(valueStart, valueEnd);
+            }
+            at = afterName;
+        }
+        return null;
+    }
+
+    private static int skipSpaces(String value, int from) {
+        int i = from;
+        while (i < value.length() && Character.isWhitespace(value.charAt(i))) i++;
+        return i;
+    }
+
+    /**
+     * Drops bracketed markers and collapses the spaces they leave behind.
+     */
+    private static String finish(StringBuilder text) {
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '[') {
+                int close = text.indexOf("]", i + 1);
+                if (close >= 0) {
+                    i = close;
+                    continue;
+                }
+            }
+            if (c == ' ' && (result.isEmpty() || result.charAt(result.length() - 1) == ' ')) continue;
+            result.append(c);
+        }
+        int end = result.length();
+        while (end > 0 && result.charAt(end - 1) == ' ') end--;
+        return result.substring(0, end);
+    }
+}
@@ -0,0 +1,124 @@
+package com.mead.conditions.enrich;
+
+import com.mead.conditions.config.Deadline;
+import com.mead.conditions.exception.UpstreamException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Merges single-key lookups made at about the same time into one batch call. The first lookup
+ * opens a window and, once {@code windowMs} has passed or {@code maxKeys} keys have joined it,
+ * hands every key in the window to one call on {@code executor}. That call runs under the
+ * {@link Deadline} of an interactive lookup in the window, when there is one, so it queues as an
+ * interactive call. Each lookup gets the value for its key only, or
+ * {@code null} when the batch had none; when the batch call fails every lookup in the window fails with it.
+ */
+public class MicroBatchLoader<V> {
+
+    public static final String BATCH_SIZE = "mead.upstream.batch.size";
+
+    private final String source;
+    private final Function<List<String>, Map<String, V>> batchLoader;
+    private final Executor executor;
+    private final DistributionSummary batchSizes;
+    private Window<V> open;
+
+    public MicroBatchLoader(String source,
+                            Function<List<String>, Map<String, V>> batchLoader,
+                            Executor executor,
+                            MeterRegistry meterRegistry) {
+        this.source = source;
+        this.batchLoader = batchLoader;
+        this.executor = executor;
+        this.batchSizes = DistributionSummary.builder(BATCH_SIZE)
+                .description("Keys loaded by one batched upstream call")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    public V load(String key, long windowMs, int maxKeys) {
+        Deadline caller = Deadline.current();
+        Window<V> window;
+        CompletableFuture<V> result;
+        boolean leader;
+        synchronized (this) {
+            leader = open == null;
+            if (leader) open = new Window<>();
+            window = open;
+            result = window.pending.computeIfAbsent(key, k -> new CompletableFuture<>());
+            if (!caller.isBackground()) window.deadline = caller;
+            if (window.pending.size() >= Math.max(1, maxKeys)) {
+                open = null;
+                window.full.countDown();
+            }
+        }
+        if (leader) {
+            flush(window, windowMs);
+        }
+        return await(result);
+    }
+
+    private void flush(Window<V> window, long windowMs) {
+        try {
+            window.full.await(windowMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<String> keys;
+        Deadline deadline;
+        synchronized (this) {
+            if (open == window) open = null;
+            keys = new ArrayList<>(window.pending.keySet());
+            deadline = window.deadline;
+        }
+        batchSizes.record(keys.size());
+        try {
+            executor.execute(() -> deadline.call(() -> {
+                loadBatch(window, keys);
+                return null;
+            }));
+        } catch (RejectedExecutionException e) {
+            window.pending.values().forEach(future -> future.completeExceptionally(new UpstreamException(source, e)));
+        }
+    }
+
+    private void loadBatch(Window<V> window, List<String> keys) {
+        try {
+            Map<String, V> values = batchLoader.apply(keys);
+            window.pending.forEach((key, future) -> future.complete(values.get(key)));
+        } catch (RuntimeException e) {
+            window.pending.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private V await(CompletableFuture<V> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new UpstreamException(source, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamException(source + " call interrupted");
+        }
+    }
+
+    private static final class Window<V> {
+
+        private final Map<String, CompletableFuture<V>> pending = new LinkedHashMap<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+        private Deadline deadline = Deadline.NONE;
+    }
+}
@@ -0,0 +1,100 @@
+package com.mead.conditions.enrich;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Retries upstream calls that failed transiently, up to {@code max-attempts} in all, sleeping a
+ * random "full jitter" delay between 0 and {@code base-delay-ms * 2^(retry - 1)} (capped at
+ * {@code max-delay-ms}) before each retry. Retries to an endpoint are paid for out of its
+ * {@link TokenBudget}, which starts full; during an outage retries add at most
+ * {@code budget-ratio} to the endpoint's traffic once it is spent. When the call is given up the
+ * last failure is rethrown.
+ */
+@Component
+public class RequestRetrier {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestRetrier.class);
+
+    public static final String RETRIES = "mead.upstream.retries";
+    public static final String THROTTLED = "mead.upstream.retries.throttled";
+
+    @Value("${mead.external.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${mead.external.retry.base-delay-ms:100}")
+    private long baseDelayMs;
+
+    @Value("${mead.external.retry.max-delay-ms:2000}")
+    private long maxDelayMs;
+
+    @Value("${mead.external.retry.budget-ratio:0.1}")
+    private double budgetRatio;
+
+    @Value("${mead.external.retry.budget-max-tokens:10}")
+    private int budgetMaxTokens;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TokenBudget> budgetsByEndpoint = new ConcurrentHashMap<>();
+
+    public RequestRetrier(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs {@code attempt}, retrying it while it fails with an exception {@code retryable} accepts.
+     */
+    public <T> T call(String source, String endpoint, Predicate<RuntimeException> retryable, Supplier<T> attempt) {
+        TokenBudget budget = budgetsByEndpoint.computeIfAbsent(endpoint,
+                key -> new TokenBudget(budgetRatio, budgetMaxTokens, budgetMaxTokens));
+        budget.deposit();
+        for (int attempts = 1; ; attempts++) {
+            try {
+                return attempt.get();
+            } catch (RuntimeException e) {
+                if (attempts >= maxAttempts || !retryable.test(e)) throw e;
+                long delayMs = backoffMs(attempts);
+                if (!budget.tryWithdraw()) {
+                    counter(THROTTLED, "Upstream retries skipped because the endpoint's retry budget was spent", source)
+                            .increment();
+                    throw e;
+                }
+                counter(RETRIES, "Upstream calls retried after a transient failure", source).increment();
+                log.debug("{} call failed ({}), retry {} in {} ms", source, e.getMessage(), attempts, delayMs);
+                if (!pause(delayMs)) throw e;
+            }
+        }
+    }
+
+    private long backoffMs(int retry) {
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(retry - 1, 20));
+        return ThreadLocalRandom.current().nextLong(Math.max(0, ceiling) + 1);
+    }
+
+    private static boolean pause(long delayMs) {
+        try {
+            Thread.sleep(delayMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Counter counter(String name, String description, String source) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
@@ -1,17 +1,24 @@
 package com.mead.conditions.enrich;
 
+import com.mead.conditions.exception.UpstreamException;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.sparql.engine.http.QueryExceptionHTTP;
 import org.apache.jena.sparql.exec.http.QueryExecutionHTTP;
 import org.apache.jena.sparql.exec.http.QueryExecutionHTTPBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.net.http.HttpClient;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 @Component
@@ -22,6 +29,35 @@ public class SparqlHttpClient {
     public static final String ACCEPT_SPARQL_RESULTS_JSON = "application/sparql-results+json";
     public static final String HEADER_USER_AGENT = "User-Agent";
 
+    private final CompressedTransfer compressedTransfer;
+    private final UpstreamTransport upstreamTransport;
+    private final CircuitBreakers circuitBreakers;
+    private final RequestHedger requestHedger;
+    private final RequestRetrier requestRetrier;
+    private final AdaptiveTimeouts adaptiveTimeouts;
+    private final Map<String, HttpClient> clientsBySource = new ConcurrentHashMap<>();
+
+    public SparqlHttpClient(CompressedTransfer compressedTransfer,
+                            UpstreamTransport upstreamTransport,
+                            CircuitBreakers circuitBreakers,
+                            RequestHedger requestHedger,
+                            RequestRetrier requestRetrier,
+                            AdaptiveTimeouts adaptiveTimeouts) {
+        this.compressedTransfer = compressedTransfer;
+        this.upstreamTransport = upstreamTransport;
+        this.circuitBreakers = circuitBreakers;
+        this.requestHedger = requestHedger;
+        this.requestRetrier = requestRetrier;
+        this.adaptiveTimeouts = adaptiveTimeouts;
+    }
+
+    /**
+     * Runs a SELECT and returns the non-blank values bound to {@code varName}. Transient failures
+     * are retried; an empty list always means the query answered with no values.
+     *
+     * @throws UpstreamException when the endpoint cannot be reached, the query fails or the
+     *                           source's circuit is open
+     */
     public List<String> selectStrings(SelectRequest request) {
         return runSelect(request, row -> readNodeAsString(row.get(request.varName())));
     }
@@ -31,49 +67,134 @@ public class SparqlHttpClient {
         return values.isEmpty() ? null : values.get(0);
     }
 
+    /**
+     * Runs a SELECT and returns every row as a map of bound variable names to values,
+     * so one query can carry several fields. Unbound and blank values are left out.
+     */
+    public List<Map<String, String>> selectRows(SelectRequest request) {
+        return runSelect(request, SparqlHttpClient::readRow);
+    }
+
+    /**
+     * A SELECT against {@code endpoint}; a slow one may be hedged against {@code mirrorEndpoint},
+     * which may be blank.
+     */
     public record SelectRequest(
             String endpoint,
+            String mirrorEndpoint,
             long timeoutMs,
             Map<String, String> headers,
             String sparql,
             String varName,
             String sourceTag
-    ) {}
+    ) {
+
+        /**
+         * Queries binding one variable are told apart by it; multi-variable (batch) queries share one kind.
+         */
+        public String queryType() {
+            return varName == null ? "rows" : varName;
+        }
+    }
 
-    private List<String> runSelect(SelectRequest request, Function<QuerySolution, String> rowMapper) {
-        List<String> results = new ArrayList<>();
+    private <T> List<T> runSelect(SelectRequest request, Function<QuerySolution, T> rowMapper) {
+        CircuitBreaker circuitBreaker = circuitBreakers.forSource(request.sourceTag());
+        if (!circuitBreaker.tryAcquire()) throw circuitBreaker.rejection();
 
         try {
-            QueryExecutionHTTPBuilder builder = (QueryExecutionHTTPBuilder) QueryExecutionHTTPBuilder
-                    .service(request.endpoint())
-                    .query(request.sparql())
-                    .acceptHeader(ACCEPT_SPARQL_RESULTS_JSON)
-                    .timeout(request.timeoutMs());
-
-            Map<String, String> headers = safeHeaders(request.headers());
-            headers.forEach(builder::httpHeader);
-
-            try (QueryExecutionHTTP queryExecution = builder.build()) {
-                ResultSet resultSet = queryExecution.execSelect();
-                while (resultSet.hasNext()) {
-                    String value = rowMapper.apply(resultSet.next());
-                    if (value != null && !value.isBlank()) {
-                        results.add(value);
-                    }
-                }
-            }
+            List<T> results = requestRetrier.call(request.sourceTag(), request.endpoint(), SparqlHttpClient::isTransient,
+                    () -> requestHedger.call(request.sourceTag(), request.queryType(), request.endpoint(), request.mirrorEndpoint(),
+                            endpoint -> execSelect(request, endpoint, rowMapper)));
+            circuitBreaker.onSuccess();
+            return results;
 
         } catch (Exception e) {
+            circuitBreaker.onFailure();
             log.warn("{} query failed: {}", request.sourceTag(), e.getMessage());
+            throw new UpstreamException(request.sourceTag(), e);
         }
+    }
 
+    private <T> List<T> execSelect(SelectRequest request, String endpoint, Function<QuerySolution, T> rowMapper) {
+        List<T> results = new ArrayList<>();
+        long timeoutMs = adaptiveTimeouts.timeoutMs(request.sourceTag(), request.queryType(), request.timeoutMs());
+        QueryExecutionHTTPBuilder builder = (QueryExecutionHTTPBuilder) QueryExecutionHTTPBuilder
+                .service(endpoint)
+                .query(request.sparql())
+                .acceptHeader(ACCEPT_SPARQL_RESULTS_JSON)
+                .httpHeader(CompressedTransfer.HEADER_ACCEPT_ENCODING, CompressedTransfer.SPARQL_ACCEPT_ENCODING)
+                .httpClient(clientFor(request.sourceTag(), endpoint))
+                .timeout(timeoutMs);
+
+        Map<String, String> headers = safeHeaders(request.headers());
+        headers.forEach(builder::httpHeader);
+
+        long startedAt = System.nanoTime();
+        try (QueryExecutionHTTP queryExecution = builder.build()) {
+            ResultSet resultSet = queryExecution.execSelect();
+            while (resultSet.hasNext()) {
+                T value = rowMapper.apply(resultSet.next());
+                if (!isEmpty(value)) {
+                    results.add(value);
+                }
+            }
+        } catch (RuntimeException e) {
+            adaptiveTimeouts.record(request.sourceTag(), request.queryType(), startedAt, e);
+            throw e;
+        }
+        adaptiveTimeouts.record(request.sourceTag(), request.queryType(), startedAt, null);
         return results;
     }
 
+    /**
+     * The shared client for the endpoint's host, with the responses it receives counted under
+     * the request's source.
+     */
+    private HttpClient clientFor(String sourceTag, String endpoint) {
+        return clientsBySource.computeIfAbsent(sourceTag + " " + endpoint,
+                key -> compressedTransfer.metered(sourceTag, upstreamTransport.clientFor(endpoint)));
+    }
+
+    /**
+     * Failures worth retrying: the endpoint could not be reached, was overloaded or failed on its
+     * side. A rejected query fails the same way every time.
+     */
+    static boolean isTransient(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof QueryExceptionHTTP http) {
+                int status = http.getStatusCode();
+                if (status == QueryExceptionHTTP.NoServer || status == 429 || status >= 500) return true;
+                if (status != QueryExceptionHTTP.noStatusCode) return false;
+            }
+            if (cause instanceof IOException) return true;
+        }
+        return false;
+    }
+
     private static Map<String, String> safeHeaders(Map<String, String> headers) {
         return headers == null ? Map.of() : headers;
     }
 
+    private static boolean isEmpty(Object value) {
+        if (value == null) return true;
+        if (value instanceof String text) return text.isBlank();
+        if (value instanceof Map<?, ?> map) return map.isEmpty();
+        return false;
+    }
+
+    private static Map<String, String> readRow(QuerySolution row) {
+        Map<String, String> values = new LinkedHashMap<>();
+        Iterator<String> varNames = row.varNames();
+        while (varNames.hasNext()) {
+            String varName = varNames.next();
+            String value = readNodeAsString(row.get(varName));
+            if (value != null && !value.isBlank()) {
+                values.put(varName, value);
+            }
+        }
+        return values;
+    }
+
     private static String readNodeAsString(RDFNode node) {
         if (node == null) return null;
         if (node.isLiteral()) return node.asLiteral().getString();
@@ -0,0 +1,309 @@
+package com.mead.conditions.enrich;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mead.conditions.config.Deadline;
+import com.mead.conditions.exception.UpstreamException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import static com.mead.conditions.config.CachingConfig.WIKIDOC_MISSING_TITLES;
+import static com.mead.conditions.config.CachingConfig.WIKIDOC_TITLES;
+
+/**
+ * Resolves WikiDoc page titles through redirects with {@code action=query&redirects=1}, up to
+ * {@code title-batch-size} titles per request. Existing pages are cached under their requested
+ * title, missing pages in a separate negative cache. Lookups are single-flight per title.
+ */
+@Component
+public class TitleResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(TitleResolver.class);
+
+    private static final int MAX_REDIRECT_HOPS = 5;
+
+    /**
+     * Where a requested title leads; {@code title} is null when the page does not exist.
+     */
+    public record ResolvedTitle(String title, boolean exists) implements Serializable {}
+
+    @Value("${mead.external.wikidoc.api-url:https://www.wikidoc.org/api.php}")
+    private String apiUrl;
+
+    @Value("${mead.external.wikidoc.timeout-ms:8000}")
+    private long timeoutMs;
+
+    @Value("${mead.external.wikidoc.user-agent:MeAd/0.0.1}")
+    private String userAgent;
+
+    @Value("${mead.external.wikidoc.title-batch-size:50}")
+    private int batchSize;
+
+    private HttpClient httpClient;
+    private Executor bodyExecutor;
+    private CircuitBreaker circuitBreaker;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CacheManager cacheManager;
+    private final CompressedTransfer compressedTransfer;
+    private final UpstreamTransport upstreamTransport;
+    private final CircuitBreakers circuitBreakers;
+    private final AdaptiveTimeouts adaptiveTimeouts;
+    private final Map<String, CompletableFuture<ResolvedTitle>> loading = new ConcurrentHashMap<>();
+
+    public TitleResolver(CacheManager cacheManager,
+                         CompressedTransfer compressedTransfer,
+                         UpstreamTransport upstreamTransport,
+                         CircuitBreakers circuitBreakers,
+                         AdaptiveTimeouts adaptiveTimeouts) {
+        this.cacheManager = cacheManager;
+        this.compressedTransfer = compressedTransfer;
+        this.upstreamTransport = upstreamTransport;
+        this.circuitBreakers = circuitBreakers;
+        this.adaptiveTimeouts = adaptiveTimeouts;
+    }
+
+    @PostConstruct
+    void init() {
+        httpClient = upstreamTransport.clientFor(apiUrl);
+        bodyExecutor = upstreamTransport.executor();
+        circuitBreaker = circuitBreakers.forSource("WikiDoc");
+    }
+
+    /**
+     * Completes with the resolution of {@code title}, or null when it could not be looked up.
+     */
+    public CompletableFuture<ResolvedTitle> resolve(String title, Deadline deadline) {
+        return resolveAll(List.of(title), deadline).thenApply(resolved -> resolved.get(title));
+    }
+
+    /**
+     * Resolves all titles, looking up the uncached ones in as few requests as possible. Titles whose
+     * lookup got no usable answer are left out of the result and are not cached.
+     */
+    public CompletableFuture<Map<String, ResolvedTitle>> resolveAll(Collection<String> titles, Deadline deadline) {
+        Map<String, ResolvedTitle> resolved = new LinkedHashMap<>();
+        Map<String, CompletableFuture<ResolvedTitle>> owned = new LinkedHashMap<>();
+        Map<String, CompletableFuture<ResolvedTitle>> awaited = new LinkedHashMap<>();
+
+        for (String title : new LinkedHashSet<>(titles)) {
+            if (title == null || title.isBlank()) continue;
+            ResolvedTitle cached = cached(title);
+            if (cached != null) {
+                resolved.put(title, cached);
+                continue;
+            }
+            CompletableFuture<ResolvedTitle> flight = new CompletableFuture<>();
+            CompletableFuture<ResolvedTitle> inFlight = loading.putIfAbsent(title, flight);
+            if (inFlight != null) {
+                awaited.put(title, inFlight);
+                continue;
+            }
+            // The previous lookup may have finished between the miss and claiming the title.
+            ResolvedTitle resolvedMeanwhile = cached(title);
+            if (resolvedMeanwhile != null) {
+                loading.remove(title, flight);
+                flight.complete(resolvedMeanwhile);
+                resolved.put(title, resolvedMeanwhile);
+            } else {
+                owned.put(title, flight);
+                awaited.put(title, flight);
+            }
+        }
+
+        if (!owned.isEmpty()) {
+            lookUp(owned, deadline);
+        }
+        return CompletableFuture.allOf(awaited.values().toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    awaited.forEach((title, flight) -> {
+                        ResolvedTitle value = flight.join();
+                        if (value != null) resolved.put(title, value);
+                    });
+                    return resolved;
+                });
+    }
+
+    private void lookUp(Map<String, CompletableFuture<ResolvedTitle>> owned, Deadline deadline) {
+        for (List<String> batch : partition(List.copyOf(owned.keySet()), batchSize)) {
+            queryTitles(batch, deadline).whenComplete((found, error) -> {
+                for (String title : batch) {
+                    CompletableFuture<ResolvedTitle> flight = owned.get(title);
+                    ResolvedTitle value = error == null ? found.get(title) : null;
+                    if (value != null) store(title, value);
+                    loading.remove(title, flight);
+                    if (error == null) {
+                        flight.complete(value);
+                    } else {
+                        flight.completeExceptionally(error);
+                    }
+                }
+            });
+        }
+    }
+
+    private CompletableFuture<Map<String, ResolvedTitle>> queryTitles(List<String> titles, Deadline deadline) {
+        return sendRequest(buildQueryUrl(titles), "titles", deadline).thenApply(response -> readTitles(titles, response));
+    }
+
+    private Map<String, ResolvedTitle> readTitles(List<String> titles, JsonNode response) {
+        if (response == null) return Map.of();
+        JsonNode query = response.path("query");
+        Map<String, String> normalized = mappings(query.path("normalized"));
+        Map<String, String> redirects = mappings(query.path("redirects"));
+        Map<String, JsonNode> pages = new HashMap<>();
+        for (JsonNode page : query.path("pages")) {
+            String title = page.path("title").asText("");
+            if (!title.isEmpty()) pages.put(title, page);
+        }
+
+        Map<String, ResolvedTitle> found = new HashMap<>();
+        for (String title : titles) {
+            String current = normalized.getOrDefault(title, title);
+            for (int hop = 0; hop < MAX_REDIRECT_HOPS && redirects.containsKey(current); hop++) {
+                current = redirects.get(current);
+            }
+            JsonNode page = pages.get(current);
+            if (page == null) continue;
+            boolean exists = !page.has("missing") && !page.has("invalid");
+            found.put(title, new ResolvedTitle(exists ? current.replace(' ', '_') : null, exists));
+        }
+        return found;
+    }
+
+    private static Map<String, String> mappings(JsonNode entries) {
+        Map<String, String> mappings = new HashMap<>();
+        for (JsonNode entry : entries) {
+            String from = entry.path("from").asText("");
+            String to = entry.path("to").asText("");
+            if (!from.isEmpty() && !to.isEmpty()) mappings.put(from, to);
+        }
+        return mappings;
+    }
+
+    private ResolvedTitle cached(String title) {
+        ResolvedTitle found = get(WIKIDOC_TITLES, title);
+        return found != null ? found : get(WIKIDOC_MISSING_TITLES, title);
+    }
+
+    private ResolvedTitle get(String cacheName, String title) {
+        Cache cache = cacheManager.getCache(cacheName);
+        return cache == null ? null : cache.get(title, ResolvedTitle.class);
+    }
+
+    private void store(String title, ResolvedTitle value) {
+        Cache cache = cacheManager.getCache(value.exists() ? WIKIDOC_TITLES : WIKIDOC_MISSING_TITLES);
+        if (cache != null) cache.put(title, value);
+    }
+
+    private static List<List<String>> partition(List<String> values, int size) {
+        int step = Math.max(1, size);
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += step) {
+            batches.add(values.subList(i, Math.min(values.size(), i + step)));
+        }
+        return batches;
+    }
+
+    private String buildQueryUrl(List<String> titles) {
+        String encodedTitles = URLEncoder.encode(String.join("|", titles), StandardCharsets.UTF_8);
+        String base = apiUrl.endsWith("?") ? apiUrl : apiUrl + "?";
+        return new StringBuilder(base)
+                .append("action=query")
+                .append("&titles=").append(encodedTitles)
+                .append("&redirects=1")
+                .append("&format=json")
+                .toString();
+    }
+
+    /**
+     * Sends a GET without blocking the caller and reads the decompressed body as a JSON tree on a
+     * virtual thread. Completes with null for non-200 answers and for bodies that are not JSON,
+     * exceptionally with an {@link UpstreamException} when the call failed
+     * or the circuit is open.
+     */
+    private CompletableFuture<JsonNode> sendRequest(String url, String queryType, Deadline deadline) {
+        long limitMs = adaptiveTimeouts.timeoutMs("WikiDoc", queryType, timeoutMs);
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder()
+                    .uri(URI.create(url))
+                    .timeout(Duration.ofMillis(limitMs))
+                    .header("User-Agent", userAgent)
+                    .header("Accept", "application/json")
+                    .header(CompressedTransfer.HEADER_ACCEPT_ENCODING, compressedTransfer.acceptEncoding())
+                    .GET()
+                    .build();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpResponse.BodyHandler<InputStream> bodyHandler =
+                compressedTransfer.metered("WikiDoc", HttpResponse.BodyHandlers.ofInputStream());
+        long startedAt = System.nanoTime();
+        // Sent with the deadline current, so the transport queues it by the caller's priority.
+        return circuitBreaker.callAsync(() -> deadline.call(() -> httpClient.sendAsync(request, bodyHandler))
+                .whenComplete((response, error) -> adaptiveTimeouts.record("WikiDoc", queryType, startedAt, error))
+                .handleAsync((response, error) -> {
+                    if (error != null) throw failure(error);
+                    return readBody(url, response);
+                }, bodyExecutor));
+    }
+
+    private JsonNode readBody(String url, HttpResponse<InputStream> response) {
+        try (InputStream body = response.body()) {
+            if (isServerFailure(response.statusCode())) {
+                throw new UpstreamException("WikiDoc responded " + response.statusCode() + " for " + url);
+            }
+            if (response.statusCode() != 200) {
+                log.debug("WikiDoc response {} for {}", response.statusCode(), url);
+                return null;
+            }
+            try {
+                return objectMapper.readTree(compressedTransfer.decode(response));
+            } catch (JsonProcessingException e) {
+                log.debug("WikiDoc title lookup for {} could not be read: {}", url, e.getMessage());
+                return null;
+            }
+        } catch (IOException e) {
+            throw failure(e);
+        }
+    }
+
+    private static UpstreamException failure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof UpstreamException upstream) return upstream;
+        log.warn("WikiDoc request failed: {}", cause.getMessage());
+        return new UpstreamException("WikiDoc", cause);
+    }
+
+    private static boolean isServerFailure(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
+    }
+}
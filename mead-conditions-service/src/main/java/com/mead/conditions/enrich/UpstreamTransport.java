@@ -0,0 +1,256 @@
+package com.mead.conditions.enrich;
+
+import com.mead.conditions.config.Deadline;
+import com.mead.conditions.enrich.ConcurrencyLimiter.Limits;
+import com.mead.conditions.enrich.ConcurrencyLimiter.Priority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * One shared {@link HttpClient} per upstream host, so every SPARQL and MediaWiki call to a host
+ * reuses the same connection pool: HTTP/1.1 connections are kept alive between calls and HTTP/2
+ * streams are multiplexed over one connection, instead of each caller paying its own TLS handshake.
+ * Response bodies are handed to a shared virtual-thread executor. Each host's requests go through
+ * a {@link ConcurrencyLimiter}, prioritised by the {@link Deadline} current when they are sent.
+ * An interactive request waits for a slot no longer than its own timeout, the connect timeout when
+ * it has none; a background request waits as long as it takes.
+ *
+ * <p>The JDK client does not expose its pool, so per host the transport reports the requests still
+ * waiting for a response ({@value #IN_FLIGHT}) and the answered requests by negotiated protocol
+ * ({@value #REQUESTS}); requests waiting for a slot are counted by the limiter.
+ */
+@Component
+public class UpstreamTransport {
+
+    public static final String REQUESTS = "mead.upstream.http.requests";
+    public static final String IN_FLIGHT = "mead.upstream.http.in.flight";
+
+    @Value("${mead.external.http.connect-timeout-ms:8000}")
+    private long connectTimeoutMs;
+
+    @Value("${mead.external.http.version:HTTP_2}")
+    private HttpClient.Version version;
+
+    @Value("${mead.external.http.concurrency.initial-limit:8}")
+    private int initialLimit;
+
+    @Value("${mead.external.http.concurrency.min-limit:1}")
+    private int minLimit;
+
+    @Value("${mead.external.http.concurrency.max-limit:64}")
+    private int maxLimit;
+
+    @Value("${mead.external.http.concurrency.backoff-ratio:0.5}")
+    private double backoffRatio;
+
+    @Value("${mead.external.http.concurrency.max-retry-after-ms:300000}")
+    private long maxRetryAfterMs;
+
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("mead-upstream-scheduler").daemon().factory());
+    private final Map<String, HttpClient> clientsByHost = new ConcurrentHashMap<>();
+
+    public UpstreamTransport(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * The shared client for the scheme, host and port of {@code url}.
+     */
+    public HttpClient clientFor(String url) {
+        URI uri = URI.create(url);
+        String origin = uri.getScheme() + "://" + uri.getRawAuthority();
+        return clientsByHost.computeIfAbsent(origin, key -> newClient(uri.getHost()));
+    }
+
+    /**
+     * Executor for reading and parsing response bodies off the client's selector thread.
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    @PreDestroy
+    void close() {
+        clientsByHost.values().forEach(HttpClient::shutdownNow);
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    private HttpClient newClient(String host) {
+        HttpClient client = HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+        AtomicInteger inFlight = new AtomicInteger();
+        Gauge.builder(IN_FLIGHT, inFlight, AtomicInteger::get)
+                .description("Upstream requests waiting for a response")
+                .tag("host", host)
+                .register(meterRegistry);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(host,
+                new Limits(initialLimit, minLimit, maxLimit, backoffRatio, Duration.ofMillis(maxRetryAfterMs)),
+                scheduler, meterRegistry);
+        return new TrackedHttpClient(client, host, inFlight, limiter);
+    }
+
+    private Counter requests(String host, HttpClient.Version protocol) {
+        return Counter.builder(REQUESTS)
+                .description("Upstream requests answered, by negotiated protocol")
+                .tag("host", host)
+                .tag("version", protocol.name())
+                .register(meterRegistry);
+    }
+
+    private final class TrackedHttpClient extends ForwardingHttpClient {
+
+        private final String host;
+        private final AtomicInteger inFlight;
+        private final ConcurrencyLimiter limiter;
+
+        private TrackedHttpClient(HttpClient delegate, String host, AtomicInteger inFlight, ConcurrencyLimiter limiter) {
+            super(delegate);
+            this.host = host;
+            this.inFlight = inFlight;
+            this.limiter = limiter;
+        }
+
+        @Override
+        public <T> HttpResponse<T> send(HttpRequest request, BodyHandler<T> handler)
+                throws IOException, InterruptedException {
+            awaitPermit(acquire(request));
+            inFlight.incrementAndGet();
+            try {
+                HttpResponse<T> response = delegate.send(request, handler);
+                limiter.release(response);
+                requests(host, response.version()).increment();
+                return response;
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                limiter.release(e);
+                throw e;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, BodyHandler<T> handler) {
+            return sendWhenPermitted(request, () -> delegate.sendAsync(request, handler));
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                                BodyHandler<T> handler,
+                                                                HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+            return sendWhenPermitted(request, () -> delegate.sendAsync(request, handler, pushPromiseHandler));
+        }
+
+        /**
+         * Sends once the limiter grants a slot. Callers such as Jena cancel the returned future on
+         * abort: a request cancelled while waiting leaves the line, one cancelled once granted gives
+         * its slot back unused, and one already sent is cancelled in the client.
+         */
+        private <T> CompletableFuture<HttpResponse<T>> sendWhenPermitted(
+                HttpRequest request, Supplier<CompletableFuture<HttpResponse<T>>> send) {
+            CompletableFuture<Void> permit = acquire(request);
+            CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+            permit.whenComplete((granted, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                    return;
+                }
+                if (result.isDone()) {
+                    limiter.releaseUnused();
+                    return;
+                }
+                CompletableFuture<HttpResponse<T>> response;
+                try {
+                    response = track(send);
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                result.whenComplete((answered, failure) -> {
+                    if (result.isCancelled()) response.cancel(true);
+                });
+                response.whenComplete((answered, failure) -> {
+                    if (failure != null) {
+                        result.completeExceptionally(failure);
+                    } else {
+                        result.complete(answered);
+                    }
+                });
+            });
+            result.whenComplete((answered, error) -> {
+                if (result.isCancelled()) permit.cancel(false);
+            });
+            return result;
+        }
+
+        private <T> CompletableFuture<HttpResponse<T>> track(Supplier<CompletableFuture<HttpResponse<T>>> send) {
+            inFlight.incrementAndGet();
+            CompletableFuture<HttpResponse<T>> response;
+            try {
+                response = send.get();
+            } catch (RuntimeException e) {
+                inFlight.decrementAndGet();
+                limiter.releaseUnused();
+                throw e;
+            }
+            return response.whenComplete((answered, error) -> {
+                inFlight.decrementAndGet();
+                if (answered != null) {
+                    limiter.release(answered);
+                    requests(host, answered.version()).increment();
+                } else {
+                    limiter.release(error);
+                }
+            });
+        }
+
+        private CompletableFuture<Void> acquire(HttpRequest request) {
+            Priority priority = ConcurrencyLimiter.priorityOf(Deadline.current());
+            long maxWaitMs = priority == Priority.BACKGROUND
+                    ? -1 : request.timeout().map(Duration::toMillis).orElse(connectTimeoutMs);
+            return limiter.acquire(priority, maxWaitMs);
+        }
+
+        private void awaitPermit(CompletableFuture<Void> permit) throws IOException, InterruptedException {
+            try {
+                permit.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException cause) throw cause;
+                throw new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                // A permit granted while this thread was interrupted is handed back unused.
+                if (!permit.cancel(false) && !permit.isCompletedExceptionally()) limiter.releaseUnused();
+                throw e;
+            }
+        }
+    }
+}
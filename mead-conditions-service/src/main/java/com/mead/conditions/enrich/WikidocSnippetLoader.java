@@ -1,14 +1,29 @@
 package com.mead.conditions.enrich;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.mead.conditions.cache.AsyncCacheLoader;
+import com.mead.conditions.config.Deadline;
+import com.mead.conditions.enrich.HtmlTextExtractor.Block;
+import com.mead.conditions.enrich.HtmlTextExtractor.Heading;
+import com.mead.conditions.enrich.HtmlTextExtractor.Kind;
+import com.mead.conditions.enrich.TitleResolver.ResolvedTitle;
+import com.mead.conditions.exception.UpstreamException;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
@@ -17,28 +32,35 @@ import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import static com.mead.conditions.config.CachingConfig.WIKIDOC_CAUSES;
+import static com.mead.conditions.config.CachingConfig.WIKIDOC_OVERVIEW;
+import static com.mead.conditions.config.CachingConfig.WIKIDOC_PAGES;
+import static com.mead.conditions.config.CachingConfig.WIKIDOC_RISK_FACTORS;
+import static com.mead.conditions.config.CachingConfig.WIKIDOC_SYMPTOMS;
+
+/**
+ * Loads overview, causes, risk factors and symptoms of a condition from WikiDoc. Requests are sent
+ * with {@link HttpClient#sendAsync} and chained as future stages, so no caller thread waits on the
+ * network; response bodies are read on virtual threads. Results are cached per condition under the
+ * same keys {@code @Cacheable} used.
+ */
 @Component
 public class WikidocSnippetLoader {
 
     private static final Logger log = LoggerFactory.getLogger(WikidocSnippetLoader.class);
 
-    private static final Pattern PARAGRAPH_PATTERN = Pattern.compile("<p>(.*?)</p>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    private static final Pattern LIST_ITEM_PATTERN = Pattern.compile("<li[^>]*>(.*?)</li>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    private static final Pattern STYLE_BLOCK_PATTERN = Pattern.compile("<style[^>]*>.*?</style>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    private static final Pattern SCRIPT_BLOCK_PATTERN = Pattern.compile("<script[^>]*>.*?</script>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    private static final Pattern TABLE_BLOCK_PATTERN = Pattern.compile("<table[^>]*>.*?</table>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    private static final Pattern REFERENCE_BLOCK_PATTERN = Pattern.compile("<ol[^>]*class=\"references\"[^>]*>.*?</ol>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    private static final Pattern REFLIST_BLOCK_PATTERN = Pattern.compile("<div[^>]*class=\"reflist\"[^>]*>.*?</div>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    private static final Pattern SUP_REFERENCE_PATTERN = Pattern.compile("<sup[^>]*class=\"reference\"[^>]*>.*?</sup>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    private static final Pattern TOC_BLOCK_PATTERN = Pattern.compile("<div[^>]*(id|class)=\"[^\"]*toc[^\"]*\"[^>]*>.*?</div>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    private static final Pattern NUMERIC_ENTITY_PATTERN = Pattern.compile("&#(\\d+);");
-    private static final Pattern HEX_ENTITY_PATTERN = Pattern.compile("&#x([0-9a-fA-F]+);");
+    private static final List<String> OVERVIEW_HEADINGS = List.of("Overview");
+    private static final List<String> PAGE_SUFFIXES = List.of("overview", "causes", "risk_factors");
 
     @Value("${mead.external.wikidoc.api-url:https://www.wikidoc.org/api.php}")
     private String apiUrl;
@@ -49,57 +71,288 @@ public class WikidocSnippetLoader {
     @Value("${mead.external.wikidoc.user-agent:MeAd/0.0.1}")
     private String userAgent;
 
+    @Value("${mead.external.wikidoc.single-fetch:true}")
+    private boolean singleFetch;
+
     private HttpClient httpClient;
+    private Executor bodyExecutor;
+    private CircuitBreaker circuitBreaker;
+    private AsyncCacheLoader overviewCache;
+    private AsyncCacheLoader causesCache;
+    private AsyncCacheLoader riskFactorsCache;
+    private AsyncCacheLoader symptomsCache;
+    private AsyncCacheLoader pageCache;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CacheManager cacheManager;
+    private final TitleResolver titleResolver;
+    private final CompressedTransfer compressedTransfer;
+    private final UpstreamTransport upstreamTransport;
+    private final CircuitBreakers circuitBreakers;
+    private final AdaptiveTimeouts adaptiveTimeouts;
+
+    /**
+     * A WikiDoc page parsed from a single {@code prop=text|sections} fetch. {@code title} is the page
+     * title after redirects; sections are in page order and hold the items extracted from them.
+     */
+    public record WikidocPage(String title, String overview, List<PageSection> sections) implements Serializable {}
+
+    public record PageSection(String heading, List<String> items) implements Serializable {}
+
+    private record SectionBounds(String heading, int level, int headingStart, int contentStart) {}
+
+    /**
+     * The fields of an {@code action=parse} response the loader uses; anything else is skipped unread.
+     */
+    private record ParseResponse(String title, String html, JsonNode sections) {}
+
+    @FunctionalInterface
+    private interface BodyReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    public WikidocSnippetLoader(CacheManager cacheManager,
+                                TitleResolver titleResolver,
+                                CompressedTransfer compressedTransfer,
+                                UpstreamTransport upstreamTransport,
+                                CircuitBreakers circuitBreakers,
+                                AdaptiveTimeouts adaptiveTimeouts) {
+        this.cacheManager = cacheManager;
+        this.titleResolver = titleResolver;
+        this.compressedTransfer = compressedTransfer;
+        this.upstreamTransport = upstreamTransport;
+        this.circuitBreakers = circuitBreakers;
+        this.adaptiveTimeouts = adaptiveTimeouts;
+    }
 
     @PostConstruct
     void init() {
-        httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofMillis(timeoutMs))
-                .build();
+        httpClient = upstreamTransport.clientFor(apiUrl);
+        bodyExecutor = upstreamTransport.executor();
+        circuitBreaker = circuitBreakers.forSource("WikiDoc");
+        overviewCache = new AsyncCacheLoader(cacheManager.getCache(WIKIDOC_OVERVIEW));
+        causesCache = new AsyncCacheLoader(cacheManager.getCache(WIKIDOC_CAUSES));
+        riskFactorsCache = new AsyncCacheLoader(cacheManager.getCache(WIKIDOC_RISK_FACTORS));
+        symptomsCache = new AsyncCacheLoader(cacheManager.getCache(WIKIDOC_SYMPTOMS));
+        pageCache = new AsyncCacheLoader(cacheManager.getCache(WIKIDOC_PAGES));
+    }
+
+    public CompletableFuture<String> fetchOverview(String conditionId, String conditionName) {
+        Deadline deadline = Deadline.current();
+        return overviewCache.get(new SimpleKey(conditionId, conditionName), () -> singleFetch
+                ? resolvePageTitles(conditionId, conditionName, deadline).thenCompose(baseTitle ->
+                        loadPage(buildSuffixedTitle(baseTitle, "overview"), deadline).thenCompose(page ->
+                                page != null && page.overview() != null
+                                        ? CompletableFuture.completedFuture(page.overview())
+                                        : loadPage(baseTitle, deadline).thenApply(base -> base != null ? base.overview() : null)))
+                : resolveBaseTitle(conditionId, conditionName, deadline).thenCompose(baseTitle ->
+                        extractOverviewFromPage(buildSuffixedTitle(baseTitle, "overview"), deadline).thenCompose(overview ->
+                                overview != null
+                                        ? CompletableFuture.completedFuture(overview)
+                                        : extractOverviewFromPage(baseTitle, deadline))));
+    }
+
+    public CompletableFuture<List<String>> fetchCauses(String conditionId, String conditionName) {
+        Deadline deadline = Deadline.current();
+        return causesCache.get(new SimpleKey(conditionId, conditionName), () -> fetchSectionItems(
+                conditionId, conditionName, "causes",
+                List.of("Causes", "Etiology", "Overview"), List.of("Causes", "Etiology"), deadline));
+    }
+
+    public CompletableFuture<List<String>> fetchRiskFactors(String conditionId, String conditionName) {
+        Deadline deadline = Deadline.current();
+        return riskFactorsCache.get(new SimpleKey(conditionId, conditionName), () -> fetchSectionItems(
+                conditionId, conditionName, "risk_factors",
+                List.of("Risk factors", "Risk Factors", "Overview"), List.of("Risk factors", "Risk Factors"), deadline));
+    }
+
+    public CompletableFuture<List<String>> fetchSymptoms(String conditionId, String conditionName) {
+        Deadline deadline = Deadline.current();
+        List<String> headings = List.of("Signs and symptoms", "Symptoms");
+        return symptomsCache.get(new SimpleKey(conditionId, conditionName), () -> singleFetch
+                ? resolvePageTitles(conditionId, conditionName, deadline)
+                        .thenCompose(baseTitle -> loadPage(baseTitle, deadline))
+                        .thenApply(basePage -> sectionItems(basePage, headings))
+                : resolveBaseTitle(conditionId, conditionName, deadline)
+                        .thenCompose(pageTitle -> extractListFromSection(pageTitle, headings, deadline)));
+    }
+
+    /**
+     * Items of the first matching section of the {@code suffix} page, falling back to the base page.
+     */
+    private CompletableFuture<List<String>> fetchSectionItems(String conditionId,
+                                                              String conditionName,
+                                                              String suffix,
+                                                              List<String> pageHeadings,
+                                                              List<String> baseHeadings,
+                                                              Deadline deadline) {
+        if (singleFetch) {
+            return resolvePageTitles(conditionId, conditionName, deadline).thenCompose(baseTitle ->
+                    loadPage(buildSuffixedTitle(baseTitle, suffix), deadline).thenCompose(page -> {
+                        List<String> items = sectionItems(page, pageHeadings);
+                        if (!items.isEmpty()) return CompletableFuture.completedFuture(items);
+                        return loadPage(baseTitle, deadline).thenApply(base -> sectionItems(base, baseHeadings));
+                    }));
+        }
+        return resolveBaseTitle(conditionId, conditionName, deadline).thenCompose(baseTitle ->
+                extractListFromSection(buildSuffixedTitle(baseTitle, suffix), pageHeadings, deadline).thenCompose(items ->
+                        !items.isEmpty()
+                                ? CompletableFuture.completedFuture(items)
+                                : extractListFromSection(baseTitle, baseHeadings, deadline)));
     }
 
-    @Cacheable("wikidocOverview")
-    public String fetchOverview(String conditionId, String conditionName) {
-        String baseTitle = resolveBaseTitle(conditionId, conditionName);
-        String pageTitle = buildSuffixedTitle(baseTitle, "overview");
-        String overview = extractOverviewFromPage(pageTitle);
-        if (overview != null) return overview;
-        return extractOverviewFromPage(baseTitle);
+    private CompletableFuture<List<String>> extractListFromSection(String pageTitle, List<String> headings, Deadline deadline) {
+        return fetchSectionHtml(pageTitle, headings, deadline).thenApply(html ->
+                html == null ? List.of() : extractSectionItems(HtmlTextExtractor.extract(html)));
     }
 
-    @Cacheable("wikidocCauses")
-    public List<String> fetchCauses(String conditionId, String conditionName) {
-        String baseTitle = resolveBaseTitle(conditionId, conditionName);
-        String pageTitle = buildSuffixedTitle(baseTitle, "causes");
-        List<String> items = extractListFromSection(pageTitle, List.of("Causes", "Etiology", "Overview"));
-        if (!items.isEmpty()) return items;
-        return extractListFromSection(baseTitle, List.of("Causes", "Etiology"));
+    private List<String> extractSectionItems(List<Block> blocks) {
+        List<String> items = extractListItems(blocks);
+        if (!items.isEmpty()) {
+            return items;
+        }
+        return extractInlineItemsFromParagraphs(blocks);
+    }
+
+    private List<String> sectionItems(WikidocPage page, List<String> headings) {
+        if (page == null) return List.of();
+        return page.sections().stream()
+                .filter(section -> matchesHeading(section.heading(), headings))
+                .findFirst()
+                .map(PageSection::items)
+                .orElse(List.of());
+    }
+
+    /**
+     * Completes with the parsed page, fetching it at most once per cache lifetime. Pages the title
+     * lookup knows to be missing are not fetched at all.
+     */
+    private CompletableFuture<WikidocPage> loadPage(String pageTitle, Deadline deadline) {
+        if (pageTitle == null) return CompletableFuture.completedFuture(null);
+        return titleResolver.resolve(pageTitle, deadline).thenCompose(resolved -> {
+            if (resolved != null && !resolved.exists()) return CompletableFuture.completedFuture(null);
+            String title = resolved != null ? resolved.title() : pageTitle;
+            return pageCache.get(title, () -> fetchPage(title, deadline));
+        });
     }
 
-    @Cacheable("wikidocRiskFactors")
-    public List<String> fetchRiskFactors(String conditionId, String conditionName) {
-        String baseTitle = resolveBaseTitle(conditionId, conditionName);
-        String pageTitle = buildSuffixedTitle(baseTitle, "risk_factors");
-        List<String> items = extractListFromSection(pageTitle, List.of("Risk factors", "Risk Factors", "Overview"));
-        if (!items.isEmpty()) return items;
-        return extractListFromSection(baseTitle, List.of("Risk factors", "Risk Factors"));
+    private CompletableFuture<WikidocPage> fetchPage(String pageTitle, Deadline deadline) {
+        return sendRequest(buildPageUrl(pageTitle), "page", WikidocSnippetLoader::readParse, deadline).thenApply(parse -> {
+            if (parse == null || parse.html() == null) return null;
+            String title = parse.title() != null ? parse.title().replace(' ', '_') : pageTitle;
+            return parsePage(title, parse.html(), parse.sections());
+        });
     }
 
-    @Cacheable("wikidocSymptoms")
-    public List<String> fetchSymptoms(String conditionId, String conditionName) {
-        String pageTitle = resolveBaseTitle(conditionId, conditionName);
-        return extractListFromSection(pageTitle, List.of("Signs and symptoms", "Symptoms"));
+    /**
+     * Streams {@code parse.title}, {@code parse.text.*} and {@code parse.sections} out of the response,
+     * so the page HTML is held once, as the extracted string.
+     */
+    private static ParseResponse readParse(JsonParser parser) throws IOException {
+        String title = null;
+        String html = null;
+        JsonNode sections = MissingNode.getInstance();
+        if (parser.nextToken() != JsonToken.START_OBJECT) return null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT || !"parse".equals(field)) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (name) {
+                    case "title" -> title = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    case "text" -> html = readStringField(parser, "*");
+                    case "sections" -> sections = parser.readValueAsTree();
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return new ParseResponse(title, html, sections);
     }
 
-    private List<String> extractListFromSection(String pageTitle, List<String> headings) {
-        String html = fetchSectionHtml(pageTitle, headings);
-        if (html == null) return List.of();
-        List<String> items = extractListItems(html);
-        if (!items.isEmpty()) {
-            return items;
+    /**
+     * Reads string field {@code name} of the object the parser is at and skips the rest of it.
+     */
+    private static String readStringField(JsonParser parser, String name) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String found = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (name.equals(field) && value == JsonToken.VALUE_STRING) {
+                found = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Scans the page once; each section takes the blocks that start within its bounds.
+     */
+    private WikidocPage parsePage(String title, String html, JsonNode sections) {
+        HtmlTextExtractor.Page page = HtmlTextExtractor.parse(html);
+        List<Block> blocks = page.blocks();
+        List<SectionBounds> bounds = locateSections(page.headings(), sections);
+        List<PageSection> parsed = new ArrayList<>();
+        List<Block> overviewBlocks = null;
+        for (int i = 0; i < bounds.size(); i++) {
+            SectionBounds section = bounds.get(i);
+            List<Block> sectionBlocks = blocksBetween(blocks, section.contentStart(), sectionEnd(bounds, i, html.length()));
+            if (overviewBlocks == null && matchesHeading(section.heading(), OVERVIEW_HEADINGS)) {
+                overviewBlocks = sectionBlocks;
+            }
+            parsed.add(new PageSection(section.heading(), extractSectionItems(sectionBlocks)));
         }
-        return extractInlineItemsFromParagraphs(html);
+        List<String> paragraphs = extractOverviewParagraphs(overviewBlocks != null ? overviewBlocks : blocks);
+        String overview = paragraphs.isEmpty() ? null : String.join("\n", paragraphs);
+        return new WikidocPage(title, overview, List.copyOf(parsed));
+    }
+
+    /**
+     * Finds each listed section's heading among the page's headings by its anchor, so an element
+     * elsewhere in the page carrying the same id is never taken for it. Like {@code section=N}, a
+     * section runs until the next heading of the same or a higher level.
+     */
+    private List<SectionBounds> locateSections(List<Heading> headings, JsonNode sections) {
+        List<SectionBounds> bounds = new ArrayList<>();
+        if (!sections.isArray()) return bounds;
+        int from = 0;
+        for (JsonNode section : sections) {
+            String line = section.path("line").asText("");
+            String anchor = section.path("anchor").asText("");
+            int level = section.path("level").asInt(0);
+            if (line.isEmpty() || anchor.isEmpty() || level < 1) continue;
+            for (int i = from; i < headings.size(); i++) {
+                Heading heading = headings.get(i);
+                if (heading.level() == level && heading.ids().contains(anchor)) {
+                    bounds.add(new SectionBounds(line, level, heading.offset(), heading.contentOffset()));
+                    from = i + 1;
+                    break;
+                }
+            }
+        }
+        return bounds;
+    }
+
+    private static List<Block> blocksBetween(List<Block> blocks, int from, int to) {
+        return blocks.stream()
+                .filter(block -> block.offset() >= from && block.offset() < to)
+                .toList();
+    }
+
+    private static int sectionEnd(List<SectionBounds> bounds, int index, int htmlLength) {
+        int level = bounds.get(index).level();
+        for (int i = index + 1; i < bounds.size(); i++) {
+            if (bounds.get(i).level() <= level) return bounds.get(i).headingStart();
+        }
+        return htmlLength;
     }
 
     private String buildPageTitle(String conditionId, String conditionName, String suffix) {
@@ -133,11 +386,57 @@ public class WikidocSnippetLoader {
         return baseTitle + "_" + suffix;
     }
 
-    public String resolveBaseTitle(String conditionId, String conditionName) {
+    public CompletableFuture<String> resolveBaseTitle(String conditionId, String conditionName) {
+        return resolveBaseTitle(conditionId, conditionName, Deadline.current());
+    }
+
+    private CompletableFuture<String> resolveBaseTitle(String conditionId, String conditionName, Deadline deadline) {
         String base = buildPageBase(conditionId, conditionName);
-        if (base == null) return null;
-        String resolved = resolveRedirect(base);
-        return resolved != null ? resolved : base;
+        if (base == null) return CompletableFuture.completedFuture(null);
+        return titleResolver.resolve(base, deadline)
+                .thenApply(resolved -> resolved != null && resolved.exists() ? resolved.title() : base);
+    }
+
+    /**
+     * Resolves the base and section page titles of many conditions in a few batched lookups and
+     * completes with the base page title per condition id.
+     */
+    public CompletableFuture<Map<String, String>> resolveTitles(Map<String, String> conditionNames) {
+        return resolveTitles(conditionNames, Deadline.current());
+    }
+
+    private CompletableFuture<Map<String, String>> resolveTitles(Map<String, String> conditionNames, Deadline deadline) {
+        Map<String, String> bases = new LinkedHashMap<>();
+        conditionNames.forEach((conditionId, conditionName) -> {
+            String base = buildPageBase(conditionId, conditionName);
+            if (base != null) bases.put(conditionId, base);
+        });
+        return titleResolver.resolveAll(candidateTitles(bases.values()), deadline).thenCompose(resolved -> {
+            Map<String, String> baseTitles = new LinkedHashMap<>();
+            List<String> redirected = new ArrayList<>();
+            bases.forEach((conditionId, base) -> {
+                ResolvedTitle baseTitle = resolved.get(base);
+                String title = baseTitle != null && baseTitle.exists() ? baseTitle.title() : base;
+                if (!title.equals(base)) redirected.add(title);
+                baseTitles.put(conditionId, title);
+            });
+            if (redirected.isEmpty()) return CompletableFuture.completedFuture(baseTitles);
+            return titleResolver.resolveAll(candidateTitles(redirected), deadline).thenApply(ignored -> baseTitles);
+        });
+    }
+
+    private CompletableFuture<String> resolvePageTitles(String conditionId, String conditionName, Deadline deadline) {
+        return resolveTitles(Collections.singletonMap(conditionId, conditionName), deadline)
+                .thenApply(baseTitles -> baseTitles.get(conditionId));
+    }
+
+    private List<String> candidateTitles(Iterable<String> baseTitles) {
+        List<String> titles = new ArrayList<>();
+        for (String baseTitle : baseTitles) {
+            titles.add(baseTitle);
+            PAGE_SUFFIXES.forEach(suffix -> titles.add(buildSuffixedTitle(baseTitle, suffix)));
+        }
+        return titles;
     }
 
     private String titleCase(String input) {
@@ -152,19 +451,18 @@ public class WikidocSnippetLoader {
         return builder.toString();
     }
 
-    private String fetchSectionHtml(String pageTitle, List<String> headings) {
-        String sectionIndex = fetchSectionIndex(pageTitle, headings);
-        if (sectionIndex == null) return null;
-        return fetchPageHtml(pageTitle, sectionIndex);
+    private CompletableFuture<String> fetchSectionHtml(String pageTitle, List<String> headings, Deadline deadline) {
+        return fetchSectionIndex(pageTitle, headings, deadline).thenCompose(sectionIndex ->
+                sectionIndex == null
+                        ? CompletableFuture.completedFuture(null)
+                        : fetchPageHtml(pageTitle, sectionIndex, deadline));
     }
 
-    private String fetchSectionIndex(String pageTitle, List<String> headings) {
-        if (pageTitle == null) return null;
+    private CompletableFuture<String> fetchSectionIndex(String pageTitle, List<String> headings, Deadline deadline) {
+        if (pageTitle == null) return CompletableFuture.completedFuture(null);
         String url = buildApiUrl(pageTitle, "sections", null);
-        try {
-            String response = sendRequest(url);
-            if (response == null) return null;
-            JsonNode root = objectMapper.readTree(response);
+        return sendRequest(url, "sections", JsonParser::<JsonNode>readValueAsTree, deadline).thenApply(root -> {
+            if (root == null) return null;
             JsonNode sections = root.path("parse").path("sections");
             if (!sections.isArray()) return null;
             for (JsonNode section : sections) {
@@ -173,10 +471,8 @@ public class WikidocSnippetLoader {
                 if (line.isEmpty() || index.isEmpty()) continue;
                 if (matchesHeading(line, headings)) return index;
             }
-        } catch (Exception e) {
-            log.debug("WikiDoc section lookup failed for {}: {}", pageTitle, e.getMessage());
-        }
-        return null;
+            return null;
+        });
     }
 
     private boolean matchesHeading(String line, List<String> headings) {
@@ -187,43 +483,11 @@ public class WikidocSnippetLoader {
         });
     }
 
-    private String fetchPageHtml(String pageTitle) {
-        return fetchPageHtml(pageTitle, null);
-    }
-
-    private String fetchPageHtml(String pageTitle, String sectionIndex) {
-        if (pageTitle == null) return null;
+    private CompletableFuture<String> fetchPageHtml(String pageTitle, String sectionIndex, Deadline deadline) {
+        if (pageTitle == null) return CompletableFuture.completedFuture(null);
         String url = buildApiUrl(pageTitle, "text", sectionIndex);
-        try {
-            String response = sendRequest(url);
-            if (response == null) return null;
-            JsonNode root = objectMapper.readTree(response);
-            JsonNode textNode = root.path("parse").path("text").path("*");
-            return textNode.isMissingNode() ? null : textNode.asText();
-        } catch (Exception e) {
-            log.debug("WikiDoc parse failed for {}: {}", pageTitle, e.getMessage());
-            return null;
-        }
-    }
-
-    private String resolveRedirect(String pageTitle) {
-        if (pageTitle == null) return null;
-        String url = buildQueryUrl(pageTitle);
-        try {
-            String response = sendRequest(url);
-            if (response == null) return null;
-            JsonNode pages = objectMapper.readTree(response).path("query").path("pages");
-            if (!pages.isObject()) return null;
-            for (JsonNode page : pages) {
-                if (page.has("missing")) continue;
-                String title = page.path("title").asText(null);
-                if (title == null || title.isBlank()) continue;
-                return title.replace(' ', '_');
-            }
-        } catch (Exception e) {
-            log.debug("WikiDoc redirect lookup failed for {}: {}", pageTitle, e.getMessage());
-        }
-        return null;
+        return sendRequest(url, "section", WikidocSnippetLoader::readParse, deadline)
+                .thenApply(parse -> parse == null ? null : parse.html());
     }
 
     private String buildApiUrl(String pageTitle, String prop, String sectionIndex) {
@@ -240,61 +504,90 @@ public class WikidocSnippetLoader {
         return builder.toString();
     }
 
-    private String buildQueryUrl(String pageTitle) {
+    private String buildPageUrl(String pageTitle) {
         String encodedTitle = URLEncoder.encode(pageTitle, StandardCharsets.UTF_8);
         String base = apiUrl.endsWith("?") ? apiUrl : apiUrl + "?";
         return new StringBuilder(base)
-                .append("action=query")
-                .append("&titles=").append(encodedTitle)
+                .append("action=parse")
+                .append("&page=").append(encodedTitle)
+                .append("&prop=").append(URLEncoder.encode("text|sections", StandardCharsets.UTF_8))
                 .append("&redirects=1")
                 .append("&format=json")
                 .toString();
     }
 
-    private String sendRequest(String url) {
+    /**
+     * Sends a GET without blocking the caller and hands the decompressed body to {@code reader} as a
+     * JSON stream on a virtual thread. Completes with null for non-200 answers and for bodies that are not the
+     * JSON {@code reader} expects, exceptionally with an {@link UpstreamException}
+     * when the call failed or the circuit is open.
+     */
+    private <T> CompletableFuture<T> sendRequest(String url,
+                                                 String queryType,
+                                                 BodyReader<T> reader,
+                                                 Deadline deadline) {
+        long limitMs = adaptiveTimeouts.timeoutMs("WikiDoc", queryType, timeoutMs);
+        HttpRequest request;
         try {
-            HttpRequest request = HttpRequest.newBuilder()
+            request = HttpRequest.newBuilder()
                     .uri(URI.create(url))
-                    .timeout(Duration.ofMillis(timeoutMs))
+                    .timeout(Duration.ofMillis(limitMs))
                     .header("User-Agent", userAgent)
                     .header("Accept", "application/json")
+                    .header(CompressedTransfer.HEADER_ACCEPT_ENCODING, compressedTransfer.acceptEncoding())
                     .GET()
                     .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpResponse.BodyHandler<InputStream> bodyHandler =
+                compressedTransfer.metered("WikiDoc", HttpResponse.BodyHandlers.ofInputStream());
+        long startedAt = System.nanoTime();
+        // Sent with the deadline current, so the transport queues it by the caller's priority.
+        return circuitBreaker.callAsync(() -> deadline.call(() -> httpClient.sendAsync(request, bodyHandler))
+                .whenComplete((response, error) -> adaptiveTimeouts.record("WikiDoc", queryType, startedAt, error))
+                .handleAsync((response, error) -> {
+                    if (error != null) throw failure(error);
+                    return readBody(url, response, reader);
+                }, bodyExecutor));
+    }
+
+    private <T> T readBody(String url, HttpResponse<InputStream> response, BodyReader<T> reader) {
+        try (InputStream body = response.body()) {
+            if (isServerFailure(response.statusCode())) {
+                throw new UpstreamException("WikiDoc responded " + response.statusCode() + " for " + url);
+            }
             if (response.statusCode() != 200) {
                 log.debug("WikiDoc response {} for {}", response.statusCode(), url);
                 return null;
             }
-            return response.body();
-        } catch (Exception e) {
-            log.warn("WikiDoc request failed: {}", e.getMessage());
-            return null;
+            try (JsonParser parser = objectMapper.createParser(compressedTransfer.decode(response))) {
+                return reader.read(parser);
+            } catch (JsonProcessingException e) {
+                log.debug("WikiDoc response for {} could not be read: {}", url, e.getMessage());
+                return null;
+            }
+        } catch (IOException e) {
+            throw failure(e);
         }
     }
 
-    private List<String> extractParagraphs(String html) {
-        if (html == null || html.isBlank()) return List.of();
-        String sanitized = stripNoiseBlocks(html);
-        List<String> paragraphs = new ArrayList<>();
-        Matcher matcher = PARAGRAPH_PATTERN.matcher(sanitized);
-        while (matcher.find()) {
-            String cleaned = cleanHtml(matcher.group(1));
-            String normalized = normalizeItem(cleaned, 200);
-            if (normalized != null && normalized.length() > 40 && !isPlaceholder(normalized)) {
-                paragraphs.add(normalized);
-            }
-        }
-        return paragraphs;
+    private static UpstreamException failure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof UpstreamException upstream) return upstream;
+        log.warn("WikiDoc request failed: {}", cause.getMessage());
+        return new UpstreamException("WikiDoc", cause);
+    }
+
+    private static boolean isServerFailure(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
     }
 
-    private List<String> extractListItems(String html) {
-        if (html == null || html.isBlank()) return List.of();
-        String sanitized = stripNoiseBlocks(html);
+    private List<String> extractListItems(List<Block> blocks) {
         Set<String> items = new LinkedHashSet<>();
-        Matcher matcher = LIST_ITEM_PATTERN.matcher(sanitized);
-        while (matcher.find()) {
-            String cleaned = cleanHtml(matcher.group(1));
-            String normalized = normalizeItem(cleaned, 140);
+        for (Block block : blocks) {
+            if (block.kind() != Kind.LIST_ITEM) continue;
+            String normalized = normalizeItem(block.text(), 140);
             if (normalized != null && normalized.length() > 3 && !isPlaceholder(normalized)) {
                 items.add(normalized);
             }
@@ -302,25 +595,24 @@ public class WikidocSnippetLoader {
         return new ArrayList<>(items);
     }
 
-    private String extractOverviewFromPage(String pageTitle) {
-        if (pageTitle == null) return null;
-        String html = fetchSectionHtml(pageTitle, List.of("Overview"));
-        if (html == null) {
-            html = fetchPageHtml(pageTitle);
-        }
-        List<String> paragraphs = extractOverviewParagraphs(html);
-        return paragraphs.isEmpty() ? null : String.join("\n", paragraphs);
+    private CompletableFuture<String> extractOverviewFromPage(String pageTitle, Deadline deadline) {
+        if (pageTitle == null) return CompletableFuture.completedFuture(null);
+        return fetchSectionHtml(pageTitle, OVERVIEW_HEADINGS, deadline)
+                .thenCompose(html -> html != null
+                        ? CompletableFuture.completedFuture(html)
+                        : fetchPageHtml(pageTitle, null, deadline))
+                .thenApply(html -> {
+                    List<String> paragraphs = extractOverviewParagraphs(HtmlTextExtractor.extract(html));
+                    return paragraphs.isEmpty() ? null : String.join("\n", paragraphs);
+                });
     }
 
-    private List<String> extractOverviewParagraphs(String html) {
-        if (html == null || html.isBlank()) return List.of();
-        String sanitized = stripNoiseBlocks(html);
+    private List<String> extractOverviewParagraphs(List<Block> blocks) {
         List<String> paragraphs = new ArrayList<>();
         int totalLength = 0;
-        Matcher matcher = PARAGRAPH_PATTERN.matcher(sanitized);
-        while (matcher.find()) {
-            String cleaned = cleanHtml(matcher.group(1));
-            String normalized = normalizeParagraph(cleaned, 2000);
+        for (Block block : blocks) {
+            if (block.kind() != Kind.PARAGRAPH) continue;
+            String normalized = normalizeParagraph(block.text(), 2000);
             if (normalized != null && normalized.length() > 40 && !isPlaceholder(normalized)) {
                 if (paragraphs.size() >= 5 || totalLength + normalized.length() > 3500) {
                     break;
@@ -332,67 +624,12 @@ public class WikidocSnippetLoader {
         return paragraphs;
     }
 
-    private String cleanHtml(String html) {
-        if (html == null) return null;
-        String text = html.replaceAll("<[^>]+>", " ");
-        text = decodeEntities(text);
-        text = text.replaceAll("\\[[^\\]]*\\]", "");
-        text = text.replaceAll("[\\u2020\\u2021\\uFFFD]", "");
-        text = text.replace('\u00A0', ' ');
-        text = text.replaceAll("\\s+", " ").trim();
-        return text;
-    }
-
-    private String decodeEntities(String text) {
-        String decoded = text.replace("&amp;", "&")
-                .replace("&nbsp;", " ")
-                .replace("&quot;", "\"")
-                .replace("&#39;", "'")
-                .replace("&lt;", "<")
-                .replace("&gt;", ">")
-                .replace("&ndash;", "-")
-                .replace("&mdash;", "-");
-        return decodeNumericEntities(decoded);
-    }
-
     private boolean isPlaceholder(String text) {
         String lower = text.toLowerCase();
         return lower.contains("there is currently no text in this page")
                 || lower.contains("may refer to");
     }
 
-    private String stripNoiseBlocks(String html) {
-        String stripped = STYLE_BLOCK_PATTERN.matcher(html).replaceAll("");
-        stripped = SCRIPT_BLOCK_PATTERN.matcher(stripped).replaceAll("");
-        stripped = TABLE_BLOCK_PATTERN.matcher(stripped).replaceAll("");
-        stripped = REFERENCE_BLOCK_PATTERN.matcher(stripped).replaceAll("");
-        stripped = REFLIST_BLOCK_PATTERN.matcher(stripped).replaceAll("");
-        stripped = SUP_REFERENCE_PATTERN.matcher(stripped).replaceAll("");
-        stripped = TOC_BLOCK_PATTERN.matcher(stripped).replaceAll("");
-        return stripped;
-    }
-
-    private String decodeNumericEntities(String text) {
-        String result = text;
-        Matcher matcher = NUMERIC_ENTITY_PATTERN.matcher(result);
-        StringBuffer buffer = new StringBuffer();
-        while (matcher.find()) {
-            int codePoint = Integer.parseInt(matcher.group(1));
-            matcher.appendReplacement(buffer, Matcher.quoteReplacement(new String(Character.toChars(codePoint))));
-        }
-        matcher.appendTail(buffer);
-        result = buffer.toString();
-
-        matcher = HEX_ENTITY_PATTERN.matcher(result);
-        buffer = new StringBuffer();
-        while (matcher.find()) {
-            int codePoint = Integer.parseInt(matcher.group(1), 16);
-            matcher.appendReplacement(buffer, Matcher.quoteReplacement(new String(Character.toChars(codePoint))));
-        }
-        matcher.appendTail(buffer);
-        return buffer.toString();
-    }
-
     private String normalizeItem(String text, int maxLength) {
         if (text == null) return null;
         String trimmed = text.replaceAll("^[^\\p{L}\\p{N}]+", "").trim();
@@ -449,13 +686,11 @@ public class WikidocSnippetLoader {
                 || lower.startsWith("↑");
     }
 
-    private List<String> extractInlineItemsFromParagraphs(String html) {
-        if (html == null || html.isBlank()) return List.of();
-        String sanitized = stripNoiseBlocks(html);
+    private List<String> extractInlineItemsFromParagraphs(List<Block> blocks) {
         Set<String> items = new LinkedHashSet<>();
-        Matcher matcher = PARAGRAPH_PATTERN.matcher(sanitized);
-        while (matcher.find()) {
-            String cleaned = cleanHtml(matcher.group(1));
+        for (Block block : blocks) {
+            if (block.kind() != Kind.PARAGRAPH) continue;
+            String cleaned = block.text();
             if (cleaned == null || cleaned.isBlank()) continue;
             int includeIndex = findIncludeIndex(cleaned);
             if (includeIndex < 0) continue;
@@ -1,5 +1,10 @@
 package com.mead.conditions.service;
 
+import com.mead.conditions.cache.StaleWhileRevalidateCache;
+import com.mead.conditions.cache.StaleWhileRevalidateCache.Loaded;
+import com.mead.conditions.config.Deadline;
+import com.mead.conditions.config.FallbackChain;
+import com.mead.conditions.dto.ConditionDto.BatchGetConditionsResponse;
 import com.mead.conditions.dto.ConditionDto.ConditionDetail;
 import com.mead.conditions.dto.ConditionDto.ConditionSummary;
 import com.mead.conditions.enrich.DbpediaClient.DbpediaEnrichment;
@@ -9,22 +14,34 @@ import com.mead.conditions.enrich.DbpediaClient;
 import com.mead.conditions.enrich.WikidataClient;
 import com.mead.conditions.enrich.WikidocSnippetLoader;
 import com.mead.conditions.repository.ConditionsRepository.Condition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.mead.conditions.enrich.ImageNormalizer.*;
 import static com.mead.conditions.config.AsyncConfig.MEAD_EXECUTOR;
+import static com.mead.conditions.config.ForkJoinTasks.fork;
+import static com.mead.conditions.config.ForkJoinTasks.awaitAll;
 
 @Service
 public class ConditionService {
 
+    private static final Logger log = LoggerFactory.getLogger(ConditionService.class);
+
     private static final String SCHEMA_ORG_CONTEXT = "https://schema.org/";
     private static final String CONDITION_TYPE = "MedicalCondition";
     private static final String MEAD_CONDITION_BASE_URL = "https://mead.example/condition/";
@@ -33,22 +50,34 @@ public class ConditionService {
     private static final String DBPEDIA_RESOURCE_MARKER = "dbpedia.org/resource/";
     private static final int MAX_RISK_FACTORS = 12;
 
+    @Value("${mead.detail.deadline-ms:1500}")
+    private long deadlineMs;
+
+    @Value("${mead.warmup.deadline-ms:30000}")
+    private long warmupDeadlineMs;
+
+    @Value("${mead.detail.fallback.speculate-after-ms:-1}")
+    private long speculateAfterMs;
+
     private final ConditionsRepository repo;
     private final WikidataClient wikidata;
     private final DbpediaClient dbpedia;
     private final WikidocSnippetLoader wikidoc;
     private final Executor asyncExecutor;
+    private final StaleWhileRevalidateCache<ConditionDetail> detailCache;
 
     public ConditionService(ConditionsRepository repo,
                             WikidataClient wikidata,
                             DbpediaClient dbpedia,
                             WikidocSnippetLoader wikidoc,
-                            @Qualifier(MEAD_EXECUTOR) Executor asyncExecutor) {
+                            @Qualifier(MEAD_EXECUTOR) Executor asyncExecutor,
+                            StaleWhileRevalidateCache<ConditionDetail> detailCache) {
         this.repo = repo;
         this.wikidata = wikidata;
         this.dbpedia = dbpedia;
         this.wikidoc = wikidoc;
         this.asyncExecutor = asyncExecutor;
+        this.detailCache = detailCache;
     }
 
     public List<ConditionSummary> list() {
@@ -57,69 +86,251 @@ public class ConditionService {
                 .toList();
     }
 
-    @Cacheable(cacheNames = "conditionDetails", key = "#conditionId")
+    /**
+     * Returns the condition detail, served from cache even when stale; stale or incomplete
+     * entries are rebuilt in the background. Concurrent misses for one condition share a single build.
+     * A miss answers within {@code mead.detail.deadline-ms}: fields whose sources have not answered
+     * by then are listed in {@code missingFields}, and the detail is completed from those same
+     * calls, which keep their own timeouts, once they answer.
+     */
     public ConditionDetail get(String conditionId) {
-        Condition condition = repo.findById(conditionId)
+        Condition condition = findCondition(conditionId);
+        return detailCache.get(conditionId, () -> buildDetail(condition), () -> buildDetailWithinDeadline(condition));
+    }
+
+    /**
+     * Returns the details of several conditions in request order, one per requested id, so an id asked
+     * for twice appears twice but is built once. Cached details are reused and details another request
+     * is already building are awaited rather than built twice; for the rest, Wikidata, DBpedia and
+     * WikiDoc title redirects are queried once per batch instead of once per condition, and every
+     * remaining upstream call is started before any of them is awaited.
+     * Like {@link #get}, builds answer within the request deadline. Ids that match no condition are
+     * left out of the details and listed in {@code missingIds} instead of failing the batch.
+     */
+    public BatchGetConditionsResponse getAll(List<String> conditionIds) {
+        Map<String, ConditionDetail> details = getAll(conditionIds, false);
+        return new BatchGetConditionsResponse(
+                conditionIds.stream().map(details::get).filter(Objects::nonNull).toList(),
+                conditionIds.stream().filter(id -> !details.containsKey(id)).distinct().toList()
+        );
+    }
+
+    /**
+     * Like {@link #getAll}, for warm-ups: their upstream calls queue behind those of interactive requests,
+     * and builds wait up to {@code mead.warmup.deadline-ms} rather than the request deadline.
+     */
+    public List<ConditionDetail> warmAll(List<String> conditionIds) {
+        Map<String, ConditionDetail> details = getAll(conditionIds, true);
+        return conditionIds.stream().map(details::get).filter(Objects::nonNull).toList();
+    }
+
+    private Map<String, ConditionDetail> getAll(List<String> conditionIds, boolean background) {
+        Map<String, Condition> conditions = new LinkedHashMap<>();
+        conditionIds.stream()
+                .distinct()
+                .forEach(conditionId -> repo.findById(conditionId).ifPresent(condition -> conditions.put(conditionId, condition)));
+
+        return detailCache.getAll(
+                List.copyOf(conditions.keySet()),
+                conditionId -> () -> buildDetail(conditions.get(conditionId)),
+                missingIds -> loadDetails(missingIds.stream().map(conditions::get).toList(), background)
+        );
+    }
+
+    private Map<String, Loaded<ConditionDetail>> loadDetails(List<Condition> missing, boolean background) {
+        Deadline deadline = background ? Deadline.afterMillis(warmupDeadlineMs).inBackground() : Deadline.afterMillis(deadlineMs);
+        Map<Condition, EnrichmentFutures> pending = deadline.unbounded().call(() -> startEnrichments(missing));
+
+        Map<String, Loaded<ConditionDetail>> details = new LinkedHashMap<>();
+        pending.forEach((condition, futures) -> details.put(condition.identifier(), assembleDetail(condition, futures, deadline)));
+        return details;
+    }
+
+    private Map<Condition, EnrichmentFutures> startEnrichments(List<Condition> missing) {
+        List<String> wikidataUris = missing.stream()
+                .map(c -> findUriByMarker(c.sameAs(), WIKIDATA_ENTITY_MARKER))
+                .filter(Objects::nonNull)
+                .toList();
+        List<String> dbpediaUris = missing.stream()
+                .map(c -> findUriByMarker(c.sameAs(), DBPEDIA_RESOURCE_MARKER))
+                .filter(Objects::nonNull)
+                .toList();
+        Map<String, String> conditionNames = new LinkedHashMap<>();
+        missing.forEach(c -> conditionNames.put(c.identifier(), c.name()));
+
+        // Not joined: the per-condition loads below wait on these lookups while they are in flight.
+        wikidoc.resolveTitles(conditionNames).exceptionally(e -> batchFailed("WikiDoc title", e));
+        CompletableFuture<Map<String, WikidataEnrichment>> wikidataBatch = wikidataUris.isEmpty()
+                ? CompletableFuture.completedFuture(Map.of())
+                : executeAsync(() -> wikidata.enrichFromEntityUris(wikidataUris)).exceptionally(e -> batchFailed("Wikidata", e));
+        CompletableFuture<Map<String, DbpediaEnrichment>> dbpediaBatch = dbpediaUris.isEmpty()
+                ? CompletableFuture.completedFuture(Map.of())
+                : executeAsync(() -> dbpedia.enrichFromResourceUris(dbpediaUris)).exceptionally(e -> batchFailed("DBpedia", e));
+
+        Map<Condition, EnrichmentFutures> pending = new LinkedHashMap<>();
+        for (Condition condition : missing) {
+            String wikidataUri = findUriByMarker(condition.sameAs(), WIKIDATA_ENTITY_MARKER);
+            String dbpediaUri = findUriByMarker(condition.sameAs(), DBPEDIA_RESOURCE_MARKER);
+            pending.put(condition, startEnrichment(
+                    condition,
+                    wikidataBatch.thenApply(batch -> wikidataUri == null ? null : batch.get(wikidataUri)),
+                    dbpediaBatch.thenApply(batch -> dbpediaUri == null ? null : batch.get(dbpediaUri))
+            ));
+        }
+        return pending;
+    }
+
+    private Loaded<ConditionDetail> buildDetail(Condition condition) {
+        return assembleDetail(condition, startEnrichment(condition), Deadline.NONE);
+    }
+
+    private Loaded<ConditionDetail> buildDetailWithinDeadline(Condition condition) {
+        Deadline deadline = Deadline.afterMillis(deadlineMs);
+        EnrichmentFutures futures = deadline.unbounded().call(() -> startEnrichment(condition));
+        return assembleDetail(condition, futures, deadline);
+    }
+
+    private static <K, V> Map<K, V> batchFailed(String source, Throwable error) {
+        // Entities left out of the batch are fetched one by one, each failing on its own.
+        log.warn("{} batch enrichment failed: {}", source, error.getMessage());
+        return Map.of();
+    }
+
+    private Condition findCondition(String conditionId) {
+        return repo.findById(conditionId)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown condition: " + conditionId));
+    }
+
+    private record EnrichmentFutures(
+            CompletableFuture<WikidataEnrichment> wikidata,
+            CompletableFuture<DbpediaEnrichment> dbpedia,
+            CompletableFuture<String> description,
+            CompletableFuture<List<String>> symptoms,
+            CompletableFuture<List<String>> knowledgeBaseRiskFactors,
+            CompletableFuture<String> overview,
+            CompletableFuture<List<String>> causes,
+            CompletableFuture<List<String>> riskFactors
+    ) {
+        void await(Deadline deadline) {
+            awaitAll(deadline, all());
+        }
+
+        boolean complete() {
+            return Stream.of(all()).allMatch(ConditionService::delivered);
+        }
+
+        boolean pending() {
+            return !Stream.of(all()).allMatch(CompletableFuture::isDone);
+        }
+
+        private CompletableFuture<?>[] all() {
+            return new CompletableFuture<?>[]{
+                    wikidata, dbpedia, description, symptoms, knowledgeBaseRiskFactors, overview, causes, riskFactors
+            };
+        }
+
+        List<String> missingFields() {
+            Set<String> missing = new LinkedHashSet<>();
+            if (!delivered(wikidata) || !delivered(dbpedia)) {
+                missing.addAll(List.of("description", "images", "symptoms", "riskFactors"));
+            }
+            if (!delivered(symptoms)) missing.add("symptoms");
+            if (!delivered(causes) || !delivered(riskFactors)) missing.add("riskFactors");
+            if (!delivered(overview)) missing.add("wikidocSnippet");
+            return List.copyOf(missing);
+        }
+    }
+
+    private EnrichmentFutures startEnrichment(Condition condition) {
+        return startEnrichment(condition, CompletableFuture.completedFuture(null), CompletableFuture.completedFuture(null));
+    }
 
+    /**
+     * Starts every upstream call for one condition. The knowledge-base entities come from
+     * {@code prefetchedWikidata} and {@code prefetchedDbpedia} when those yield them, and are
+     * looked up on their own otherwise.
+     */
+    private EnrichmentFutures startEnrichment(Condition condition,
+                                              CompletableFuture<WikidataEnrichment> prefetchedWikidata,
+                                              CompletableFuture<DbpediaEnrichment> prefetchedDbpedia) {
+        String conditionId = condition.identifier();
         String wikidataUri = findUriByMarker(condition.sameAs(), WIKIDATA_ENTITY_MARKER);
         String dbpediaUri = findUriByMarker(condition.sameAs(), DBPEDIA_RESOURCE_MARKER);
 
-        CompletableFuture<WikidataEnrichment> wikidataFuture = executeAsync(() ->
+        CompletableFuture<WikidataEnrichment> wikidataFuture = orFetch(prefetchedWikidata, () ->
                 wikidataUri == null
                         ? new WikidataEnrichment(null, List.of(), List.of(), List.of())
                         : wikidata.enrichFromEntityUri(wikidataUri)
         );
 
-        CompletableFuture<DbpediaEnrichment> dbpediaFuture = executeAsync(() ->
+        CompletableFuture<DbpediaEnrichment> dbpediaFuture = orFetch(prefetchedDbpedia, () ->
                 dbpediaUri == null
                         ? new DbpediaEnrichment(null, List.of(), List.of(), List.of())
                         : dbpedia.enrichFromResourceUri(dbpediaUri)
         );
 
-        CompletableFuture<String> overviewFuture = executeAsync(() ->
-                wikidoc.fetchOverview(conditionId, condition.name())
-        );
-        CompletableFuture<List<String>> causesFuture = executeAsync(() ->
-                wikidoc.fetchCauses(conditionId, condition.name())
-        );
-        CompletableFuture<List<String>> riskFactorsFuture = executeAsync(() ->
-                wikidoc.fetchRiskFactors(conditionId, condition.name())
-        );
-        CompletableFuture<List<String>> symptomsFuture = executeAsync(() ->
-                wikidoc.fetchSymptoms(conditionId, condition.name())
-        );
+        // Source priority per field; WikiDoc symptoms are only fetched when both knowledge bases have none.
+        CompletableFuture<String> descriptionFuture = FallbackChain.firstUsable(ConditionService::notBlank)
+                .then(dbpediaFuture.thenApply(DbpediaEnrichment::description))
+                .then(wikidataFuture.thenApply(WikidataEnrichment::description))
+                .resolve(speculateAfterMs, asyncExecutor);
+        CompletableFuture<List<String>> symptomsFuture = FallbackChain.firstUsable(ConditionService::notEmpty)
+                .then(wikidataFuture.thenApply(enrichment -> normalizeLabels(enrichment.symptoms())))
+                .then(dbpediaFuture.thenApply(enrichment -> normalizeLabels(enrichment.symptoms())))
+                .thenLazily(() -> wikidoc.fetchSymptoms(conditionId, condition.name()).thenApply(ConditionService::normalizeLabels))
+                .orElse(List.of())
+                .resolve(speculateAfterMs, asyncExecutor);
+        CompletableFuture<List<String>> knowledgeBaseRiskFactorsFuture = FallbackChain.firstUsable(ConditionService::notEmpty)
+                .then(wikidataFuture.thenApply(enrichment -> normalizeLabels(enrichment.riskFactors())))
+                .then(dbpediaFuture.thenApply(enrichment -> normalizeLabels(enrichment.riskFactors())))
+                .orElse(List.of())
+                .resolve(speculateAfterMs, asyncExecutor);
 
-        CompletableFuture.allOf(
+        CompletableFuture<String> overviewFuture = wikidoc.fetchOverview(conditionId, condition.name());
+        CompletableFuture<List<String>> causesFuture = wikidoc.fetchCauses(conditionId, condition.name());
+        CompletableFuture<List<String>> riskFactorsFuture = wikidoc.fetchRiskFactors(conditionId, condition.name());
+
+        return new EnrichmentFutures(
                 wikidataFuture,
                 dbpediaFuture,
+                descriptionFuture,
+                symptomsFuture,
+                knowledgeBaseRiskFactorsFuture,
                 overviewFuture,
                 causesFuture,
-                riskFactorsFuture,
-                symptomsFuture
-        ).join();
+                riskFactorsFuture
+        );
+    }
 
-        WikidataEnrichment wikidataEnrichment = wikidataFuture.join();
-        DbpediaEnrichment dbpediaEnrichment = dbpediaFuture.join();
+    /**
+     * Merges the enrichment results that are in by the deadline into a detail. Sources that failed
+     * or are still running contribute nothing and make the result incomplete, so it is never cached
+     * as a good value. While sources are still running, the detail carries the one they will build.
+     */
+    private Loaded<ConditionDetail> assembleDetail(Condition condition, EnrichmentFutures futures, Deadline deadline) {
+        futures.await(deadline);
+        CompletableFuture<Loaded<ConditionDetail>> completion = futures.pending()
+                ? CompletableFuture.allOf(futures.all()).handle((done, error) -> assembleDetail(condition, futures, Deadline.NONE))
+                : null;
 
-        String description = pickFirstNotBlank(dbpediaEnrichment.description(), wikidataEnrichment.description());
-        List<String> symptoms = normalizeLabels(pickFirstNotEmpty(wikidataEnrichment.symptoms(), dbpediaEnrichment.symptoms()));
-        if (symptoms.isEmpty()) {
-            symptoms = normalizeLabels(symptomsFuture.join());
-        }
-        List<String> baseRiskFactors = normalizeLabels(pickFirstNotEmpty(wikidataEnrichment.riskFactors(), dbpediaEnrichment.riskFactors()));
-        List<String> causes = causesFuture.join();
-        List<String> wikidocRiskFactors = riskFactorsFuture.join();
+        WikidataEnrichment wikidataEnrichment = joinOrDefault(futures.wikidata(), new WikidataEnrichment(null, List.of(), List.of(), List.of()));
+        DbpediaEnrichment dbpediaEnrichment = joinOrDefault(futures.dbpedia(), new DbpediaEnrichment(null, List.of(), List.of(), List.of()));
+
+        String description = joinOrDefault(futures.description(), null);
+        List<String> symptoms = joinOrDefault(futures.symptoms(), List.of());
+        List<String> baseRiskFactors = joinOrDefault(futures.knowledgeBaseRiskFactors(), List.of());
+        List<String> causes = joinOrDefault(futures.causes(), List.of());
+        List<String> wikidocRiskFactors = joinOrDefault(futures.riskFactors(), List.of());
         List<String> riskFactors = normalizeLabels(mergeUnique(baseRiskFactors, causes, wikidocRiskFactors));
         riskFactors = filterUiRiskFactors(riskFactors);
         riskFactors = limitList(riskFactors, MAX_RISK_FACTORS);
         List<String> images = combineAndNormalizeImages(wikidataEnrichment.images(), dbpediaEnrichment.images());
 
-        String wikidocSnippet = fallbackSnippet(overviewFuture.join());
+        String wikidocSnippet = fallbackSnippet(joinOrDefault(futures.overview(), null));
 
-        return new ConditionDetail(
+        ConditionDetail detail = new ConditionDetail(
                 SCHEMA_ORG_CONTEXT,
-                MEAD_CONDITION_BASE_URL + conditionId,
+                MEAD_CONDITION_BASE_URL + condition.identifier(),
                 CONDITION_TYPE,
                 condition.identifier(),
                 condition.name(),
@@ -128,12 +339,32 @@ public class ConditionService {
                 symptoms,
                 riskFactors,
                 condition.sameAs(),
-                wikidocSnippet
+                wikidocSnippet,
+                futures.missingFields()
         );
+        return new Loaded<>(detail, futures.complete(), completion);
     }
 
     private <T> CompletableFuture<T> executeAsync(Supplier<T> supplier) {
-        return CompletableFuture.supplyAsync(supplier, asyncExecutor);
+        return fork(supplier, asyncExecutor);
+    }
+
+    /**
+     * The prefetched value, or {@code fetch} started under the current deadline when there is none.
+     */
+    private <T> CompletableFuture<T> orFetch(CompletableFuture<T> prefetched, Supplier<T> fetch) {
+        Deadline deadline = Deadline.current();
+        return prefetched.thenCompose(value -> value != null
+                ? CompletableFuture.completedFuture(value)
+                : deadline.call(() -> executeAsync(fetch)));
+    }
+
+    private static <T> T joinOrDefault(CompletableFuture<T> future, T fallback) {
+        return delivered(future) ? future.join() : fallback;
+    }
+
+    private static boolean delivered(CompletableFuture<?> future) {
+        return future.isDone() && !future.isCompletedExceptionally();
     }
 
     private static String findUriByMarker(List<String> sameAsList, String marker) {
@@ -143,15 +374,12 @@ public class ConditionService {
                 .orElse(null);
     }
 
-    private static String pickFirstNotBlank(String first, String second) {
-        if (first != null && !first.isBlank()) return first;
-        return second;
+    private static boolean notBlank(String value) {
+        return value != null && !value.isBlank();
     }
 
-    private static List<String> pickFirstNotEmpty(List<String> first, List<String> second) {
-        if (first != null && !first.isEmpty()) return first;
-        if (second != null && !second.isEmpty()) return second;
-        return List.of();
+    private static boolean notEmpty(List<String> values) {
+        return values != null && !values.isEmpty();
     }
 
     private static List<String> combineAndNormalizeImages(List<String> firstList, List<String> secondList) {
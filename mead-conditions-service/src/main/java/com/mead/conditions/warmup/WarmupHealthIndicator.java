@@ -0,0 +1,30 @@
+package com.mead.conditions.warmup;
+
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports OUT_OF_SERVICE until enough details are warm; part of the readiness health group.
+ */
+@Component
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    private final CacheWarmer cacheWarmer;
+
+    public WarmupHealthIndicator(CacheWarmer cacheWarmer) {
+        this.cacheWarmer = cacheWarmer;
+    }
+
+    @Override
+    public Health health() {
+        CacheWarmer.Progress progress = cacheWarmer.progress();
+        Health.Builder builder = progress.ready() ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("state", progress.state())
+                .withDetail("warmed", progress.warmed())
+                .withDetail("total", progress.total())
+                .withDetail("readyFraction", progress.readyFraction())
+                .build();
+    }
+}
@@ -13,6 +13,7 @@ import java.util.List;
 
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = ConditionsController.class)
@@ -37,7 +38,8 @@ class ConditionsControllerWebTest {
                 List.of("wheeze"),
                 List.of("smoking"),
                 List.of("http://dbpedia.org/resource/Asthma", "https://www.wikidata.org/entity/Q35869"),
-                "snippet"
+                "snippet",
+                List.of()
         );
 
         when(conditionService.get("asthma")).thenReturn(detail);
@@ -69,4 +71,59 @@ class ConditionsControllerWebTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].id").value("asthma"));
     }
+
+    @Test
+    void batchGetConditions_returns200_inRequestOrder() throws Exception {
+        when(conditionService.getAll(List.of("obesity", "asthma"))).thenReturn(new ConditionDto.BatchGetConditionsResponse(List.of(
+                detail("obesity", "Obesity"),
+                detail("asthma", "Asthma")
+        ), List.of()));
+
+        mvc.perform(post("/api/v1/conditions:batchGet")
+                        .contentType("application/json")
+                        .content("{\"ids\":[\"obesity\",\"asthma\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.conditions[0].identifier").value("obesity"))
+                .andExpect(jsonPath("$.conditions[1].identifier").value("asthma"));
+    }
+
+    @Test
+    void batchGetConditions_withUnknownIds_returnsTheRestAndListsTheUnknown() throws Exception {
+        when(conditionService.getAll(List.of("obesity", "unknown"))).thenReturn(new ConditionDto.BatchGetConditionsResponse(
+                List.of(detail("obesity", "Obesity")),
+                List.of("unknown")
+        ));
+
+        mvc.perform(post("/api/v1/conditions:batchGet")
+                        .contentType("application/json")
+                        .content("{\"ids\":[\"obesity\",\"unknown\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.conditions[0].identifier").value("obesity"))
+                .andExpect(jsonPath("$.missingIds[0]").value("unknown"));
+    }
+
+    @Test
+    void batchGetConditions_withoutIds_returns400() throws Exception {
+        mvc.perform(post("/api/v1/conditions:batchGet")
+                        .contentType("application/json")
+                        .content("{\"ids\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static ConditionDto.ConditionDetail detail(String id, String name) {
+        return new ConditionDto.ConditionDetail(
+                "https://schema.org/",
+                "https://mead.example/condition/" + id,
+                "MedicalCondition",
+                id,
+                name,
+                null,
+                List.of(),
+                List.of(),
+                List.of(),
+                List.of(),
+                "snippet",
+                List.of()
+        );
+    }
 }
@@ -1,5 +1,8 @@
 package com.mead.conditions.api;
 
+import com.mead.conditions.cache.StaleWhileRevalidateCache;
+import com.mead.conditions.config.Deadline;
+import com.mead.conditions.dto.ConditionDto.BatchGetConditionsResponse;
 import com.mead.conditions.dto.ConditionDto.ConditionDetail;
 import com.mead.conditions.dto.ConditionDto.ConditionSummary;
 import com.mead.conditions.enrich.DbpediaClient.DbpediaEnrichment;
@@ -7,16 +10,31 @@ import com.mead.conditions.repository.ConditionsRepository;
 import com.mead.conditions.enrich.DbpediaClient;
 import com.mead.conditions.enrich.WikidataClient;
 import com.mead.conditions.enrich.WikidocSnippetLoader;
+import com.mead.conditions.exception.UpstreamException;
 import com.mead.conditions.repository.ConditionsRepository.Condition;
 import com.mead.conditions.service.ConditionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.*;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 class ConditionServiceTest {
@@ -34,8 +52,19 @@ class ConditionServiceTest {
         wikidata = mock(WikidataClient.class);
         dbpedia = mock(DbpediaClient.class);
         wikidoc = mock(WikidocSnippetLoader.class);
+        when(wikidoc.resolveTitles(anyMap())).thenReturn(completedFuture(Map.of()));
+        when(wikidoc.fetchOverview(anyString(), anyString())).thenReturn(completedFuture(null));
+        when(wikidoc.fetchCauses(anyString(), anyString())).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchRiskFactors(anyString(), anyString())).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchSymptoms(anyString(), anyString())).thenReturn(completedFuture(List.of()));
         executor = runnable -> runnable.run();
-        service = new ConditionService(repo, wikidata, dbpedia, wikidoc, executor);
+        service = serviceWithStaleAfter(Duration.ofMinutes(30));
+    }
+
+    private ConditionService serviceWithStaleAfter(Duration staleAfter) {
+        StaleWhileRevalidateCache<ConditionDetail> detailCache = new StaleWhileRevalidateCache<>(
+                new ConcurrentMapCache("conditionDetails"), staleAfter, Duration.ofMinutes(10), executor);
+        return new ConditionService(repo, wikidata, dbpedia, wikidoc, executor, detailCache);
     }
 
     @Test
@@ -57,9 +86,9 @@ class ConditionServiceTest {
                         "dbpedia desc", List.of(), List.of(), List.of()
                 ));
 
-        when(wikidoc.fetchOverview("asthma", "Asthma")).thenReturn("overview");
-        when(wikidoc.fetchCauses("asthma", "Asthma")).thenReturn(List.of());
-        when(wikidoc.fetchRiskFactors("asthma", "Asthma")).thenReturn(List.of());
+        when(wikidoc.fetchOverview("asthma", "Asthma")).thenReturn(completedFuture("overview"));
+        when(wikidoc.fetchCauses("asthma", "Asthma")).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchRiskFactors("asthma", "Asthma")).thenReturn(completedFuture(List.of()));
 
         ConditionDetail detail = service.get("asthma");
 
@@ -84,9 +113,9 @@ class ConditionServiceTest {
                         "  ", List.of(), List.of(), List.of()
                 ));
 
-        when(wikidoc.fetchOverview("asthma", "Asthma")).thenReturn("overview");
-        when(wikidoc.fetchCauses("asthma", "Asthma")).thenReturn(List.of());
-        when(wikidoc.fetchRiskFactors("asthma", "Asthma")).thenReturn(List.of());
+        when(wikidoc.fetchOverview("asthma", "Asthma")).thenReturn(completedFuture("overview"));
+        when(wikidoc.fetchCauses("asthma", "Asthma")).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchRiskFactors("asthma", "Asthma")).thenReturn(completedFuture(List.of()));
 
         ConditionDetail detail = service.get("asthma");
 
@@ -112,10 +141,10 @@ class ConditionServiceTest {
                         List.of("https://commons.wikimedia.org/wiki/Special:FilePath/Obesity.svg")
                 ));
 
-        when(wikidoc.fetchOverview("obesity", "Obesity")).thenReturn("overview");
-        when(wikidoc.fetchCauses("obesity", "Obesity")).thenReturn(List.of());
-        when(wikidoc.fetchRiskFactors("obesity", "Obesity")).thenReturn(List.of());
-        when(wikidoc.fetchSymptoms("obesity", "Obesity")).thenReturn(List.of("Fatigue"));
+        when(wikidoc.fetchOverview("obesity", "Obesity")).thenReturn(completedFuture("overview"));
+        when(wikidoc.fetchCauses("obesity", "Obesity")).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchRiskFactors("obesity", "Obesity")).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchSymptoms("obesity", "Obesity")).thenReturn(completedFuture(List.of("Fatigue")));
 
         ConditionDetail detail = service.get("obesity");
 
@@ -141,16 +170,33 @@ class ConditionServiceTest {
                         "db", List.of(), List.of(), List.of()
                 ));
 
-        when(wikidoc.fetchOverview("gingivitis", "Gingivitis")).thenReturn("overview");
-        when(wikidoc.fetchCauses("gingivitis", "Gingivitis")).thenReturn(List.of());
-        when(wikidoc.fetchRiskFactors("gingivitis", "Gingivitis")).thenReturn(List.of());
-        when(wikidoc.fetchSymptoms("gingivitis", "Gingivitis")).thenReturn(List.of("Gum bleeding"));
+        when(wikidoc.fetchOverview("gingivitis", "Gingivitis")).thenReturn(completedFuture("overview"));
+        when(wikidoc.fetchCauses("gingivitis", "Gingivitis")).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchRiskFactors("gingivitis", "Gingivitis")).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchSymptoms("gingivitis", "Gingivitis")).thenReturn(completedFuture(List.of("Gum bleeding")));
 
         ConditionDetail detail = service.get("gingivitis");
 
         assertThat(detail.symptoms()).containsExactly("Gum bleeding");
     }
 
+    @Test
+    void wikidocSymptoms_areNotFetched_whenKnowledgeBasesHaveSymptoms() {
+        ReflectionTestUtils.setField(service, "speculateAfterMs", -1L);
+        stubAsthmaWikidoc();
+        when(repo.findById("asthma")).thenReturn(Optional.of(asthma()));
+        when(wikidata.enrichFromEntityUri("https://www.wikidata.org/entity/Q35869"))
+                .thenReturn(new WikidataClient.WikidataEnrichment("wd", List.of("Wheezing"), List.of(), List.of()));
+        when(dbpedia.enrichFromResourceUri("http://dbpedia.org/resource/Asthma"))
+                .thenReturn(new DbpediaEnrichment("db", List.of(), List.of(), List.of()));
+
+        ConditionDetail detail = service.get("asthma");
+
+        assertThat(detail.symptoms()).containsExactly("Wheezing");
+        assertThat(detail.missingFields()).isEmpty();
+        verify(wikidoc, never()).fetchSymptoms(anyString(), anyString());
+    }
+
     @Test
     void imagePreferWikidata_fallbackToDbpediaThumbnailWhenNull() {
         Condition condition = new Condition(
@@ -170,10 +216,10 @@ class ConditionServiceTest {
                         List.of("https://commons.wikimedia.org/wiki/Special:FilePath/Obesity.svg")
                 ));
 
-        when(wikidoc.fetchOverview("obesity", "Obesity")).thenReturn("overview");
-        when(wikidoc.fetchCauses("obesity", "Obesity")).thenReturn(List.of());
-        when(wikidoc.fetchRiskFactors("obesity", "Obesity")).thenReturn(List.of());
-        when(wikidoc.fetchSymptoms("obesity", "Obesity")).thenReturn(List.of());
+        when(wikidoc.fetchOverview("obesity", "Obesity")).thenReturn(completedFuture("overview"));
+        when(wikidoc.fetchCauses("obesity", "Obesity")).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchRiskFactors("obesity", "Obesity")).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchSymptoms("obesity", "Obesity")).thenReturn(completedFuture(List.of()));
 
         ConditionDetail detail = service.get("obesity");
 
@@ -192,10 +238,10 @@ class ConditionServiceTest {
                 .thenReturn(new DbpediaEnrichment(
                         "db desc", List.of("s1"), List.of("r1"), List.of("img")
                 ));
-        when(wikidoc.fetchOverview("x", "X")).thenReturn("overview");
-        when(wikidoc.fetchCauses("x", "X")).thenReturn(List.of());
-        when(wikidoc.fetchRiskFactors("x", "X")).thenReturn(List.of());
-        when(wikidoc.fetchSymptoms("x", "X")).thenReturn(List.of());
+        when(wikidoc.fetchOverview("x", "X")).thenReturn(completedFuture("overview"));
+        when(wikidoc.fetchCauses("x", "X")).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchRiskFactors("x", "X")).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchSymptoms("x", "X")).thenReturn(completedFuture(List.of()));
 
         ConditionDetail detail = service.get("x");
 
@@ -218,10 +264,10 @@ class ConditionServiceTest {
                 .thenReturn(new WikidataClient.WikidataEnrichment(
                         "wd desc", List.of("s1"), List.of("r1"), List.of("img")
                 ));
-        when(wikidoc.fetchOverview("x", "X")).thenReturn("overview");
-        when(wikidoc.fetchCauses("x", "X")).thenReturn(List.of());
-        when(wikidoc.fetchRiskFactors("x", "X")).thenReturn(List.of());
-        when(wikidoc.fetchSymptoms("x", "X")).thenReturn(List.of());
+        when(wikidoc.fetchOverview("x", "X")).thenReturn(completedFuture("overview"));
+        when(wikidoc.fetchCauses("x", "X")).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchRiskFactors("x", "X")).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchSymptoms("x", "X")).thenReturn(completedFuture(List.of()));
 
         ConditionDetail detail = service.get("x");
 
@@ -250,10 +296,10 @@ class ConditionServiceTest {
                         "db", List.of(), List.of(), List.of()
                 ));
 
-        when(wikidoc.fetchOverview("obesity", "Obesity")).thenReturn("overview");
-        when(wikidoc.fetchCauses("obesity", "Obesity")).thenReturn(List.of("High calorie intake", "Smoking"));
-        when(wikidoc.fetchRiskFactors("obesity", "Obesity")).thenReturn(List.of("Sedentary lifestyle"));
-        when(wikidoc.fetchSymptoms("obesity", "Obesity")).thenReturn(List.of());
+        when(wikidoc.fetchOverview("obesity", "Obesity")).thenReturn(completedFuture("overview"));
+        when(wikidoc.fetchCauses("obesity", "Obesity")).thenReturn(completedFuture(List.of("High calorie intake", "Smoking")));
+        when(wikidoc.fetchRiskFactors("obesity", "Obesity")).thenReturn(completedFuture(List.of("Sedentary lifestyle")));
+        when(wikidoc.fetchSymptoms("obesity", "Obesity")).thenReturn(completedFuture(List.of()));
 
         ConditionDetail detail = service.get("obesity");
 
@@ -261,6 +307,203 @@ class ConditionServiceTest {
                 .containsExactly("Smoking", "High calorie intake", "Sedentary lifestyle");
     }
 
+    @Test
+    void getAll_sharesBatchEnrichment_andKeepsRequestOrder() {
+        Condition asthma = new Condition(
+                "asthma", "Asthma",
+                List.of("http://dbpedia.org/resource/Asthma", "https://www.wikidata.org/entity/Q35869")
+        );
+        Condition obesity = new Condition(
+                "obesity", "Obesity",
+                List.of("http://dbpedia.org/resource/Obesity", "https://www.wikidata.org/entity/Q12174")
+        );
+        when(repo.findById("asthma")).thenReturn(Optional.of(asthma));
+        when(repo.findById("obesity")).thenReturn(Optional.of(obesity));
+
+        when(wikidata.enrichFromEntityUris(List.of(
+                "https://www.wikidata.org/entity/Q12174", "https://www.wikidata.org/entity/Q35869")))
+                .thenReturn(Map.of(
+                        "https://www.wikidata.org/entity/Q12174",
+                        new WikidataClient.WikidataEnrichment("obesity wd", List.of(), List.of(), List.of()),
+                        "https://www.wikidata.org/entity/Q35869",
+                        new WikidataClient.WikidataEnrichment("asthma wd", List.of(), List.of(), List.of())
+                ));
+        when(dbpedia.enrichFromResourceUris(List.of(
+                "http://dbpedia.org/resource/Obesity", "http://dbpedia.org/resource/Asthma")))
+                .thenReturn(Map.of(
+                        "http://dbpedia.org/resource/Obesity",
+                        new DbpediaEnrichment(null, List.of("Increased fat"), List.of(), List.of()),
+                        "http://dbpedia.org/resource/Asthma",
+                        new DbpediaEnrichment(null, List.of("Wheezing"), List.of(), List.of())
+                ));
+
+        List<ConditionDetail> details = service.getAll(List.of("obesity", "asthma", "obesity")).conditions();
+
+        assertThat(details).extracting(ConditionDetail::identifier).containsExactly("obesity", "asthma", "obesity");
+        assertThat(details.get(0).description()).isEqualTo("obesity wd");
+        assertThat(details.get(1).symptoms()).containsExactly("Wheezing");
+        assertThat(details.get(2)).isSameAs(details.get(0));
+        verify(wikidata, times(1)).enrichFromEntityUris(anyList());
+        verify(wikidata, never()).enrichFromEntityUri(anyString());
+        verify(dbpedia, never()).enrichFromResourceUri(anyString());
+    }
+
+    @Test
+    void getAll_looksUpResourcesOneByOne_whenTheDbpediaBatchFails() {
+        Condition asthma = new Condition(
+                "asthma", "Asthma",
+                List.of("http://dbpedia.org/resource/Asthma", "https://www.wikidata.org/entity/Q35869")
+        );
+        when(repo.findById("asthma")).thenReturn(Optional.of(asthma));
+        when(wikidata.enrichFromEntityUris(anyList())).thenReturn(Map.of());
+        when(wikidata.enrichFromEntityUri("https://www.wikidata.org/entity/Q35869"))
+                .thenReturn(new WikidataClient.WikidataEnrichment(null, List.of(), List.of(), List.of()));
+        when(dbpedia.enrichFromResourceUris(anyList())).thenThrow(new UpstreamException("DBpedia responded 503"));
+        when(dbpedia.enrichFromResourceUri("http://dbpedia.org/resource/Asthma"))
+                .thenReturn(new DbpediaEnrichment("dbpedia desc", List.of("Wheezing"), List.of(), List.of()));
+
+        List<ConditionDetail> details = service.getAll(List.of("asthma")).conditions();
+
+        assertThat(details.get(0).description()).isEqualTo("dbpedia desc");
+        assertThat(details.get(0).symptoms()).containsExactly("Wheezing");
+        verify(dbpedia, times(1)).enrichFromResourceUri("http://dbpedia.org/resource/Asthma");
+    }
+
+
+    @Test
+    void getAll_listsUnknownIds_andReturnsTheKnownOnes() {
+        Condition asthma = new Condition(
+                "asthma", "Asthma",
+                List.of("http://dbpedia.org/resource/Asthma", "https://www.wikidata.org/entity/Q35869")
+        );
+        when(repo.findById("asthma")).thenReturn(Optional.of(asthma));
+        when(repo.findById("unknown")).thenReturn(Optional.empty());
+        when(wikidata.enrichFromEntityUris(anyList())).thenReturn(Map.of(
+                "https://www.wikidata.org/entity/Q35869",
+                new WikidataClient.WikidataEnrichment("asthma wd", List.of(), List.of(), List.of())
+        ));
+        when(dbpedia.enrichFromResourceUris(anyList())).thenReturn(Map.of(
+                "http://dbpedia.org/resource/Asthma",
+                new DbpediaEnrichment(null, List.of("Wheezing"), List.of(), List.of())
+        ));
+
+        BatchGetConditionsResponse response = service.getAll(List.of("unknown", "asthma", "unknown"));
+
+        assertThat(response.conditions()).extracting(ConditionDetail::identifier).containsExactly("asthma");
+        assertThat(response.missingIds()).containsExactly("unknown");
+    }
+
+    @Test
+    void upstreamFailure_servesDegradedDetail_thenRefreshesIt() {
+        stubAsthmaWikidoc();
+        when(repo.findById("asthma")).thenReturn(Optional.of(asthma()));
+        when(dbpedia.enrichFromResourceUri("http://dbpedia.org/resource/Asthma"))
+                .thenReturn(new DbpediaEnrichment(null, List.of(), List.of(), List.of()));
+        when(wikidata.enrichFromEntityUri("https://www.wikidata.org/entity/Q35869"))
+                .thenThrow(new UpstreamException("Wikidata timed out"))
+                .thenReturn(new WikidataClient.WikidataEnrichment("wd desc", List.of(), List.of(), List.of()));
+
+        ConditionDetail degraded = service.get("asthma");
+        ConditionDetail servedWhileRefreshing = service.get("asthma");
+        ConditionDetail refreshed = service.get("asthma");
+
+        assertThat(degraded.description()).isNull();
+        assertThat(servedWhileRefreshing.description()).isNull();
+        assertThat(refreshed.description()).isEqualTo("wd desc");
+    }
+
+    @Test
+    void failedRefresh_keepsLastGoodDetail() {
+        ConditionService alwaysStale = serviceWithStaleAfter(Duration.ZERO);
+        stubAsthmaWikidoc();
+        when(repo.findById("asthma")).thenReturn(Optional.of(asthma()));
+        when(dbpedia.enrichFromResourceUri("http://dbpedia.org/resource/Asthma"))
+                .thenReturn(new DbpediaEnrichment(null, List.of(), List.of(), List.of()));
+        when(wikidata.enrichFromEntityUri("https://www.wikidata.org/entity/Q35869"))
+                .thenReturn(new WikidataClient.WikidataEnrichment("wd desc", List.of(), List.of(), List.of()))
+                .thenThrow(new UpstreamException("Wikidata timed out"));
+
+        alwaysStale.get("asthma");
+        ConditionDetail afterFailedRefresh = alwaysStale.get("asthma");
+        ConditionDetail duringRetryBackoff = alwaysStale.get("asthma");
+
+        assertThat(afterFailedRefresh.description()).isEqualTo("wd desc");
+        assertThat(duringRetryBackoff.description()).isEqualTo("wd desc");
+        verify(wikidata, times(2)).enrichFromEntityUri("https://www.wikidata.org/entity/Q35869");
+    }
+
+    @Test
+    void concurrentMisses_shareOneBuild() throws Exception {
+        stubAsthmaWikidoc();
+        when(repo.findById("asthma")).thenReturn(Optional.of(asthma()));
+        when(dbpedia.enrichFromResourceUri("http://dbpedia.org/resource/Asthma"))
+                .thenReturn(new DbpediaEnrichment(null, List.of(), List.of(), List.of()));
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(wikidata.enrichFromEntityUri("https://www.wikidata.org/entity/Q35869")).thenAnswer(invocation -> {
+            building.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new WikidataClient.WikidataEnrichment("wd desc", List.of(), List.of(), List.of());
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        try {
+            Future<ConditionDetail> first = callers.submit(() -> service.get("asthma"));
+            assertThat(building.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<ConditionDetail> second = callers.submit(() -> service.get("asthma"));
+            Future<List<ConditionDetail>> batch = callers.submit(() -> service.getAll(List.of("asthma")).conditions());
+            Thread.sleep(100);
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS).description()).isEqualTo("wd desc");
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(first.get());
+            assertThat(batch.get(5, TimeUnit.SECONDS)).containsExactly(first.get());
+        } finally {
+            callers.shutdownNow();
+        }
+        verify(wikidata, times(1)).enrichFromEntityUri("https://www.wikidata.org/entity/Q35869");
+        verify(wikidoc, times(1)).fetchOverview("asthma", "Asthma");
+    }
+
+    @Test
+    void deadline_returnsFinishedFields_andCompletesDetailFromTheSameCalls() throws Exception {
+        stubAsthmaWikidoc();
+        when(repo.findById("asthma")).thenReturn(Optional.of(asthma()));
+        when(dbpedia.enrichFromResourceUri("http://dbpedia.org/resource/Asthma"))
+                .thenReturn(new DbpediaEnrichment(null, List.of(), List.of(), List.of()));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean boundedByDeadline = new AtomicBoolean();
+        when(wikidata.enrichFromEntityUri("https://www.wikidata.org/entity/Q35869")).thenAnswer(invocation -> {
+            boundedByDeadline.set(Deadline.current().isBounded());
+            release.await(5, TimeUnit.SECONDS);
+            return new WikidataClient.WikidataEnrichment("wd desc", List.of(), List.of(), List.of());
+        });
+
+        try (ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor = virtualThreads;
+            ConditionService withDeadline = serviceWithStaleAfter(Duration.ofMinutes(30));
+            ReflectionTestUtils.setField(withDeadline, "deadlineMs", 1000L);
+
+            ConditionDetail partial = withDeadline.get("asthma");
+            release.countDown();
+
+            assertThat(partial.description()).isNull();
+            assertThat(partial.wikidocSnippet()).isEqualTo("overview");
+            assertThat(partial.missingFields()).contains("description", "symptoms").doesNotContain("wikidocSnippet");
+
+            ConditionDetail completed = partial;
+            for (int attempt = 0; attempt < 100 && !completed.missingFields().isEmpty(); attempt++) {
+                Thread.sleep(20);
+                completed = withDeadline.get("asthma");
+            }
+            assertThat(completed.description()).isEqualTo("wd desc");
+            assertThat(completed.missingFields()).isEmpty();
+        }
+        assertThat(boundedByDeadline).isFalse();
+        verify(wikidata, times(1)).enrichFromEntityUri("https://www.wikidata.org/entity/Q35869");
+        verify(wikidoc, times(1)).fetchOverview("asthma", "Asthma");
+    }
+
     @Test
     void list_returnsSummaries() {
         when(repo.findAll()).thenReturn(List.of(
@@ -283,4 +526,18 @@ class ConditionServiceTest {
         assertThatThrownBy(() -> service.get("nope"))
                 .isInstanceOf(IllegalArgumentException.class);
     }
+
+    private static Condition asthma() {
+        return new Condition(
+                "asthma", "Asthma",
+                List.of("http://dbpedia.org/resource/Asthma", "https://www.wikidata.org/entity/Q35869")
+        );
+    }
+
+    private void stubAsthmaWikidoc() {
+        when(wikidoc.fetchOverview("asthma", "Asthma")).thenReturn(completedFuture("overview"));
+        when(wikidoc.fetchCauses("asthma", "Asthma")).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchRiskFactors("asthma", "Asthma")).thenReturn(completedFuture(List.of()));
+        when(wikidoc.fetchSymptoms("asthma", "Asthma")).thenReturn(completedFuture(List.of()));
+    }
 }
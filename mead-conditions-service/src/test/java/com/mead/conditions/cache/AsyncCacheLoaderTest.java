@@ -0,0 +1,65 @@
+package com.mead.conditions.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncCacheLoaderTest {
+
+    private final ConcurrentMapCache cache = new ConcurrentMapCache("wikidocOverview");
+    private final AsyncCacheLoader loader = new AsyncCacheLoader(cache);
+
+    @Test
+    void concurrentMissesOfOneKey_shareOneLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = loader.get("obesity", () -> {
+            loads.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> second = loader.get("obesity", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("second load");
+        });
+        assertThat(first).isNotDone();
+        upstream.complete("Obesity overview");
+
+        assertThat(first.join()).isEqualTo("Obesity overview");
+        assertThat(second.join()).isEqualTo("Obesity overview");
+        assertThat(loads).hasValue(1);
+        assertThat(cache.get("obesity", String.class)).isEqualTo("Obesity overview");
+    }
+
+    @Test
+    void failedLoad_isNotCached() {
+        CompletableFuture<String> failed = loader.get("obesity", () ->
+                CompletableFuture.failedFuture(new IllegalStateException("WikiDoc timed out")));
+
+        assertThatThrownBy(failed::join).isInstanceOf(CompletionException.class)
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThat(cache.get("obesity")).isNull();
+        assertThat(loader.get("obesity", () -> CompletableFuture.completedFuture("Obesity overview")).join())
+                .isEqualTo("Obesity overview");
+    }
+
+    @Test
+    void nullValues_areCachedLikeOtherValues() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            loader.get("rare", () -> {
+                loads.incrementAndGet();
+                return CompletableFuture.completedFuture(null);
+            }).join();
+        }
+
+        assertThat(loads).hasValue(1);
+    }
+}
@@ -0,0 +1,132 @@
+package com.mead.conditions.enrich;
+
+import com.mead.conditions.enrich.DbpediaClient.DbpediaEnrichment;
+import com.mead.conditions.exception.UpstreamException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static com.mead.conditions.config.CachingConfig.DBPEDIA_ENRICHMENT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DbpediaBatchEnrichmentTest {
+
+    private static final String ASTHMA = "http://dbpedia.org/resource/Asthma";
+    private static final String OBESITY = "http://dbpedia.org/resource/Obesity";
+    private static final String DIABETES = "http://dbpedia.org/resource/Diabetes_mellitus";
+
+    private SparqlHttpClient sparql;
+    private CacheManager cacheManager;
+    private DbpediaClient client;
+
+    @BeforeEach
+    void setUp() {
+        sparql = mock(SparqlHttpClient.class);
+        cacheManager = new ConcurrentMapCacheManager();
+        client = new DbpediaClient(sparql, Runnable::run, cacheManager);
+        ReflectionTestUtils.setField(client, "endpoint", "https://dbpedia.org/sparql");
+        ReflectionTestUtils.setField(client, "batchSize", 25);
+    }
+
+    @Test
+    void splitsRowsPerResource_appliesFallbacks_andFillsCache() {
+        when(sparql.selectRows(any())).thenReturn(List.of(
+                Map.of("item", ASTHMA, "comment", "asthma comment"),
+                Map.of("item", ASTHMA, "abstract", "asthma abstract"),
+                Map.of("item", ASTHMA, "symptomLiteral", "Wheezing, coughing"),
+                Map.of("item", OBESITY, "causeLabel", "High-calorie diet"),
+                Map.of("item", OBESITY, "complicationLiteral", "Diabetes"),
+                Map.of("item", OBESITY, "img", "http://commons.wikimedia.org/x.jpg")
+        ));
+
+        Map<String, DbpediaEnrichment> result = client.enrichFromResourceUris(List.of(ASTHMA, OBESITY));
+
+        assertThat(result.get(ASTHMA).description()).isEqualTo("asthma abstract");
+        assertThat(result.get(ASTHMA).symptoms()).containsExactly("Wheezing", "coughing");
+        assertThat(result.get(OBESITY).riskFactors()).containsExactly("High-calorie diet");
+        assertThat(result.get(OBESITY).images()).containsExactly("http://commons.wikimedia.org/x.jpg");
+        assertThat(cacheManager.getCache(DBPEDIA_ENRICHMENT).get(ASTHMA, DbpediaEnrichment.class))
+                .isEqualTo(result.get(ASTHMA));
+        assertThat(cacheManager.getCache(DBPEDIA_ENRICHMENT).get(OBESITY, DbpediaEnrichment.class))
+                .isEqualTo(result.get(OBESITY));
+        verify(sparql, times(1)).selectRows(any());
+    }
+
+    @Test
+    void skipsCachedResources_andDoesNotCacheResourcesWithoutRows() {
+        DbpediaEnrichment cached = new DbpediaEnrichment("cached", List.of(), List.of(), List.of());
+        cacheManager.getCache(DBPEDIA_ENRICHMENT).put(ASTHMA, cached);
+        when(sparql.selectRows(any())).thenReturn(List.of());
+
+        Map<String, DbpediaEnrichment> result = client.enrichFromResourceUris(List.of(ASTHMA, OBESITY));
+
+        assertThat(result).containsOnlyKeys(ASTHMA);
+        assertThat(result.get(ASTHMA)).isSameAs(cached);
+        assertThat(cacheManager.getCache(DBPEDIA_ENRICHMENT).get(OBESITY)).isNull();
+        ArgumentCaptor<SparqlHttpClient.SelectRequest> request = ArgumentCaptor.forClass(SparqlHttpClient.SelectRequest.class);
+        verify(sparql).selectRows(request.capture());
+        assertThat(request.getValue().sparql()).contains("<" + OBESITY + ">").doesNotContain("<" + ASTHMA + ">");
+    }
+
+    @Test
+    void splitsResourcesIntoBatchesOfBatchSize() {
+        ReflectionTestUtils.setField(client, "batchSize", 2);
+        when(sparql.selectRows(any())).thenReturn(List.of());
+
+        client.enrichFromResourceUris(List.of(ASTHMA, OBESITY, DIABETES, ASTHMA));
+
+        ArgumentCaptor<SparqlHttpClient.SelectRequest> requests = ArgumentCaptor.forClass(SparqlHttpClient.SelectRequest.class);
+        verify(sparql, times(2)).selectRows(requests.capture());
+        assertThat(requests.getAllValues().get(0).sparql())
+                .contains("<" + ASTHMA + "> <" + OBESITY + ">")
+                .doesNotContain(DIABETES);
+        assertThat(requests.getAllValues().get(1).sparql())
+                .contains("VALUES ?item { <" + DIABETES + "> }");
+    }
+
+    @Test
+    void failedBatch_fails_butKeepsEarlierBatchesCached() {
+        ReflectionTestUtils.setField(client, "batchSize", 1);
+        when(sparql.selectRows(any()))
+                .thenReturn(List.of(Map.of("item", ASTHMA, "abstract", "asthma abstract")))
+                .thenThrow(new UpstreamException("DBpedia responded 503"));
+
+        assertThatThrownBy(() -> client.enrichFromResourceUris(List.of(ASTHMA, OBESITY)))
+                .isInstanceOf(UpstreamException.class);
+
+        assertThat(cacheManager.getCache(DBPEDIA_ENRICHMENT).get(ASTHMA, DbpediaEnrichment.class).description())
+                .isEqualTo("asthma abstract");
+        assertThat(cacheManager.getCache(DBPEDIA_ENRICHMENT).get(OBESITY)).isNull();
+    }
+
+    @Test
+    void batchFillingItsRowLimit_isQueriedAgainOneResourceAtATime() {
+        List<Map<String, String>> asthmaRows = IntStream.range(0, 10_000)
+                .mapToObj(i -> Map.of("item", ASTHMA, "symptomLabel", "symptom " + i))
+                .toList();
+        when(sparql.selectRows(any())).thenAnswer(invocation -> {
+            String query = invocation.<SparqlHttpClient.SelectRequest>getArgument(0).sparql();
+            if (query.contains("<" + ASTHMA + "> <" + OBESITY + ">")) return asthmaRows;
+            if (query.contains("<" + ASTHMA + ">")) return asthmaRows.subList(0, 100);
+            return List.of(Map.of("item", OBESITY, "abstract", "obesity abstract"));
+        });
+
+        Map<String, DbpediaEnrichment> result = client.enrichFromResourceUris(List.of(ASTHMA, OBESITY));
+
+        assertThat(result.get(ASTHMA).symptoms()).hasSize(50);
+        assertThat(result.get(OBESITY).description()).isEqualTo("obesity abstract");
+        assertThat(cacheManager.getCache(DBPEDIA_ENRICHMENT).get(OBESITY, DbpediaEnrichment.class))
+                .isEqualTo(result.get(OBESITY));
+        verify(sparql, times(3)).selectRows(any());
+    }
+}
@@ -0,0 +1,76 @@
+package com.mead.conditions.enrich;
+
+import com.mead.conditions.enrich.HtmlTextExtractor.Block;
+import com.mead.conditions.enrich.HtmlTextExtractor.Heading;
+import com.mead.conditions.enrich.HtmlTextExtractor.Kind;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HtmlTextExtractorTest {
+
+    @Test
+    void skipsNoiseSubtrees_andCleansText() {
+        String html = """
+                <style>.mw-parser-output p { margin: 0 }</style>
+                <div id="toc" class="toc"><div><ul><li>1 Overview</li></ul></div></div>
+                <p><b>Asthma</b> is a <a href="/Lung">lung</a> disease<sup class="reference">[1]</sup> &amp; a common one [2].</p>
+                <table><tr><td><table><tr><td><p>nested cell</p></td></tr></table></td></tr></table>
+                <p>Wheezing&nbsp;&#8211;&#x2009;often at night&#8224;</p>
+                <script>document.write("<p>scripted</p>")</script>
+                <ol class="references"><li>Smith J. Asthma. PMID 123.</li></ol>
+                <div class="reflist"><div><p>Reflist paragraph</p></div></div>
+                <p>After the references</p>
+                """;
+
+        List<Block> blocks = HtmlTextExtractor.extract(html);
+
+        assertThat(blocks).extracting(Block::text).containsExactly(
+                "Asthma is a lung disease & a common one .",
+                "Wheezing – often at night",
+                "After the references"
+        );
+        assertThat(blocks).extracting(Block::kind).containsOnly(Kind.PARAGRAPH);
+    }
+
+    @Test
+    void emitsNestedListItems_inDocumentOrder_withTheirStartOffsets() {
+        String html = "<ul><li>Allergens<ul><li>Pollen</li><li>Dust mites</ul></li><li>Smoking</ul>";
+
+        List<Block> blocks = HtmlTextExtractor.extract(html);
+
+        assertThat(blocks).extracting(Block::text).containsExactly("Allergens", "Pollen", "Dust mites", "Smoking");
+        assertThat(blocks).extracting(Block::kind).containsOnly(Kind.LIST_ITEM);
+        assertThat(blocks.get(0).offset()).isEqualTo(html.indexOf("<li>Allergens"));
+        assertThat(blocks.get(3).offset()).isEqualTo(html.indexOf("<li>Smoking"));
+    }
+
+    @Test
+    void collectsHeadingIds_decoded_andSkipsHeadingsInNoiseSubtrees() {
+        String html = "<div id=\"toc\"><h2 id=\"mw-toc-heading\">Contents</h2></div>"
+                + "<p id=\"Causes\">See below</p>"
+                + "<h2><span class=\"mw-headline\" id=\"Causes_&amp;_Risk\">Causes</span></h2><p>Text</p>"
+                + "<h3 id=\"Genetic\">Genetic</h3>";
+
+        List<Heading> headings = HtmlTextExtractor.parse(html).headings();
+
+        assertThat(headings).extracting(Heading::level).containsExactly(2, 3);
+        assertThat(headings).extracting(Heading::ids).containsExactly(List.of("Causes_&_Risk"), List.of("Genetic"));
+        Heading causes = headings.get(0);
+        assertThat(html.substring(causes.offset(), causes.contentOffset())).startsWith("<h2>").endsWith("</h2>");
+    }
+
+    @Test
+    void malformedMarkup_degradesToText() {
+        String html = "<p>a < b &bogus; c<p>second &#99999999; paragraph<br/>end</p><p>never closed <i";
+
+        List<Block> blocks = HtmlTextExtractor.extract(html);
+
+        assertThat(blocks).extracting(Block::text).containsExactly(
+                "a < b &bogus; c",
+                "second &#99999999; paragraph end"
+        );
+    }
+}
@@ -0,0 +1,102 @@
+package com.mead.conditions.enrich;
+
+import com.mead.conditions.config.Deadline;
+import com.mead.conditions.exception.UpstreamException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MicroBatchLoaderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentLookups_shareOneBatch_andEachGetsOnlyItsOwnValue() {
+        MicroBatchLoader<String> loader = loader(keys -> keys.stream()
+                .collect(Collectors.toMap(Function.identity(), key -> "value of " + key)));
+
+        List<CompletableFuture<String>> lookups = List.of(
+                lookup(loader, "Q1", 10_000, 3),
+                lookup(loader, "Q2", 10_000, 3),
+                lookup(loader, "Q3", 10_000, 3));
+
+        assertThat(lookups.stream().map(CompletableFuture::join))
+                .containsExactly("value of Q1", "value of Q2", "value of Q3");
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).containsExactlyInAnyOrder("Q1", "Q2", "Q3");
+        assertThat(meterRegistry.get(MicroBatchLoader.BATCH_SIZE).tag("source", "Wikidata").summary().max())
+                .isEqualTo(3.0);
+    }
+
+    @Test
+    void windowCloses_afterWindowMs_andTheNextLookupOpensANewOne() {
+        MicroBatchLoader<String> loader = loader(keys -> Map.of("Q1", "asthma"));
+
+        assertThat(loader.load("Q1", 20, 50)).isEqualTo("asthma");
+        assertThat(loader.load("Q2", 20, 50)).isNull();
+
+        assertThat(batches).containsExactly(List.of("Q1"), List.of("Q2"));
+    }
+
+    @Test
+    void failedBatch_failsEveryLookupInTheWindow() {
+        MicroBatchLoader<String> loader = loader(keys -> {
+            throw new UpstreamException("Wikidata responded 502");
+        });
+
+        CompletableFuture<String> first = lookup(loader, "Q1", 10_000, 2);
+        CompletableFuture<String> second = lookup(loader, "Q2", 10_000, 2);
+
+        assertThatThrownBy(first::join).hasCauseInstanceOf(UpstreamException.class);
+        assertThatThrownBy(second::join).hasCauseInstanceOf(UpstreamException.class);
+        assertThat(batches).hasSize(1);
+    }
+
+    @Test
+    void batchWithAnInteractiveLookup_runsUnderItsDeadline() {
+        List<Deadline> batchDeadlines = new CopyOnWriteArrayList<>();
+        MicroBatchLoader<String> loader = loader(keys -> {
+            batchDeadlines.add(Deadline.current());
+            return Map.of("Q1", "asthma", "Q2", "obesity");
+        });
+        Deadline interactive = Deadline.afterMillis(10_000);
+
+        CompletableFuture<String> background = lookup(loader, "Q1", 10_000, 2);
+        CompletableFuture<String> waiting = CompletableFuture.supplyAsync(
+                () -> interactive.call(() -> loader.load("Q2", 10_000, 2)), callers);
+
+        assertThat(background.join()).isEqualTo("asthma");
+        assertThat(waiting.join()).isEqualTo("obesity");
+        assertThat(batchDeadlines).singleElement().isSameAs(interactive);
+    }
+
+    private MicroBatchLoader<String> loader(Function<List<String>, Map<String, String>> batchLoader) {
+        return new MicroBatchLoader<>("Wikidata", keys -> {
+            batches.add(List.copyOf(keys));
+            return batchLoader.apply(keys);
+        }, callers, meterRegistry);
+    }
+
+    private CompletableFuture<String> lookup(MicroBatchLoader<String> loader, String key, long windowMs, int maxKeys) {
+        return CompletableFuture.supplyAsync(() -> loader.load(key, windowMs, maxKeys), callers);
+    }
+}
@@ -0,0 +1,160 @@
+package com.mead.conditions.enrich;
+
+import com.mead.conditions.config.Deadline;
+import com.mead.conditions.exception.UpstreamException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestHedgerTest {
+
+    private static final String PRIMARY = "https://query.wikidata.org/sparql";
+    private static final String MIRROR = "https://wikidata-mirror.example.org/sparql";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UpstreamTransport upstreamTransport;
+    private RequestHedger hedger;
+
+    @BeforeEach
+    void setUp() {
+        upstreamTransport = new UpstreamTransport(meterRegistry);
+        hedger = new RequestHedger(upstreamTransport, meterRegistry);
+        ReflectionTestUtils.setField(hedger, "enabled", true);
+        ReflectionTestUtils.setField(hedger, "percentile", 0.95);
+        ReflectionTestUtils.setField(hedger, "budgetRatio", 0.1);
+        ReflectionTestUtils.setField(hedger, "budgetMaxTokens", 10);
+        ReflectionTestUtils.setField(hedger, "minSamples", 20);
+        ReflectionTestUtils.setField(hedger, "minDelayMs", 20L);
+        ReflectionTestUtils.setField(hedger, "windowSize", 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstreamTransport.close();
+    }
+
+    @Test
+    void slowCall_isHedgedToTheMirror_andTheSlowAttemptIsCancelled() throws InterruptedException {
+        seedFastCalls();
+        CountDownLatch primaryCancelled = new CountDownLatch(1);
+
+        String answer = interactive(endpoint -> {
+            if (endpoint.equals(MIRROR)) return "mirror";
+            sleep(5000, primaryCancelled);
+            return "primary";
+        });
+
+        assertThat(answer).isEqualTo("mirror");
+        assertThat(primaryCancelled.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(count(RequestHedger.SENT)).isEqualTo(1.0);
+        assertThat(count(RequestHedger.WINS)).isEqualTo(1.0);
+        assertThat(delay("rows")).isEqualTo(20.0);
+    }
+
+    @Test
+    void hedgeThatFails_leavesThePrimaryToAnswer() {
+        seedFastCalls();
+
+        String answer = interactive(endpoint -> {
+            if (endpoint.equals(MIRROR)) throw new UpstreamException("mirror responded 502");
+            sleep(200, new CountDownLatch(1));
+            return "primary";
+        });
+
+        assertThat(answer).isEqualTo("primary");
+        assertThat(count(RequestHedger.SENT)).isEqualTo(1.0);
+        assertThat(count(RequestHedger.WINS)).isZero();
+    }
+
+    @Test
+    void spentBudget_waitsForThePrimary() {
+        ReflectionTestUtils.setField(hedger, "budgetRatio", 0.01);
+        seedFastCalls();
+        AtomicInteger attempts = new AtomicInteger();
+
+        String answer = interactive(endpoint -> {
+            attempts.incrementAndGet();
+            sleep(100, new CountDownLatch(1));
+            return endpoint;
+        });
+
+        assertThat(answer).isEqualTo(PRIMARY);
+        assertThat(attempts).hasValue(1);
+        assertThat(count(RequestHedger.SENT)).isZero();
+    }
+
+    @Test
+    void backgroundCalls_areNeverHedged() {
+        seedFastCalls();
+        AtomicInteger attempts = new AtomicInteger();
+
+        String answer = hedger.call("Wikidata", "rows", PRIMARY, MIRROR, endpoint -> {
+            attempts.incrementAndGet();
+            sleep(100, new CountDownLatch(1));
+            return endpoint;
+        });
+
+        assertThat(answer).isEqualTo(PRIMARY);
+        assertThat(attempts).hasValue(1);
+        assertThat(count(RequestHedger.SENT)).isZero();
+    }
+
+    @Test
+    void latencyOfOneQueryType_doesNotSetTheHedgeDelayOfAnother() {
+        seedFastCalls();
+        AtomicInteger attempts = new AtomicInteger();
+
+        String answer = interactive("item", endpoint -> {
+            attempts.incrementAndGet();
+            sleep(100, new CountDownLatch(1));
+            return endpoint;
+        });
+
+        assertThat(answer).isEqualTo(PRIMARY);
+        assertThat(attempts).hasValue(1);
+        assertThat(count(RequestHedger.SENT)).isZero();
+        assertThat(delay("rows")).isEqualTo(20.0);
+        assertThat(delay("item")).isEqualTo(-1.0);
+    }
+
+    private void seedFastCalls() {
+        for (int i = 0; i < 20; i++) {
+            interactive(endpoint -> "fast");
+        }
+        assertThat(count(RequestHedger.SENT)).isZero();
+    }
+
+    private String interactive(Function<String, String> attempt) {
+        return interactive("rows", attempt);
+    }
+
+    private String interactive(String queryType, Function<String, String> attempt) {
+        return Deadline.afterMillis(10_000).call(() -> hedger.call("Wikidata", queryType, PRIMARY, MIRROR, attempt));
+    }
+
+    private double delay(String queryType) {
+        return meterRegistry.get(RequestHedger.DELAY).tag("source", "Wikidata").tag("query", queryType).gauge().value();
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).tag("source", "Wikidata").counter().count();
+    }
+
+    private static void sleep(long millis, CountDownLatch interrupted) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+            throw new UpstreamException("Wikidata call interrupted");
+        }
+    }
+}
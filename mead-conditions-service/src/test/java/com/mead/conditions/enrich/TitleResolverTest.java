@@ -0,0 +1,130 @@
+package com.mead.conditions.enrich;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mead.conditions.config.Deadline;
+import com.mead.conditions.enrich.TitleResolver.ResolvedTitle;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.mead.conditions.config.CachingConfig.WIKIDOC_MISSING_TITLES;
+import static com.mead.conditions.config.CachingConfig.WIKIDOC_TITLES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TitleResolverTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> lookups = new CopyOnWriteArrayList<>();
+    private final CacheManager cacheManager = new ConcurrentMapCacheManager();
+    private HttpServer server;
+    private TitleResolver resolver;
+    private UpstreamTransport upstreamTransport;
+    private CircuitBreakers circuitBreakers;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api.php", exchange -> {
+            String titles = titlesParameter(exchange.getRequestURI().getRawQuery());
+            lookups.add(titles);
+            byte[] body = queryResponse(List.of(titles.split("\\|"))).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        upstreamTransport = new UpstreamTransport(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(upstreamTransport, "connectTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(upstreamTransport, "version", HttpClient.Version.HTTP_2);
+        circuitBreakers = new CircuitBreakers(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(circuitBreakers, "failureThreshold", 5);
+        ReflectionTestUtils.setField(circuitBreakers, "openMs", 30000L);
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(new SimpleMeterRegistry());
+        resolver = new TitleResolver(cacheManager, new CompressedTransfer(new SimpleMeterRegistry()),
+                upstreamTransport, circuitBreakers, adaptiveTimeouts);
+        ReflectionTestUtils.setField(resolver, "apiUrl", "http://localhost:" + server.getAddress().getPort() + "/api.php");
+        ReflectionTestUtils.setField(resolver, "timeoutMs", 2000L);
+        ReflectionTestUtils.setField(resolver, "userAgent", "MeAd-test");
+        ReflectionTestUtils.setField(resolver, "batchSize", 2);
+        resolver.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        upstreamTransport.close();
+    }
+
+    @Test
+    void resolvesRedirectsAndMissingPages_inBatchedLookups() {
+        Map<String, ResolvedTitle> resolved = resolver.resolveAll(List.of("Heart_attack", "Asthma", "Missing_page"), Deadline.NONE).join();
+
+        assertThat(resolved.get("Heart_attack")).isEqualTo(new ResolvedTitle("Myocardial_infarction", true));
+        assertThat(resolved.get("Asthma")).isEqualTo(new ResolvedTitle("Asthma", true));
+        assertThat(resolved.get("Missing_page")).isEqualTo(new ResolvedTitle(null, false));
+        assertThat(lookups).containsExactlyInAnyOrder("Heart_attack|Asthma", "Missing_page");
+    }
+
+    @Test
+    void cachesFoundAndMissingTitles_separately() {
+        resolver.resolveAll(List.of("Asthma", "Missing_page"), Deadline.NONE).join();
+        lookups.clear();
+
+        assertThat(resolver.resolve("Asthma", Deadline.NONE).join().exists()).isTrue();
+        assertThat(resolver.resolve("Missing_page", Deadline.NONE).join().exists()).isFalse();
+        assertThat(lookups).isEmpty();
+        assertThat(cacheManager.getCache(WIKIDOC_TITLES).get("Asthma")).isNotNull();
+        assertThat(cacheManager.getCache(WIKIDOC_MISSING_TITLES).get("Missing_page")).isNotNull();
+        assertThat(cacheManager.getCache(WIKIDOC_TITLES).get("Missing_page")).isNull();
+    }
+
+    private String queryResponse(List<String> titles) throws IOException {
+        List<Map<String, String>> normalized = new ArrayList<>();
+        List<Map<String, String>> redirects = new ArrayList<>();
+        Map<String, Object> pages = new LinkedHashMap<>();
+        for (String title : titles) {
+            String current = title.replace('_', ' ');
+            if (!current.equals(title)) normalized.add(Map.of("from", title, "to", current));
+            if (current.equals("Heart attack")) {
+                redirects.add(Map.of("from", current, "to", "Myocardial infarction"));
+                current = "Myocardial infarction";
+            }
+            pages.put(String.valueOf(pages.size() + 1), current.equals("Missing page")
+                    ? Map.of("title", current, "missing", "")
+                    : Map.of("title", current));
+        }
+        return objectMapper.writeValueAsString(Map.of("query", Map.of(
+                "normalized", normalized,
+                "redirects", redirects,
+                "pages", pages
+        )));
+    }
+
+    private static String titlesParameter(String query) {
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("titles=")) {
+                return URLDecoder.decode(parameter.substring("titles=".length()), StandardCharsets.UTF_8);
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,111 @@
+package com.mead.conditions.enrich;
+
+import com.mead.conditions.enrich.WikidataClient.WikidataEnrichment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.concurrent.CompletableFuture;
+
+import static com.mead.conditions.config.CachingConfig.WIKIDATA_ENRICHMENT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class WikidataBatchEnrichmentTest {
+
+    private static final String ASTHMA = "https://www.wikidata.org/entity/Q35869";
+    private static final String OBESITY = "https://www.wikidata.org/entity/Q12174";
+
+    private SparqlHttpClient sparql;
+    private CacheManager cacheManager;
+    private WikidataClient client;
+
+    @BeforeEach
+    void setUp() {
+        sparql = mock(SparqlHttpClient.class);
+        cacheManager = new ConcurrentMapCacheManager();
+        client = new WikidataClient(sparql, Runnable::run, cacheManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(client, "userAgent", "MeAd-test");
+        ReflectionTestUtils.setField(client, "batchSize", 50);
+    }
+
+    @Test
+    void splitsRowsPerEntity_andFillsCache() {
+        when(sparql.selectRows(any())).thenReturn(List.of(
+                Map.of("item", "http://www.wikidata.org/entity/Q35869", "desc", "asthma desc"),
+                Map.of("item", "http://www.wikidata.org/entity/Q35869", "symptomLabel", "wheeze"),
+                Map.of("item", "http://www.wikidata.org/entity/Q12174", "rfLabel", "sedentary lifestyle"),
+                Map.of("item", "http://www.wikidata.org/entity/Q12174", "img", "http://commons.wikimedia.org/x.jpg")
+        ));
+
+        Map<String, WikidataEnrichment> result = client.enrichFromEntityUris(List.of(ASTHMA, OBESITY));
+
+        assertThat(result.get(ASTHMA).description()).isEqualTo("asthma desc");
+        assertThat(result.get(ASTHMA).symptoms()).containsExactly("wheeze");
+        assertThat(result.get(OBESITY).riskFactors()).containsExactly("sedentary lifestyle");
+        assertThat(result.get(OBESITY).images()).containsExactly("http://commons.wikimedia.org/x.jpg");
+        assertThat(cacheManager.getCache(WIKIDATA_ENRICHMENT).get(OBESITY, WikidataEnrichment.class))
+                .isEqualTo(result.get(OBESITY));
+        verify(sparql, times(1)).selectRows(any());
+    }
+
+    @Test
+    void skipsCachedEntities_andDoesNotCacheEntitiesWithoutRows() {
+        WikidataEnrichment cached = new WikidataEnrichment("cached", List.of(), List.of(), List.of());
+        cacheManager.getCache(WIKIDATA_ENRICHMENT).put(ASTHMA, cached);
+        when(sparql.selectRows(any())).thenReturn(List.of());
+
+        Map<String, WikidataEnrichment> result = client.enrichFromEntityUris(List.of(ASTHMA, OBESITY));
+
+        assertThat(result).containsOnlyKeys(ASTHMA);
+        assertThat(result.get(ASTHMA)).isSameAs(cached);
+        assertThat(cacheManager.getCache(WIKIDATA_ENRICHMENT).get(OBESITY)).isNull();
+    }
+
+    @Test
+    void concurrentSingleLookups_shareOneMicroBatchQuery() {
+        ReflectionTestUtils.setField(client, "consolidatedQuery", true);
+        ReflectionTestUtils.setField(client, "microBatchEnabled", true);
+        ReflectionTestUtils.setField(client, "microBatchWindowMs", 10_000L);
+        ReflectionTestUtils.setField(client, "microBatchMaxKeys", 2);
+        when(sparql.selectRows(any())).thenReturn(List.of(
+                Map.of("item", "http://www.wikidata.org/entity/Q35869", "desc", "asthma desc"),
+                Map.of("item", "http://www.wikidata.org/entity/Q12174", "desc", "obesity desc")
+        ));
+
+        CompletableFuture<WikidataEnrichment> asthma = CompletableFuture.supplyAsync(() -> client.enrichFromEntityUri(ASTHMA));
+        CompletableFuture<WikidataEnrichment> obesity = CompletableFuture.supplyAsync(() -> client.enrichFromEntityUri(OBESITY));
+
+        assertThat(asthma.join().description()).isEqualTo("asthma desc");
+        assertThat(obesity.join().description()).isEqualTo("obesity desc");
+        verify(sparql, times(1)).selectRows(any());
+    }
+
+    @Test
+    void batchFillingItsRowLimit_isQueriedAgainOneEntityAtATime() {
+        List<Map<String, String>> asthmaRows = IntStream.range(0, 1000)
+                .mapToObj(i -> Map.of("item", "http://www.wikidata.org/entity/Q35869", "symptomLabel", "symptom " + i))
+                .toList();
+        when(sparql.selectRows(any())).thenAnswer(invocation -> {
+            String query = invocation.<SparqlHttpClient.SelectRequest>getArgument(0).sparql();
+            if (query.contains("wd:Q35869 wd:Q12174")) return asthmaRows;
+            if (query.contains("wd:Q35869")) return asthmaRows.subList(0, 500);
+            return List.of(Map.of("item", "http://www.wikidata.org/entity/Q12174", "desc", "obesity desc"));
+        });
+
+        Map<String, WikidataEnrichment> result = client.enrichFromEntityUris(List.of(ASTHMA, OBESITY));
+
+        assertThat(result.get(ASTHMA).symptoms()).hasSize(30);
+        assertThat(result.get(OBESITY).description()).isEqualTo("obesity desc");
+        assertThat(cacheManager.getCache(WIKIDATA_ENRICHMENT).get(OBESITY, WikidataEnrichment.class))
+                .isEqualTo(result.get(OBESITY));
+        verify(sparql, times(3)).selectRows(any());
+    }
+}
@@ -0,0 +1,301 @@
+package com.mead.conditions.enrich;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mead.conditions.exception.UpstreamException;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WikidocSnippetLoaderTest {
+
+    private static final String ASTHMA_HTML = """
+            <div class="mw-parser-output">
+            <h2><span class="mw-headline" id="Overview">Overview</span></h2>
+            <p>Asthma is a common long-term inflammatory disease of the airways of the lungs.</p>
+            <h2><span class="mw-headline" id="Causes">Causes</span></h2>
+            <ul><li>Air pollution</li><li>Allergens</li></ul>
+            <h3><span class="mw-headline" id="Genetic">Genetic</span></h3>
+            <ul><li>Family history</li></ul>
+            <h2><span class="mw-headline" id="Signs_and_symptoms">Signs and symptoms</span></h2>
+            <ul><li>Wheezing</li><li>Shortness of breath</li></ul>
+            </div>
+            """;
+
+    private static final String RISK_FACTORS_HTML = """
+            <h2><span class="mw-headline" id="Overview">Overview</span></h2>
+            <p>Common risk factors in the development of asthma include smoking, obesity, allergies.</p>
+            """;
+
+    private static final String OBESITY_HTML = """
+            <h2><span class="mw-headline" id="Overview">Overview</span></h2>
+            <p>Obesity is a condition in which excess body fat has accumulated.<span id="Causes"></span></p>
+            <h2><span class="mw-headline" id="Causes">Causes</span></h2>
+            <ul><li>Overeating</li><li>Inactivity</li></ul>
+            <h2><span class="mw-headline" id="Signs_&amp;_symptoms">Signs &amp; symptoms</span></h2>
+            <ul><li>Breathlessness</li><li>Joint pain</li></ul>
+            """;
+
+    private static final Set<String> EXISTING_PAGES = Set.of("Asthma", "Asthma risk factors", "Obesity");
+    private static final Map<String, String> REDIRECTS = Map.of("Bronchial Asthma", "Asthma");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private volatile CountDownLatch parseAnswers = new CountDownLatch(0);
+    private volatile int status = 200;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CompressedTransfer compressedTransfer;
+    private HttpServer server;
+    private WikidocSnippetLoader loader;
+    private UpstreamTransport upstreamTransport;
+    private CircuitBreakers circuitBreakers;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api.php", exchange -> {
+            String query = exchange.getRequestURI().getRawQuery();
+            String response;
+            if (query.contains("action=query")) {
+                String titles = parameter(query, "titles");
+                requests.add("query:" + titles);
+                response = queryResponse(List.of(titles.split("\\|")));
+            } else {
+                String page = parameter(query, "page");
+                requests.add("parse:" + page);
+                try {
+                    parseAnswers.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                response = responseFor(page);
+            }
+            byte[] body = response.getBytes(StandardCharsets.UTF_8);
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                body = gzip(body);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        String apiUrl = "http://localhost:" + server.getAddress().getPort() + "/api.php";
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+        compressedTransfer = new CompressedTransfer(meterRegistry);
+        upstreamTransport = new UpstreamTransport(meterRegistry);
+        ReflectionTestUtils.setField(upstreamTransport, "connectTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(upstreamTransport, "version", HttpClient.Version.HTTP_2);
+        circuitBreakers = new CircuitBreakers(meterRegistry);
+        ReflectionTestUtils.setField(circuitBreakers, "failureThreshold", 1);
+        ReflectionTestUtils.setField(circuitBreakers, "openMs", 30000L);
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(meterRegistry);
+        TitleResolver titleResolver = new TitleResolver(cacheManager, compressedTransfer, upstreamTransport, circuitBreakers,
+                adaptiveTimeouts);
+        ReflectionTestUtils.setField(titleResolver, "apiUrl", apiUrl);
+        ReflectionTestUtils.setField(titleResolver, "timeoutMs", 2000L);
+        ReflectionTestUtils.setField(titleResolver, "userAgent", "MeAd-test");
+        ReflectionTestUtils.setField(titleResolver, "batchSize", 50);
+        titleResolver.init();
+
+        loader = new WikidocSnippetLoader(cacheManager, titleResolver, compressedTransfer,
+                upstreamTransport, circuitBreakers, adaptiveTimeouts);
+        ReflectionTestUtils.setField(loader, "apiUrl", apiUrl);
+        ReflectionTestUtils.setField(loader, "timeoutMs", 2000L);
+        ReflectionTestUtils.setField(loader, "userAgent", "MeAd-test");
+        ReflectionTestUtils.setField(loader, "singleFetch", true);
+        loader.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        upstreamTransport.close();
+    }
+
+    @Test
+    void parsesAllSectionsLocally_fromOneFetchPerPage() {
+        String overview = loader.fetchOverview("asthma", "Asthma").join();
+        List<String> causes = loader.fetchCauses("asthma", "Asthma").join();
+        List<String> riskFactors = loader.fetchRiskFactors("asthma", "Asthma").join();
+        List<String> symptoms = loader.fetchSymptoms("asthma", "Asthma").join();
+
+        assertThat(overview).isEqualTo("Asthma is a common long-term inflammatory disease of the airways of the lungs.");
+        assertThat(causes).containsExactly("Air pollution", "Allergens", "Family history");
+        assertThat(riskFactors).containsExactly("smoking", "obesity", "allergies");
+        assertThat(symptoms).containsExactly("Wheezing", "Shortness of breath");
+        assertThat(requests).containsExactly(
+                "query:Asthma|Asthma_overview|Asthma_causes|Asthma_risk_factors",
+                "parse:Asthma",
+                "parse:Asthma_risk_factors"
+        );
+        assertThat(meterRegistry.get(CompressedTransfer.RECEIVED_BYTES)
+                .tag("source", "WikiDoc").tag("encoding", "gzip").counter().count()).isPositive();
+    }
+
+    @Test
+    void findsSectionsByTheirHeadingIds_pastDuplicateAndEscapedIds() {
+        String overview = loader.fetchOverview("obesity", "Obesity").join();
+        List<String> causes = loader.fetchCauses("obesity", "Obesity").join();
+        List<String> symptoms = loader.fetchSymptoms("obesity", "Obesity").join();
+
+        assertThat(overview).isEqualTo("Obesity is a condition in which excess body fat has accumulated.");
+        assertThat(causes).containsExactly("Overeating", "Inactivity");
+        assertThat(symptoms).containsExactly("Breathlessness", "Joint pain");
+    }
+
+    @Test
+    void resolvesTitlesOfManyConditions_inOneLookup() {
+        Map<String, String> conditionNames = new LinkedHashMap<>();
+        conditionNames.put("asthma", "Asthma");
+        conditionNames.put("gout", "Gout");
+
+        Map<String, String> baseTitles = loader.resolveTitles(conditionNames).join();
+        loader.fetchOverview("gout", "Gout").join();
+
+        assertThat(baseTitles).containsEntry("asthma", "Asthma").containsEntry("gout", "Gout");
+        assertThat(requests).containsExactly(
+                "query:Asthma|Asthma_overview|Asthma_causes|Asthma_risk_factors|Gout|Gout_overview|Gout_causes|Gout_risk_factors"
+        );
+    }
+
+    @Test
+    void followsRedirects_whenBuildingSuffixedTitles() {
+        List<String> riskFactors = loader.fetchRiskFactors("bronchial-asthma", "bronchial asthma").join();
+
+        assertThat(riskFactors).containsExactly("smoking", "obesity", "allergies");
+        assertThat(requests).containsExactly(
+                "query:Bronchial_Asthma|Bronchial_Asthma_overview|Bronchial_Asthma_causes|Bronchial_Asthma_risk_factors",
+                "query:Asthma|Asthma_overview|Asthma_causes|Asthma_risk_factors",
+                "parse:Asthma_risk_factors"
+        );
+    }
+
+    @Test
+    void returnsBeforeWikidocAnswers_andSharesOneLoadBetweenCallers() throws Exception {
+        parseAnswers = new CountDownLatch(1);
+
+        CompletableFuture<List<String>> first = loader.fetchSymptoms("asthma", "Asthma");
+        CompletableFuture<List<String>> second = loader.fetchSymptoms("asthma", "Asthma");
+        assertThat(first).isNotDone();
+        parseAnswers.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).containsExactly("Wheezing", "Shortness of breath");
+        assertThat(second.get(5, TimeUnit.SECONDS)).containsExactly("Wheezing", "Shortness of breath");
+        assertThat(requests).containsExactly(
+                "query:Asthma|Asthma_overview|Asthma_causes|Asthma_risk_factors",
+                "parse:Asthma"
+        );
+    }
+
+    @Test
+    void openCircuit_failsFastWithoutCallingWikidoc_andCachesNothing() {
+        status = 503;
+        assertThatThrownBy(() -> loader.fetchOverview("asthma", "Asthma").join())
+                .hasRootCauseInstanceOf(UpstreamException.class);
+        int sent = requests.size();
+        status = 200;
+
+        assertThatThrownBy(() -> loader.fetchOverview("asthma", "Asthma").join())
+                .hasRootCauseMessage("WikiDoc circuit is open");
+        assertThat(requests).hasSize(sent);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(data);
+        }
+        return compressed.toByteArray();
+    }
+
+    private String responseFor(String page) throws IOException {
+        return switch (page) {
+            case "Asthma" -> parseResponse("Asthma", ASTHMA_HTML, List.of(
+                    section("2", "Overview", "Overview"),
+                    section("2", "Causes", "Causes"),
+                    section("3", "Genetic", "Genetic"),
+                    section("2", "Signs and symptoms", "Signs_and_symptoms")
+            ));
+            case "Obesity" -> parseResponse("Obesity", OBESITY_HTML, List.of(
+                    section("2", "Overview", "Overview"),
+                    section("2", "Causes", "Causes"),
+                    section("2", "Signs & symptoms", "Signs_&_symptoms")
+            ));
+            case "Asthma_risk_factors" -> parseResponse("Asthma risk factors", RISK_FACTORS_HTML, List.of(
+                    section("2", "Overview", "Overview")
+            ));
+            default -> "{\"error\":{\"code\":\"missingtitle\",\"info\":\"The page you specified doesn't exist\"}}";
+        };
+    }
+
+    private String queryResponse(List<String> titles) throws IOException {
+        List<Map<String, String>> normalized = new ArrayList<>();
+        List<Map<String, String>> redirects = new ArrayList<>();
+        Map<String, Object> pages = new LinkedHashMap<>();
+        for (String title : titles) {
+            String current = title.replace('_', ' ');
+            if (!current.equals(title)) normalized.add(Map.of("from", title, "to", current));
+            if (REDIRECTS.containsKey(current)) {
+                redirects.add(Map.of("from", current, "to", REDIRECTS.get(current)));
+                current = REDIRECTS.get(current);
+            }
+            pages.put(String.valueOf(pages.size() + 1), EXISTING_PAGES.contains(current)
+                    ? Map.of("title", current)
+                    : Map.of("title", current, "missing", ""));
+        }
+        return objectMapper.writeValueAsString(Map.of("query", Map.of(
+                "normalized", normalized,
+                "redirects", redirects,
+                "pages", pages
+        )));
+    }
+
+    private String parseResponse(String title, String html, List<Map<String, String>> sections) throws IOException {
+        return objectMapper.writeValueAsString(Map.of("parse", Map.of(
+                "title", title,
+                "text", Map.of("*", html),
+                "sections", sections
+        )));
+    }
+
+    private static Map<String, String> section(String level, String line, String anchor) {
+        return Map.of("level", level, "line", line, "anchor", anchor);
+    }
+
+    private static String parameter(String query, String name) {
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                return URLDecoder.decode(parameter.substring(name.length() + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return "";
+    }
+}
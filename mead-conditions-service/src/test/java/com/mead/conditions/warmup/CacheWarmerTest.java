@@ -0,0 +1,144 @@
+package com.mead.conditions.warmup;
+
+import com.mead.conditions.dto.ConditionDto.ConditionDetail;
+import com.mead.conditions.exception.UpstreamException;
+import com.mead.conditions.repository.ConditionsRepository;
+import com.mead.conditions.repository.ConditionsRepository.Condition;
+import com.mead.conditions.service.ConditionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class CacheWarmerTest {
+
+    private ConditionsRepository repo;
+    private ConditionService conditionService;
+    private CacheWarmer warmer;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(ConditionsRepository.class);
+        conditionService = mock(ConditionService.class);
+        warmer = new CacheWarmer(repo, conditionService);
+        ReflectionTestUtils.setField(warmer, "enabled", true);
+        ReflectionTestUtils.setField(warmer, "parallelism", 2);
+        ReflectionTestUtils.setField(warmer, "batchSize", 2);
+        ReflectionTestUtils.setField(warmer, "readyFraction", 0.5);
+        when(conditionService.warmAll(anyList())).thenAnswer(invocation -> details(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        warmer.destroy();
+    }
+
+    @Test
+    void warmsEveryConditionInBatches_andBecomesReady() throws InterruptedException {
+        when(repo.findAll()).thenReturn(conditions("asthma", "obesity", "diabetes", "hypertension", "malaria"));
+
+        assertThat(warmer.isReady()).isFalse();
+        warmer.warmUp();
+        awaitTrue(() -> warmer.progress().state() == CacheWarmer.State.COMPLETED);
+
+        verify(conditionService).warmAll(List.of("asthma", "obesity"));
+        verify(conditionService).warmAll(List.of("diabetes", "hypertension"));
+        verify(conditionService).warmAll(List.of("malaria"));
+        CacheWarmer.Progress progress = warmer.progress();
+        assertThat(progress.total()).isEqualTo(5);
+        assertThat(progress.warmed()).isEqualTo(5);
+        assertThat(progress.failed()).isZero();
+        assertThat(progress.ready()).isTrue();
+        assertThat(progress.finishedAt()).isNotNull();
+    }
+
+    @Test
+    void failedBatch_isCounted_andWarmupStillCompletes() throws InterruptedException {
+        when(repo.findAll()).thenReturn(conditions("asthma", "obesity", "diabetes"));
+        when(conditionService.warmAll(List.of("asthma", "obesity"))).thenThrow(new UpstreamException("Wikidata is down"));
+
+        warmer.warmUp();
+        awaitTrue(() -> warmer.progress().state() == CacheWarmer.State.COMPLETED);
+
+        CacheWarmer.Progress progress = warmer.progress();
+        assertThat(progress.warmed()).isEqualTo(1);
+        assertThat(progress.failed()).isEqualTo(2);
+        assertThat(progress.ready()).isTrue();
+    }
+
+    @Test
+    void incompleteDetails_areNotCountedAsWarm() throws InterruptedException {
+        when(repo.findAll()).thenReturn(conditions("asthma", "obesity", "diabetes"));
+        when(conditionService.warmAll(List.of("asthma", "obesity"))).thenReturn(List.of(
+                detail("asthma"), detail("obesity", "description")));
+
+        warmer.warmUp();
+        awaitTrue(() -> warmer.progress().state() == CacheWarmer.State.COMPLETED);
+
+        CacheWarmer.Progress progress = warmer.progress();
+        assertThat(progress.warmed()).isEqualTo(2);
+        assertThat(progress.failed()).isEqualTo(1);
+    }
+
+    @Test
+    void becomesReady_onceReadyFractionIsWarm() throws InterruptedException {
+        ReflectionTestUtils.setField(warmer, "parallelism", 1);
+        ReflectionTestUtils.setField(warmer, "batchSize", 1);
+        when(repo.findAll()).thenReturn(conditions("asthma", "obesity", "diabetes", "malaria"));
+        CountDownLatch release = new CountDownLatch(1);
+        when(conditionService.warmAll(List.of("diabetes"))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        warmer.warmUp();
+        awaitTrue(() -> warmer.progress().warmed() == 2);
+
+        assertThat(warmer.progress().state()).isEqualTo(CacheWarmer.State.RUNNING);
+        assertThat(warmer.isReady()).isTrue();
+        release.countDown();
+    }
+
+    @Test
+    void disabledWarmup_isReadyRightAway() {
+        ReflectionTestUtils.setField(warmer, "enabled", false);
+
+        warmer.warmUp();
+
+        assertThat(warmer.progress().state()).isEqualTo(CacheWarmer.State.DISABLED);
+        assertThat(warmer.isReady()).isTrue();
+        verifyNoInteractions(repo, conditionService);
+    }
+
+    private static List<Condition> conditions(String... ids) {
+        return Arrays.stream(ids)
+                .map(id -> new Condition(id, id, List.of()))
+                .toList();
+    }
+
+    private static List<ConditionDetail> details(List<String> ids) {
+        return ids.stream().map(id -> detail(id)).toList();
+    }
+
+    private static ConditionDetail detail(String id, String... missingFields) {
+        return new ConditionDetail(null, null, null, id, id, null, List.of(), List.of(), List.of(), List.of(), null, List.of(missingFields));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("timed out waiting for warm-up").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
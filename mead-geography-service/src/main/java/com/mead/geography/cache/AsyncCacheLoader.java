@@ -0,0 +1,60 @@
+package com.mead.geography.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Read-through over a Spring {@link Cache} for loads that return futures, which
+ * {@code @Cacheable} cannot cache without switching the store to async mode. Misses are
+ * single-flight per key: concurrent callers share the running load. A value is stored once its
+ * load completes; failed loads are not cached.
+ */
+public class AsyncCacheLoader {
+
+    private final Cache cache;
+    private final Map<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    public AsyncCacheLoader(Cache cache) {
+        this.cache = cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> get(Object key, Supplier<CompletableFuture<T>> loader) {
+        ValueWrapper cached = cache.get(key);
+        if (cached != null) return CompletableFuture.completedFuture((T) cached.get());
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loading.putIfAbsent(key, flight);
+        if (inFlight != null) return (CompletableFuture<T>) inFlight.copy();
+
+        // The previous load may have finished between the miss and claiming the key.
+        ValueWrapper loadedMeanwhile = cache.get(key);
+        if (loadedMeanwhile != null) {
+            loading.remove(key, flight);
+            flight.complete(loadedMeanwhile.get());
+            return (CompletableFuture<T>) flight.copy();
+        }
+
+        CompletableFuture<T> load;
+        try {
+            load = loader.get();
+        } catch (RuntimeException e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+        load.whenComplete((value, error) -> {
+            if (error == null) cache.put(key, value);
+            loading.remove(key, flight);
+            if (error == null) {
+                flight.complete(value);
+            } else {
+                flight.completeExceptionally(error);
+            }
+        });
+        return (CompletableFuture<T>) flight.copy();
+    }
+}
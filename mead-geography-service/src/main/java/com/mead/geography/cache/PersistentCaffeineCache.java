@@ -0,0 +1,70 @@
+package com.mead.geography.cache;
+
+import org.springframework.cache.caffeine.CaffeineCache;
+
+/**
+ * Caffeine cache backed by an {@link AppendOnlyCacheStore}. Writes go to both tiers; a memory miss
+ * falls through to disk, so a load only runs when neither tier has the key. Values read from disk
+ * are not put back into memory, where they would start a fresh TTL: they expire with their disk
+ * record, which the store keeps no longer than this cache's own TTL.
+ * Remains a {@link CaffeineCache} so the actuator keeps reporting its statistics.
+ */
+public class PersistentCaffeineCache extends SingleFlightCaffeineCache {
+
+    private final AppendOnlyCacheStore store;
+
+    public PersistentCaffeineCache(String name,
+                                   com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                                   boolean allowNullValues,
+                                   AppendOnlyCacheStore store) {
+        super(name, cache, allowNullValues);
+        this.store = store;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = super.lookup(key);
+        return value != null ? value : store.read(key);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        super.put(key, value);
+        store.write(key, toStoreValue(value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = super.putIfAbsent(key, value);
+        if (existing == null) {
+            store.write(key, toStoreValue(value));
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        super.evict(key);
+        store.remove(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = super.evictIfPresent(key);
+        store.remove(key);
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        store.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean notEmpty = super.invalidate();
+        store.clear();
+        return notEmpty;
+    }
+}
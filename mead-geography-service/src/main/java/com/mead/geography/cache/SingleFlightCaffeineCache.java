@@ -0,0 +1,70 @@
+package com.mead.geography.cache;
+
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caffeine cache whose {@code @Cacheable(sync = true)} loads are single-flight per key but run
+ * outside Caffeine's compute lock: a load holding that lock would pin its virtual thread to the
+ * carrier for the whole upstream call and block writes to neighbouring keys.
+ */
+public class SingleFlightCaffeineCache extends CaffeineCache {
+
+    private final Map<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    public SingleFlightCaffeineCache(String name,
+                                     com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                                     boolean allowNullValues) {
+        super(name, cache, allowNullValues);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = get(key);
+        if (cached != null) return (T) cached.get();
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loading.putIfAbsent(key, flight);
+        if (inFlight != null) return (T) await(key, valueLoader, inFlight);
+
+        try {
+            // The previous load may have finished between the miss and claiming the key.
+            ValueWrapper loadedMeanwhile = get(key);
+            T value = loadedMeanwhile != null ? (T) loadedMeanwhile.get() : load(key, valueLoader);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, flight);
+            flight.completeExceptionally(new IllegalStateException("Load of " + key + " did not complete"));
+        }
+    }
+
+    private <T> T load(Object key, Callable<T> valueLoader) {
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    private static Object await(Object key, Callable<?> valueLoader, CompletableFuture<Object> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        }
+    }
+}
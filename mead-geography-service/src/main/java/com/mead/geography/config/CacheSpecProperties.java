@@ -0,0 +1,51 @@
+package com.mead.geography.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caffeine specs per cache name, e.g. {@code maximumSize=2000,expireAfterWrite=24h}.
+ * Caches without an explicit spec fall back to {@code defaultSpec}.
+ */
+@ConfigurationProperties(prefix = "mead.cache")
+public record CacheSpecProperties(String defaultSpec,
+                                  Map<String, String> specs,
+                                  Persistent persistent,
+                                  StaleWhileRevalidate staleWhileRevalidate) {
+
+    private static final String FALLBACK_SPEC = "maximumSize=1000,expireAfterWrite=1h";
+
+    public CacheSpecProperties {
+        defaultSpec = defaultSpec == null || defaultSpec.isBlank() ? FALLBACK_SPEC : defaultSpec;
+        specs = specs == null ? Map.of() : Map.copyOf(specs);
+        persistent = persistent == null ? new Persistent(false, null, null, null) : persistent;
+        staleWhileRevalidate = staleWhileRevalidate == null ? new StaleWhileRevalidate(null, null) : staleWhileRevalidate;
+    }
+
+    /**
+     * On-disk store kept under the listed caches; entries older than {@code maxAge} are ignored.
+     */
+    public record Persistent(boolean enabled, String directory, Duration maxAge, List<String> caches) {
+
+        public Persistent {
+            directory = directory == null || directory.isBlank() ? "data/cache" : directory;
+            maxAge = maxAge == null ? Duration.ofDays(7) : maxAge;
+            caches = caches == null ? List.of() : List.copyOf(caches);
+        }
+    }
+
+    /**
+     * Detail entries older than {@code staleAfter} are still served but refreshed in the background;
+     * a failed refresh is retried no sooner than {@code retryAfter}.
+     */
+    public record StaleWhileRevalidate(Duration staleAfter, Duration retryAfter) {
+
+        public StaleWhileRevalidate {
+            staleAfter = staleAfter == null ? Duration.ofMinutes(30) : staleAfter;
+            retryAfter = retryAfter == null ? Duration.ofMinutes(1) : retryAfter;
+        }
+    }
+}
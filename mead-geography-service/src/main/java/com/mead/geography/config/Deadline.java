@@ -0,0 +1,88 @@
+package com.mead.geography.config;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Time budget of one request: how long the caller waits for the upstream calls it started, which
+ * run to their own timeouts regardless. Tasks forked through {@link ForkJoinTasks} inherit it.
+ * A deadline also tells whether its calls are made for a waiting caller or in the background.
+ */
+public final class Deadline {
+
+    /**
+     * No budget. Used for background work.
+     */
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE, false, true);
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAtNanos;
+    private final boolean bounded;
+    private final boolean background;
+
+    private Deadline(long expiresAtNanos, boolean bounded, boolean background) {
+        this.expiresAtNanos = expiresAtNanos;
+        this.bounded = bounded;
+        this.background = background;
+    }
+
+    /**
+     * A deadline {@code budgetMs} from now, or {@link #NONE} when the budget is not positive.
+     */
+    public static Deadline afterMillis(long budgetMs) {
+        if (budgetMs <= 0) return NONE;
+        return new Deadline(System.nanoTime() + Duration.ofMillis(budgetMs).toNanos(), true, false);
+    }
+
+    /**
+     * This deadline for work no caller is waiting on, such as warm-ups; its upstream calls queue
+     * behind interactive ones.
+     */
+    public Deadline inBackground() {
+        return background ? this : new Deadline(expiresAtNanos, bounded, true);
+    }
+
+    /**
+     * This deadline's priority without its time limit, current while the caller starts the calls
+     * it will stop waiting for at the deadline.
+     */
+    public Deadline unbounded() {
+        return bounded ? new Deadline(Long.MAX_VALUE, false, background) : this;
+    }
+
+    public static Deadline current() {
+        Deadline deadline = CURRENT.get();
+        return deadline == null ? NONE : deadline;
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    public boolean isBackground() {
+        return background;
+    }
+
+    public long remainingMillis() {
+        if (!bounded) return Long.MAX_VALUE;
+        return Math.max(0, Duration.ofNanos(expiresAtNanos - System.nanoTime()).toMillis());
+    }
+
+    /**
+     * Runs {@code work} with this deadline as the current one.
+     */
+    public <T> T call(Supplier<T> work) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
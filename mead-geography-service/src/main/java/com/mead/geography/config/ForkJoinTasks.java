@@ -0,0 +1,81 @@
+package com.mead.geography.config;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Fork/join on the bounded {@code meadExecutor}. Enrichment forks sub-queries from tasks that
+ * already run on that executor, so a joiner runs every forked task no worker has picked up yet
+ * itself instead of waiting on it; a pool full of joiners can therefore never deadlock.
+ * Forked tasks run under the {@link Deadline} that was current when they were forked.
+ */
+public final class ForkJoinTasks {
+
+    private ForkJoinTasks() {
+    }
+
+    public static <T> CompletableFuture<T> fork(Supplier<T> supplier, Executor executor) {
+        Deadline deadline = Deadline.current();
+        ForkedTask<T> task = new ForkedTask<>(() -> deadline.call(supplier));
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Waits until all futures are done, running still-queued forked tasks on the calling thread.
+     * Completes exceptionally like {@link CompletableFuture#allOf} when any of them failed.
+     */
+    public static void joinAll(CompletableFuture<?>... futures) {
+        for (CompletableFuture<?> future : futures) {
+            if (future instanceof ForkedTask<?> task) {
+                task.run();
+            }
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    /**
+     * Waits until all futures are done or {@code deadline} passes, whichever comes first. Failures
+     * stay on the futures. Without a bound this is {@link #joinAll}; with one, queued tasks are not
+     * run inline, since the caller could not stop waiting on them at the deadline.
+     */
+    public static void awaitAll(Deadline deadline, CompletableFuture<?>... futures) {
+        try {
+            if (!deadline.isBounded()) {
+                joinAll(futures);
+                return;
+            }
+            CompletableFuture.allOf(futures).get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (CompletionException | ExecutionException | TimeoutException e) {
+            // Callers read what finished from the futures themselves.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class ForkedTask<T> extends CompletableFuture<T> implements Runnable {
+
+        private final Supplier<T> supplier;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private ForkedTask(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) return;
+            try {
+                complete(supplier.get());
+            } catch (Throwable e) {
+                completeExceptionally(new CompletionException(e));
+            }
+        }
+    }
+}
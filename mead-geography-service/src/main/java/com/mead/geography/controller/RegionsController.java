@@ -1,10 +1,16 @@
 package com.mead.geography.controller;
 
+import com.mead.geography.dto.GeographyDto.BatchGetRegionsRequest;
+import com.mead.geography.dto.GeographyDto.BatchGetRegionsResponse;
 import com.mead.geography.dto.GeographyDto.RegionDetail;
 import com.mead.geography.dto.GeographyDto.RegionSummary;
+import com.mead.geography.exception.BadRequestException;
 import com.mead.geography.service.GeographyService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -16,6 +22,9 @@ public class RegionsController {
 
     private final GeographyService service;
 
+    @Value("${mead.api.batch-get.max-ids:50}")
+    private int batchGetMaxIds;
+
     public RegionsController(GeographyService service) {
         this.service = service;
     }
@@ -29,4 +38,16 @@ public class RegionsController {
     public RegionDetail get(@PathVariable String id) {
         return service.getRegion(id);
     }
+
+    @PostMapping("/regions:batchGet")
+    public BatchGetRegionsResponse batchGet(@RequestBody BatchGetRegionsRequest request) {
+        List<String> ids = request == null ? null : request.ids();
+        if (ids == null || ids.isEmpty()) {
+            throw new BadRequestException("At least one id is required.");
+        }
+        if (ids.size() > batchGetMaxIds) {
+            throw new BadRequestException("Too many ids. Max allowed: " + batchGetMaxIds);
+        }
+        return service.getRegions(ids);
+    }
 }
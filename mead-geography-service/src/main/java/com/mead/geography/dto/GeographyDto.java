@@ -23,7 +23,17 @@ public final class GeographyDto {
             List<String> culturalFactors,
             List<String> images,
             List<String> sameAs,
-            String wikipediaSnippet
+            String wikipediaSnippet,
+            List<String> missingFields
+    ) {}
+
+    public record BatchGetRegionsRequest(
+            List<String> ids
+    ) {}
+
+    public record BatchGetRegionsResponse(
+            List<RegionDetail> regions,
+            List<String> missingIds
     ) {}
 
     private GeographyDto() {}
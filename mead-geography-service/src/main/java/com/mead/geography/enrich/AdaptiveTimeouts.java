@@ -0,0 +1,104 @@
+package com.mead.geography.enrich;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call timeouts derived from the latencies recently observed for each source and query type:
+ * {@code multiplier} times their {@code percentile}, kept between {@code floor-ms} and
+ * {@code ceiling-ms}. Until {@code min-samples} calls of a kind have been seen, the source's
+ * configured timeout is used. A call that timed out is recorded at the time it was given, a lower
+ * bound of its latency, so a source that has slowed down earns longer timeouts instead of timing
+ * out at the old ones.
+ */
+@Component
+public class AdaptiveTimeouts {
+
+    public static final String TIMEOUT = "mead.upstream.timeout";
+
+    @Value("${mead.external.adaptive-timeout.enabled:false}")
+    private boolean enabled;
+
+    @Value("${mead.external.adaptive-timeout.percentile:0.99}")
+    private double percentile;
+
+    @Value("${mead.external.adaptive-timeout.multiplier:2.0}")
+    private double multiplier;
+
+    @Value("${mead.external.adaptive-timeout.floor-ms:500}")
+    private long floorMs;
+
+    @Value("${mead.external.adaptive-timeout.ceiling-ms:20000}")
+    private long ceilingMs;
+
+    @Value("${mead.external.adaptive-timeout.min-samples:50}")
+    private int minSamples;
+
+    @Value("${mead.external.adaptive-timeout.window-size:1000}")
+    private int windowSize;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Observed> byQuery = new ConcurrentHashMap<>();
+
+    public AdaptiveTimeouts(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Timeout for the next {@code queryType} call to {@code source}, whose configured timeout is
+     * {@code configuredMs}.
+     */
+    public long timeoutMs(String source, String queryType, long configuredMs) {
+        return observed(source, queryType, configuredMs).timeoutMs();
+    }
+
+    /**
+     * Records a call started at {@code startedAtNanos}: its latency when it answered, the time it
+     * was given when it timed out. Other failures say nothing about latency and are skipped.
+     */
+    public void record(String source, String queryType, long startedAtNanos, Throwable error) {
+        if (error != null && !Timeouts.isTimeout(error)) return;
+        Observed observed = byQuery.get(key(source, queryType));
+        if (observed == null) return;
+        observed.latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos));
+    }
+
+    private Observed observed(String source, String queryType, long configuredMs) {
+        return byQuery.computeIfAbsent(key(source, queryType), key -> {
+            Observed observed = new Observed(new LatencyWindow(windowSize), configuredMs);
+            Gauge.builder(TIMEOUT, observed, Observed::timeoutMs)
+                    .description("Timeout given to the next upstream call of this kind")
+                    .tag("source", source)
+                    .tag("query", queryType)
+                    .register(meterRegistry);
+            return observed;
+        });
+    }
+
+    private static String key(String source, String queryType) {
+        return source + " " + queryType;
+    }
+
+    private final class Observed {
+
+        private final LatencyWindow latencies;
+        private final long configuredMs;
+
+        private Observed(LatencyWindow latencies, long configuredMs) {
+            this.latencies = latencies;
+            this.configuredMs = configuredMs;
+        }
+
+        private long timeoutMs() {
+            long observed = enabled ? latencies.percentile(percentile, minSamples) : -1;
+            if (observed < 0) return configuredMs;
+            return Math.clamp(Math.round(observed * multiplier), floorMs, Math.max(floorMs, ceilingMs));
+        }
+    }
+}
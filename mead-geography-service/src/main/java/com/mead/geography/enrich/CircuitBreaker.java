@@ -0,0 +1,128 @@
+package com.mead.geography.enrich;
+
+import com.mead.geography.exception.UpstreamException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker for one upstream source. After {@code failureThreshold} consecutive failures the
+ * circuit opens and calls are rejected without reaching the network; once {@code openDuration} has
+ * passed a single probe call is let through, which closes the circuit when it succeeds and opens it
+ * again when it fails. Rejected calls fail with an {@link UpstreamException}, so callers keep
+ * serving their last cached value instead of caching an empty result.
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public static final String STATE = "mead.upstream.circuit.state";
+    public static final String REJECTED = "mead.upstream.circuit.rejected";
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String source;
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+    private final Counter rejected;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long probeStartedAt;
+
+    public CircuitBreaker(String source, int failureThreshold, Duration openDuration, MeterRegistry meterRegistry) {
+        this(source, failureThreshold, openDuration, meterRegistry, Clock.systemUTC());
+    }
+
+    CircuitBreaker(String source, int failureThreshold, Duration openDuration, MeterRegistry meterRegistry, Clock clock) {
+        this.source = source;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDuration = openDuration;
+        this.clock = clock;
+        this.rejected = Counter.builder(REJECTED)
+                .description("Upstream calls rejected while the circuit was open")
+                .tag("source", source)
+                .register(meterRegistry);
+        Gauge.builder(STATE, this, breaker -> breaker.state().ordinal())
+                .description("Circuit state: 0 closed, 1 open, 2 half-open")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code call} unless the circuit is open, recording how it completes.
+     */
+    public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> call) {
+        if (!tryAcquire()) return CompletableFuture.failedFuture(rejection());
+        CompletableFuture<T> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            onFailure();
+            return CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((value, error) -> {
+            if (error == null) {
+                onSuccess();
+            } else {
+                onFailure();
+            }
+        });
+    }
+
+    /**
+     * Whether a call may go out now. While half-open only the probe may; a probe that never
+     * reported back is replaced after another {@code openDuration}.
+     */
+    public synchronized boolean tryAcquire() {
+        long now = clock.millis();
+        boolean allowed = switch (state) {
+            case CLOSED -> true;
+            case OPEN -> now - openedAt >= openDuration.toMillis();
+            case HALF_OPEN -> now - probeStartedAt >= openDuration.toMillis();
+        };
+        if (!allowed) {
+            rejected.increment();
+            return false;
+        }
+        if (state != State.CLOSED) {
+            state = State.HALF_OPEN;
+            probeStartedAt = now;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("{} circuit closed", source);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            log.warn("{} circuit opened after {} consecutive failures", source, consecutiveFailures);
+            state = State.OPEN;
+            openedAt = clock.millis();
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public UpstreamException rejection() {
+        return new UpstreamException(source + " circuit is open");
+    }
+}
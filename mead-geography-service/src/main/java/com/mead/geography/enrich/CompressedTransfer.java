@@ -0,0 +1,215 @@
+package com.mead.geography.enrich;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compressed transfer for upstream HTTP calls. Requests advertise the encodings that can be decoded
+ * here, response bodies are decoded as they stream in, and the bytes received on the wire are
+ * counted per source in {@value #RECEIVED_BYTES}, tagged with the response's content encoding.
+ * Brotli is only offered when a decoder ({@code org.brotli:dec}) is on the classpath.
+ */
+@Component
+public class CompressedTransfer {
+
+    public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String RECEIVED_BYTES = "mead.upstream.received.bytes";
+
+    /**
+     * Jena decodes gzip itself but rejects Brotli, so SPARQL endpoints are only offered gzip.
+     */
+    public static final String SPARQL_ACCEPT_ENCODING = "gzip";
+
+    private static final String IDENTITY = "identity";
+    private static final int BUFFER_SIZE = 8192;
+    private static final Constructor<? extends InputStream> BROTLI_DECODER = brotliDecoder();
+
+    private final MeterRegistry meterRegistry;
+
+    public CompressedTransfer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Value for {@value #HEADER_ACCEPT_ENCODING} on requests whose bodies go through {@link #decode}.
+     */
+    public String acceptEncoding() {
+        return BROTLI_DECODER != null ? "gzip, deflate, br" : "gzip, deflate";
+    }
+
+    /**
+     * Wraps {@code handler} so the bytes of each response are counted as they arrive, before decoding.
+     */
+    public <T> BodyHandler<T> metered(String source, BodyHandler<T> handler) {
+        return responseInfo -> new CountingSubscriber<>(
+                handler.apply(responseInfo),
+                receivedBytes(source, contentEncoding(responseInfo.headers()))
+        );
+    }
+
+    /**
+     * Wraps {@code client} so every response it receives is counted under {@code source}. For
+     * libraries such as Jena that send through a client of their own choosing.
+     */
+    public HttpClient metered(String source, HttpClient client) {
+        return new MeteredHttpClient(client, source);
+    }
+
+    /**
+     * Returns the body of {@code response} decoded according to its {@code Content-Encoding}.
+     *
+     * @throws IOException when the encoding is not one this class advertised
+     */
+    public InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        String encoding = contentEncoding(response.headers());
+        InputStream body = response.body();
+        return switch (encoding) {
+            case IDENTITY -> body;
+            case "gzip", "x-gzip" -> new GZIPInputStream(body, BUFFER_SIZE);
+            case "deflate" -> inflate(body);
+            case "br" -> brotli(body);
+            default -> throw new IOException("Unsupported Content-Encoding " + encoding);
+        };
+    }
+
+    private Counter receivedBytes(String source, String encoding) {
+        return Counter.builder(RECEIVED_BYTES)
+                .description("Upstream response bytes received on the wire")
+                .baseUnit("bytes")
+                .tag("source", source)
+                .tag("encoding", encoding)
+                .register(meterRegistry);
+    }
+
+    private static String contentEncoding(HttpHeaders headers) {
+        String encoding = headers.firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+        return encoding.isEmpty() ? IDENTITY : encoding;
+    }
+
+    /**
+     * HTTP {@code deflate} is meant to be zlib-wrapped, but some servers send raw deflate data;
+     * the first two bytes tell which one arrived.
+     */
+    private static InputStream inflate(InputStream body) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(body, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        boolean zlib = first >= 0 && second >= 0 && (first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0;
+        return new InflaterInputStream(buffered, new Inflater(!zlib), BUFFER_SIZE);
+    }
+
+    private static InputStream brotli(InputStream body) throws IOException {
+        if (BROTLI_DECODER == null) throw new IOException("Unsupported Content-Encoding br");
+        try {
+            return BROTLI_DECODER.newInstance(body);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException cause) throw cause;
+            throw new IOException("Brotli decoder failed", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Brotli decoder unavailable", e);
+        }
+    }
+
+    private static Constructor<? extends InputStream> brotliDecoder() {
+        try {
+            return Class.forName("org.brotli.dec.BrotliInputStream")
+                    .asSubclass(InputStream.class)
+                    .getConstructor(InputStream.class);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static final class CountingSubscriber<T> implements BodySubscriber<T> {
+
+        private final BodySubscriber<T> delegate;
+        private final Counter counter;
+
+        private CountingSubscriber(BodySubscriber<T> delegate, Counter counter) {
+            this.delegate = delegate;
+            this.counter = counter;
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            delegate.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            long bytes = 0;
+            for (ByteBuffer item : items) {
+                bytes += item.remaining();
+            }
+            counter.increment(bytes);
+            delegate.onNext(items);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            delegate.onComplete();
+        }
+    }
+
+    private final class MeteredHttpClient extends ForwardingHttpClient {
+
+        private final String source;
+
+        private MeteredHttpClient(HttpClient delegate, String source) {
+            super(delegate);
+            this.source = source;
+        }
+
+        @Override
+        public <T> HttpResponse<T> send(HttpRequest request, BodyHandler<T> handler)
+                throws IOException, InterruptedException {
+            return delegate.send(request, metered(source, handler));
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, BodyHandler<T> handler) {
+            return delegate.sendAsync(request, metered(source, handler));
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                                BodyHandler<T> handler,
+                                                                HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+            return delegate.sendAsync(request, metered(source, handler), pushPromiseHandler);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.mead.geography.enrich;
+
+import java.util.Arrays;
+
+/**
+ * The latencies of the last {@code size} upstream calls, for reading percentiles of recent traffic.
+ */
+public class LatencyWindow {
+
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    public LatencyWindow(int size) {
+        this.samples = new long[Math.max(1, size)];
+    }
+
+    public synchronized void record(long latencyMs) {
+        samples[next] = Math.max(0, latencyMs);
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    /**
+     * The latency under which {@code percentile} of the recorded calls answered, or -1 while
+     * fewer than {@code minSamples} have been recorded.
+     */
+    public long percentile(double percentile, int minSamples) {
+        long[] sorted;
+        synchronized (this) {
+            if (count == 0 || count < minSamples) return -1;
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(Math.clamp(percentile, 0.0, 1.0) * sorted.length) - 1;
+        return sorted[Math.max(0, rank)];
+    }
+}
@@ -0,0 +1,176 @@
+package com.mead.geography.enrich;
+
+import com.mead.geography.config.Deadline;
+import com.mead.geography.exception.UpstreamException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Hedges slow upstream calls: a call still unanswered once the observed {@code percentile} latency
+ * of its source and query type has passed is sent a second time, to the mirror endpoint when one
+ * is configured, and whichever answers first is used while the other is cancelled. Latencies are
+ * kept per query type so that slow batch queries do not delay hedging of quick single lookups.
+ * Hedges are paid for out of a per-source {@link TokenBudget} holding up to
+ * {@code budget-max-tokens}, so at most {@code budget-ratio} of calls are duplicated, and calls
+ * under a background {@link Deadline} are never hedged since no one is waiting on them.
+ */
+@Component
+public class RequestHedger {
+
+    public static final String SENT = "mead.upstream.hedge.sent";
+    public static final String WINS = "mead.upstream.hedge.wins";
+    public static final String DELAY = "mead.upstream.hedge.delay";
+
+    @Value("${mead.external.hedging.enabled:false}")
+    private boolean enabled;
+
+    @Value("${mead.external.hedging.percentile:0.95}")
+    private double percentile;
+
+    @Value("${mead.external.hedging.budget-ratio:0.05}")
+    private double budgetRatio;
+
+    @Value("${mead.external.hedging.budget-max-tokens:10}")
+    private int budgetMaxTokens;
+
+    @Value("${mead.external.hedging.min-samples:20}")
+    private int minSamples;
+
+    @Value("${mead.external.hedging.min-delay-ms:50}")
+    private long minDelayMs;
+
+    @Value("${mead.external.hedging.window-size:500}")
+    private int windowSize;
+
+    private final UpstreamTransport upstreamTransport;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, SourceStats> bySource = new ConcurrentHashMap<>();
+
+    public RequestHedger(UpstreamTransport upstreamTransport, MeterRegistry meterRegistry) {
+        this.upstreamTransport = upstreamTransport;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs {@code attempt} against {@code endpoint}, hedging it against {@code mirrorEndpoint}
+     * (or {@code endpoint} again when there is no mirror) if it is slower to answer than earlier
+     * {@code queryType} calls to {@code source}.
+     */
+    public <T> T call(String source, String queryType, String endpoint, String mirrorEndpoint,
+                      Function<String, T> attempt) {
+        SourceStats stats = stats(source);
+        LatencyWindow latencies = stats.latencies(queryType);
+        Deadline deadline = Deadline.current();
+        long delayMs = enabled && !deadline.isBackground() ? delayMs(latencies) : -1;
+        stats.budget.deposit();
+        if (delayMs < 0) return timed(latencies, attempt, endpoint);
+
+        CompletionService<T> race = new ExecutorCompletionService<>(upstreamTransport.executor());
+        Future<T> primary = race.submit(() -> deadline.call(() -> timed(latencies, attempt, endpoint)));
+        Future<T> hedge = null;
+        try {
+            Future<T> first = race.poll(delayMs, TimeUnit.MILLISECONDS);
+            if (first != null || !stats.budget.tryWithdraw()) {
+                return resultOf(source, primary);
+            }
+            String hedgeEndpoint = mirrorEndpoint == null || mirrorEndpoint.isBlank() ? endpoint : mirrorEndpoint;
+            hedge = race.submit(() -> deadline.call(() -> timed(latencies, attempt, hedgeEndpoint)));
+            stats.sent.increment();
+
+            Future<T> winner = race.take();
+            try {
+                winner.get();
+            } catch (ExecutionException e) {
+                // The first to answer failed; the other one may still succeed.
+                winner = race.take();
+            }
+            if (winner == hedge) stats.wins.increment();
+            return resultOf(source, winner);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamException(source + " call interrupted");
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) hedge.cancel(true);
+        }
+    }
+
+    private <T> T timed(LatencyWindow latencies, Function<String, T> attempt, String endpoint) {
+        long startedAt = System.nanoTime();
+        T result = attempt.apply(endpoint);
+        latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        return result;
+    }
+
+    private static <T> T resultOf(String source, Future<T> attempt) throws InterruptedException {
+        try {
+            return attempt.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new UpstreamException(source, e.getCause());
+        }
+    }
+
+    private SourceStats stats(String source) {
+        return bySource.computeIfAbsent(source, this::newStats);
+    }
+
+    private long delayMs(LatencyWindow latencies) {
+        long observed = latencies.percentile(percentile, minSamples);
+        return observed < 0 ? -1 : Math.max(minDelayMs, observed);
+    }
+
+    private SourceStats newStats(String source) {
+        return new SourceStats(
+                source,
+                new TokenBudget(budgetRatio, budgetMaxTokens, 0),
+                Counter.builder(SENT)
+                        .description("Upstream calls sent a second time after running past the hedge delay")
+                        .tag("source", source)
+                        .register(meterRegistry),
+                Counter.builder(WINS)
+                        .description("Hedged upstream calls answered first by the hedge")
+                        .tag("source", source)
+                        .register(meterRegistry));
+    }
+
+    private final class SourceStats {
+
+        private final String source;
+        private final TokenBudget budget;
+        private final Counter sent;
+        private final Counter wins;
+        private final Map<String, LatencyWindow> latenciesByQuery = new ConcurrentHashMap<>();
+
+        private SourceStats(String source, TokenBudget budget, Counter sent, Counter wins) {
+            this.source = source;
+            this.budget = budget;
+            this.sent = sent;
+            this.wins = wins;
+        }
+
+        private LatencyWindow latencies(String queryType) {
+            return latenciesByQuery.computeIfAbsent(queryType, key -> {
+                LatencyWindow latencies = new LatencyWindow(windowSize);
+                Gauge.builder(DELAY, latencies, RequestHedger.this::delayMs)
+                        .description("Time after which an unanswered upstream call is hedged, -1 until enough calls are seen")
+                        .tag("source", source)
+                        .tag("query", queryType)
+                        .register(meterRegistry);
+                return latencies;
+            });
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.mead.geography.enrich;
+
+import org.apache.jena.query.QueryCancelledException;
+
+import java.net.http.HttpTimeoutException;
+
+/**
+ * Tells upstream timeouts apart from other failures: a call that timed out says the source is slow
+ * or overloaded, while an error answer or an open circuit says nothing about its latency.
+ */
+final class Timeouts {
+
+    private Timeouts() {
+    }
+
+    static boolean isTimeout(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpTimeoutException || cause instanceof QueryCancelledException) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,36 @@
+package com.mead.geography.enrich;
+
+/**
+ * Caps extra upstream calls at a share of regular traffic: every regular call earns
+ * {@code ratio} of a token, up to {@code maxTokens}, and every extra call spends a whole one.
+ * The budget starts with {@code initialTokens}. Tokens are kept in thousandths so the ratio adds
+ * up exactly.
+ */
+public class TokenBudget {
+
+    private static final int UNIT = 1000;
+
+    private final int earnedPerCall;
+    private final int capacity;
+    private int balance;
+
+    public TokenBudget(double ratio, int maxTokens, int initialTokens) {
+        this.earnedPerCall = (int) Math.round(Math.clamp(ratio, 0.0, 1.0) * UNIT);
+        this.capacity = Math.max(1, maxTokens) * UNIT;
+        this.balance = Math.clamp((long) initialTokens * UNIT, 0, capacity);
+    }
+
+    public synchronized void deposit() {
+        balance = Math.min(capacity, balance + earnedPerCall);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        if (balance < UNIT) return false;
+        balance -= UNIT;
+        return true;
+    }
+
+    synchronized double tokens() {
+        return (double) balance / UNIT;
+    }
+}
@@ -1,20 +1,33 @@
 package com.mead.geography.enrich;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static com.mead.geography.config.AsyncConfig.MEAD_EXECUTOR;
+import static com.mead.geography.config.CachingConfig.WIKIDATA_ENRICHMENT;
+import static com.mead.geography.config.CachingConfig.WIKIDATA_REGION_TYPE;
+import static com.mead.geography.config.ForkJoinTasks.fork;
+import static com.mead.geography.config.ForkJoinTasks.joinAll;
 
 @Component
 public class WikidataClient {
@@ -30,23 +43,49 @@ public class WikidataClient {
     private static final int LIMIT_LIST = 30;
     private static final int LIMIT_IMAGES = 10;
     private static final int LIMIT_TYPES = 15;
+    private static final int LIMIT_CONSOLIDATED_ROWS = 500;
+    private static final Pattern ENTITY_ID_PATTERN = Pattern.compile("Q\\d+");
 
     @Value("${mead.external.wikidata.endpoint}")
     private String endpoint;
 
+    @Value("${mead.external.wikidata.mirror-endpoint:}")
+    private String mirrorEndpoint;
+
     @Value("${mead.external.wikidata.user-agent}")
     private String userAgent;
 
     @Value("${mead.external.wikidata.timeout-ms:8000}")
     private long timeoutMs;
 
+    @Value("${mead.external.wikidata.consolidated-query:true}")
+    private boolean consolidatedQuery;
+
+    @Value("${mead.external.wikidata.batch-size:50}")
+    private int batchSize;
+
+    @Value("${mead.external.wikidata.micro-batch.enabled:false}")
+    private boolean microBatchEnabled;
+
+    @Value("${mead.external.wikidata.micro-batch.window-ms:5}")
+    private long microBatchWindowMs;
+
+    @Value("${mead.external.wikidata.micro-batch.max-keys:50}")
+    private int microBatchMaxKeys;
+
     private final SparqlHttpClient sparql;
     private final Executor meadExecutor;
+    private final CacheManager cacheManager;
+    private final MicroBatchLoader<WikidataEnrichment> microBatchLoader;
 
     public WikidataClient(SparqlHttpClient sparql,
-                          @Qualifier(MEAD_EXECUTOR) Executor meadExecutor) {
+                          @Qualifier(MEAD_EXECUTOR) Executor meadExecutor,
+                          CacheManager cacheManager,
+                          MeterRegistry meterRegistry) {
         this.sparql = sparql;
         this.meadExecutor = meadExecutor;
+        this.cacheManager = cacheManager;
+        this.microBatchLoader = new MicroBatchLoader<>("Wikidata", this::fetchBatch, meadExecutor, meterRegistry);
     }
 
     public record WikidataEnrichment(
@@ -55,19 +94,22 @@ public class WikidataClient {
             String populationDensity,
             List<String> culturalFactors,
             List<String> images
-    ) {}
+    ) implements Serializable {}
 
-    @Cacheable("wikidataRegionType")
+    @Cacheable(cacheNames = WIKIDATA_REGION_TYPE, sync = true)
     public String fetchRegionType(String wikidataEntityUri) {
         if (wikidataEntityUri == null || wikidataEntityUri.isBlank()) return null;
-        String entityId = wikidataEntityUri.substring(wikidataEntityUri.lastIndexOf('/') + 1);
+        String entityId = toEntityId(wikidataEntityUri);
         List<String> typeLabels = fetchInstanceOfLabels(entityId);
         return mapInstanceOfLabels(typeLabels);
     }
 
-    @Cacheable("wikidataEnrichment")
+    @Cacheable(cacheNames = WIKIDATA_ENRICHMENT, sync = true)
     public WikidataEnrichment enrichFromEntityUri(String wikidataEntityUri) {
-        String entityId = wikidataEntityUri.substring(wikidataEntityUri.lastIndexOf('/') + 1);
+        String entityId = toEntityId(wikidataEntityUri);
+        if (consolidatedQuery) {
+            return fetchConsolidated(entityId);
+        }
 
         CompletableFuture<String> descriptionFuture = executeAsync(() -> fetchDescription(entityId));
         CompletableFuture<String> populationFuture = executeAsync(() -> fetchPopulationTotal(entityId));
@@ -76,13 +118,13 @@ public class WikidataClient {
         CompletableFuture<List<String>> culturalFuture = executeAsync(() -> fetchCulturalFactors(entityId));
         CompletableFuture<List<String>> imagesFuture = executeAsync(() -> fetchImageUrls(entityId));
 
-        CompletableFuture.allOf(
+        joinAll(
                 descriptionFuture,
                 populationFuture,
                 densityFuture,
                 culturalFuture,
                 imagesFuture
-        ).join();
+        );
 
         return new WikidataEnrichment(
                 descriptionFuture.join(),
@@ -93,6 +135,114 @@ public class WikidataClient {
         );
     }
 
+    /**
+     * Enriches many entities with one {@code VALUES} query per batch and stores each result
+     * under the same key {@link #enrichFromEntityUri} uses, so later single lookups are cache hits.
+     * Entities that come back without any rows are left out and not cached.
+     */
+    public Map<String, WikidataEnrichment> enrichFromEntityUris(Collection<String> wikidataEntityUris) {
+        Map<String, WikidataEnrichment> results = new LinkedHashMap<>();
+        Cache cache = cacheManager.getCache(WIKIDATA_ENRICHMENT);
+        Map<String, String> pendingUrisByEntityId = new LinkedHashMap<>();
+
+        for (String uri : new LinkedHashSet<>(wikidataEntityUris)) {
+            if (uri == null) continue;
+            WikidataEnrichment cached = cache == null ? null : cache.get(uri, WikidataEnrichment.class);
+            if (cached != null) {
+                results.put(uri, cached);
+                continue;
+            }
+            String entityId = toEntityId(uri);
+            if (ENTITY_ID_PATTERN.matcher(entityId).matches()) {
+                pendingUrisByEntityId.putIfAbsent(entityId, uri);
+            }
+        }
+
+        // Batches run one after another so a full warm-up stays within Wikidata's rate limits.
+        for (List<String> batch : partition(new ArrayList<>(pendingUrisByEntityId.keySet()), batchSize)) {
+            fetchBatch(batch).forEach((entityId, enrichment) -> {
+                String uri = pendingUrisByEntityId.get(entityId);
+                if (cache != null) cache.put(uri, enrichment);
+                results.put(uri, enrichment);
+            });
+        }
+        return results;
+    }
+
+    /**
+     * With micro-batching on, lookups of different entities made within the same short window
+     * share one {@code VALUES} query instead of sending one query each. Malformed ids are queried
+     * on their own so they cannot break anyone else's batch.
+     */
+    private WikidataEnrichment fetchConsolidated(String entityId) {
+        WikidataEnrichment enrichment = microBatchEnabled && ENTITY_ID_PATTERN.matcher(entityId).matches()
+                ? microBatchLoader.load(entityId, microBatchWindowMs, microBatchMaxKeys)
+                : fetchBatch(List.of(entityId)).get(entityId);
+        return enrichment != null ? enrichment : new WikidataEnrichment(null, null, null, List.of(), List.of());
+    }
+
+    /**
+     * Fetches every enrichment field for the given entities in one round trip. Each UNION
+     * branch binds a single variable, so the fields don't multiply into a cross product of rows.
+     * The row limit is shared by the whole batch, so one entity with many rows could cut off
+     * another's; a batch that fills it is queried again one entity at a time rather than cached
+     * with results missing.
+     */
+    private Map<String, WikidataEnrichment> fetchBatch(List<String> entityIds) {
+        String values = entityIds.stream()
+                .map(id -> "wd:" + id)
+                .collect(Collectors.joining(" "));
+
+        int rowLimit = LIMIT_CONSOLIDATED_ROWS * entityIds.size();
+        String sparqlQuery = """
+                PREFIX wd: <%s>
+                PREFIX wdt: <%s>
+                PREFIX schema: <%s>
+                PREFIX wikibase: <%s>
+                PREFIX bd: <%s>
+
+                SELECT ?item ?desc ?population ?area ?langLabel ?demonym ?img WHERE {
+                  VALUES ?item { %s }
+                  { ?item schema:description ?desc . FILTER(LANG(?desc) = "%s") }
+                  UNION { ?item wdt:P1082 ?population . }
+                  UNION { ?item wdt:P2046 ?area . }
+                  UNION { ?item wdt:P37 ?lang . }
+                  UNION { ?item wdt:P1549 ?demonym . FILTER(LANG(?demonym) = "%s" || LANG(?demonym) = "") }
+                  UNION { ?item wdt:P18 ?img . }
+                  SERVICE wikibase:label { bd:serviceParam wikibase:language "%s". }
+                } LIMIT %d
+                """.formatted(WD, WDT, SCHEMA, WIKIBASE, BD,
+                values, LANG_EN, LANG_EN, LANG_EN, rowLimit);
+
+        List<Map<String, String>> batchRows = sparql.selectRows(createRequest(sparqlQuery, null));
+        if (batchRows.size() >= rowLimit && entityIds.size() > 1) {
+            Map<String, WikidataEnrichment> enrichments = new LinkedHashMap<>();
+            entityIds.forEach(entityId -> enrichments.putAll(fetchBatch(List.of(entityId))));
+            return enrichments;
+        }
+
+        Map<String, List<Map<String, String>>> rowsByEntityId = batchRows.stream()
+                .filter(row -> row.containsKey("item"))
+                .collect(Collectors.groupingBy(row -> toEntityId(row.get("item")), LinkedHashMap::new, Collectors.toList()));
+
+        Map<String, WikidataEnrichment> enrichments = new LinkedHashMap<>();
+        rowsByEntityId.forEach((entityId, rows) -> {
+            String population = firstValue(rows, "population");
+            List<String> factors = new ArrayList<>();
+            factors.addAll(columnValues(rows, "langLabel", LIMIT_LIST));
+            factors.addAll(columnValues(rows, "demonym", LIMIT_LIST));
+
+            enrichments.put(entityId, new WikidataEnrichment(
+                    firstValue(rows, "desc"),
+                    population,
+                    calculateDensity(population, firstValue(rows, "area")),
+                    removeDuplicates(factors),
+                    columnValues(rows, "img", LIMIT_IMAGES)
+            ));
+        });
+        return enrichments;
+    }
+
     private String fetchDescription(String entityId) {
         String sparqlQuery = """
                 PREFIX wd: <%s>
@@ -205,6 +355,7 @@ public class WikidataClient {
     private SparqlHttpClient.SelectRequest createRequest(String sparqlQuery, String varName) {
         return new SparqlHttpClient.SelectRequest(
                 endpoint,
+                mirrorEndpoint,
                 timeoutMs,
                 Map.of(SparqlHttpClient.HEADER_USER_AGENT, userAgent),
                 sparqlQuery,
@@ -214,7 +365,34 @@ public class WikidataClient {
     }
 
     private <T> CompletableFuture<T> executeAsync(Supplier<T> supplier) {
-        return CompletableFuture.supplyAsync(supplier, meadExecutor);
+        return fork(supplier, meadExecutor);
+    }
+
+    private static String toEntityId(String entityUri) {
+        return entityUri.substring(entityUri.lastIndexOf('/') + 1);
+    }
+
+    private static <T> List<List<T>> partition(List<T> values, int size) {
+        List<List<T>> batches = new ArrayList<>();
+        int step = Math.max(1, size);
+        for (int i = 0; i < values.size(); i += step) {
+            batches.add(values.subList(i, Math.min(i + step, values.size())));
+        }
+        return batches;
+    }
+
+    private static String firstValue(List<Map<String, String>> rows, String varName) {
+        List<String> values = columnValues(rows, varName, LIMIT_ONE);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    private static List<String> columnValues(List<Map<String, String>> rows, String varName, int limit) {
+        return rows.stream()
+                .map(row -> row.get(varName))
+                .filter(Objects::nonNull)
+                .distinct()
+                .limit(limit)
+                .toList();
     }
 
     private static Double parseDouble(String value) {
@@ -1,26 +1,52 @@
 package com.mead.geography.enrich;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mead.geography.cache.AsyncCacheLoader;
+import com.mead.geography.config.Deadline;
+import com.mead.geography.enrich.TitleResolver.ResolvedTitle;
+import com.mead.geography.exception.UpstreamException;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
+import static com.mead.geography.config.CachingConfig.WIKIPEDIA_REGION_SUMMARY;
+import static com.mead.geography.config.CachingConfig.WIKIPEDIA_SUMMARY_VALIDATORS;
+
+/**
+ * Loads the lead summary of a region's Wikipedia page. Requests are sent with
+ * {@link HttpClient#sendAsync} and chained as future stages, so no caller thread waits on the
+ * network; response bodies are read on virtual threads. Summaries are cached per region under the
+ * same keys {@code @Cacheable} used.
+ */
 @Component
 public class WikipediaSummaryLoader {
 
@@ -38,28 +64,98 @@ public class WikipediaSummaryLoader {
     @Value("${mead.external.wikipedia.user-agent:MeAd/0.0.1}")
     private String userAgent;
 
+    @Value("${mead.external.wikipedia.revalidate:true}")
+    private boolean revalidate;
+
     private HttpClient httpClient;
+    private Executor bodyExecutor;
+    private CircuitBreaker circuitBreaker;
+    private AsyncCacheLoader summaryCache;
+    private Cache validatorCache;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CacheManager cacheManager;
+    private final TitleResolver titleResolver;
+    private final CompressedTransfer compressedTransfer;
+    private final UpstreamTransport upstreamTransport;
+    private final CircuitBreakers circuitBreakers;
+    private final AdaptiveTimeouts adaptiveTimeouts;
+
+    /**
+     * A page summary with the validators it was served with, for conditional requests once the
+     * region summary built from it has expired.
+     */
+    public record ValidatedSummary(String etag, String lastModified, String summary) implements Serializable {}
+
+    /**
+     * An answer to a GET; {@code body} is null unless the status is 200.
+     */
+    private record Fetched<T>(int status, T body, HttpHeaders headers) {}
+
+    @FunctionalInterface
+    private interface BodyReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    public WikipediaSummaryLoader(CacheManager cacheManager,
+                                  TitleResolver titleResolver,
+                                  CompressedTransfer compressedTransfer,
+                                  UpstreamTransport upstreamTransport,
+                                  CircuitBreakers circuitBreakers,
+                                  AdaptiveTimeouts adaptiveTimeouts) {
+        this.cacheManager = cacheManager;
+        this.titleResolver = titleResolver;
+        this.compressedTransfer = compressedTransfer;
+        this.upstreamTransport = upstreamTransport;
+        this.circuitBreakers = circuitBreakers;
+        this.adaptiveTimeouts = adaptiveTimeouts;
+    }
 
     @PostConstruct
     void init() {
-        httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofMillis(timeoutMs))
-                .build();
-    }
-
-    @Cacheable("wikipediaRegionSummary")
-    public String loadSummary(String regionId, String regionName) {
-        List<String> candidates = buildCandidates(regionId, regionName);
-        for (String candidate : candidates) {
-            String resolved = resolveRedirect(candidate);
-            String title = resolved != null ? resolved : candidate;
-            String summary = fetchSummary(title);
-            if (summary != null && !summary.isBlank() && !isPlaceholder(summary)) {
-                return summary.trim();
-            }
+        httpClient = upstreamTransport.clientFor(summaryUrl);
+        bodyExecutor = upstreamTransport.executor();
+        circuitBreaker = circuitBreakers.forSource("Wikipedia");
+        summaryCache = new AsyncCacheLoader(cacheManager.getCache(WIKIPEDIA_REGION_SUMMARY));
+        validatorCache = cacheManager.getCache(WIKIPEDIA_SUMMARY_VALIDATORS);
+    }
+
+    public CompletableFuture<String> loadSummary(String regionId, String regionName) {
+        Deadline deadline = Deadline.current();
+        return summaryCache.get(new SimpleKey(regionId, regionName), () -> {
+            List<String> candidates = buildCandidates(regionId, regionName);
+            return titleResolver.resolveAll(candidates, deadline)
+                    .thenCompose(resolved -> firstSummary(candidates, 0, resolved, deadline));
+        });
+    }
+
+    /**
+     * Tries the candidates in order, fetching the next one only when the previous had no usable summary.
+     */
+    private CompletableFuture<String> firstSummary(List<String> candidates,
+                                                   int index,
+                                                   Map<String, ResolvedTitle> resolved,
+                                                   Deadline deadline) {
+        if (index >= candidates.size()) return CompletableFuture.completedFuture(null);
+        String candidate = candidates.get(index);
+        ResolvedTitle resolvedTitle = resolved.get(candidate);
+        if (resolvedTitle != null && !resolvedTitle.exists()) {
+            return firstSummary(candidates, index + 1, resolved, deadline);
         }
-        return null;
+        String title = resolvedTitle != null ? resolvedTitle.title() : candidate;
+        return fetchSummary(title, deadline).thenCompose(summary ->
+                summary != null && !summary.isBlank() && !isPlaceholder(summary)
+                        ? CompletableFuture.completedFuture(summary.trim())
+                        : firstSummary(candidates, index + 1, resolved, deadline));
+    }
+
+    /**
+     * Resolves the candidate page titles of many regions in a few batched lookups, so the summaries
+     * loaded for them afterwards need no lookup of their own.
+     */
+    public CompletableFuture<Map<String, ResolvedTitle>> resolveTitles(Map<String, String> regionNames) {
+        List<String> candidates = new ArrayList<>();
+        regionNames.forEach((regionId, regionName) -> candidates.addAll(buildCandidates(regionId, regionName)));
+        return titleResolver.resolveAll(candidates, Deadline.current());
     }
 
     private List<String> buildCandidates(String regionId, String regionName) {
@@ -92,79 +188,140 @@ public class WikipediaSummaryLoader {
         return builder.toString();
     }
 
-    private String resolveRedirect(String pageTitle) {
-        String url = buildQueryUrl(pageTitle);
-        try {
-            String response = sendRequest(url);
-            if (response == null) return null;
-            JsonNode pages = objectMapper.readTree(response).path("query").path("pages");
-            if (!pages.isObject()) return null;
-            for (JsonNode page : pages) {
-                if (page.has("missing")) continue;
-                String title = page.path("title").asText(null);
-                if (title == null || title.isBlank()) continue;
-                return title.replace(' ', '_');
-            }
-        } catch (Exception e) {
-            log.debug("Wikipedia redirect lookup failed for {}: {}", pageTitle, e.getMessage());
-        }
-        return null;
+    /**
+     * In revalidation mode a page fetched before is requested with its validators; a 304 answers
+     * with the stored summary and restarts its time in the cache without downloading it again.
+     */
+    private CompletableFuture<String> fetchSummary(String pageTitle, Deadline deadline) {
+        if (pageTitle == null) return CompletableFuture.completedFuture(null);
+        String url = summaryUrl + encodePath(pageTitle);
+        ValidatedSummary stored = revalidate && validatorCache != null
+                ? validatorCache.get(pageTitle, ValidatedSummary.class)
+                : null;
+        return sendRequest(url, "summary", conditionalHeaders(stored), WikipediaSummaryLoader::readSummary, deadline)
+                .thenApply(fetched -> {
+                    if (fetched.status() == 304 && stored != null) {
+                        validatorCache.put(pageTitle, stored);
+                        return stored.summary();
+                    }
+                    if (revalidate && validatorCache != null && fetched.status() == 200) {
+                        storeValidators(pageTitle, fetched);
+                    }
+                    return fetched.body();
+                });
     }
 
-    private String fetchSummary(String pageTitle) {
-        if (pageTitle == null) return null;
-        String url = summaryUrl + encodePath(pageTitle);
-        try {
-            String response = sendRequest(url);
-            if (response == null) return null;
-            JsonNode root = objectMapper.readTree(response);
-            String type = root.path("type").asText("");
-            if ("disambiguation".equalsIgnoreCase(type)) return null;
-            String extract = root.path("extract").asText(null);
-            if (extract == null || extract.isBlank()) return null;
-            return extract.replaceAll("\\s+", " ").trim();
-        } catch (Exception e) {
-            log.debug("Wikipedia summary failed for {}: {}", pageTitle, e.getMessage());
-            return null;
-        }
+    private static Map<String, String> conditionalHeaders(ValidatedSummary stored) {
+        if (stored == null) return Map.of();
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (stored.etag() != null) headers.put("If-None-Match", stored.etag());
+        if (stored.lastModified() != null) headers.put("If-Modified-Since", stored.lastModified());
+        return headers;
     }
 
-    private String buildQueryUrl(String pageTitle) {
-        String encodedTitle = URLEncoder.encode(pageTitle, StandardCharsets.UTF_8);
-        String base = queryUrl.endsWith("?") ? queryUrl : queryUrl + "?";
-        return new StringBuilder(base)
-                .append("action=query")
-                .append("&titles=").append(encodedTitle)
-                .append("&redirects=1")
-                .append("&format=json")
-                .toString();
+    private void storeValidators(String pageTitle, Fetched<String> fetched) {
+        String etag = fetched.headers().firstValue("ETag").orElse(null);
+        String lastModified = fetched.headers().firstValue("Last-Modified").orElse(null);
+        if (etag == null && lastModified == null) return;
+        validatorCache.put(pageTitle, new ValidatedSummary(etag, lastModified, fetched.body()));
+    }
+
+    /**
+     * Streams {@code type} and {@code extract} out of a page summary and stops reading once both are in.
+     */
+    private static String readSummary(JsonParser parser) throws IOException {
+        String type = null;
+        String extract = null;
+        if (parser.nextToken() != JsonToken.START_OBJECT) return null;
+        while ((type == null || extract == null) && parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("type".equals(field) && value == JsonToken.VALUE_STRING) {
+                type = parser.getText();
+            } else if ("extract".equals(field) && value == JsonToken.VALUE_STRING) {
+                extract = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if ("disambiguation".equalsIgnoreCase(type)) return null;
+        if (extract == null || extract.isBlank()) return null;
+        return extract.replaceAll("\\s+", " ").trim();
     }
 
     private String encodePath(String value) {
         return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
     }
 
-    private String sendRequest(String url) {
+    /**
+     * Sends a GET with {@code headers} without blocking the caller and hands the decompressed body
+     * of a 200 to {@code reader} as a JSON stream on a virtual thread. Bodies that are not the JSON
+     * {@code reader} expects read as null; the call fails with an {@link UpstreamException} on
+     * 429, 5xx or I/O errors, and without being sent while the circuit is open.
+     */
+    private <T> CompletableFuture<Fetched<T>> sendRequest(String url,
+                                                          String queryType,
+                                                          Map<String, String> headers,
+                                                          BodyReader<T> reader,
+                                                          Deadline deadline) {
+        long limitMs = adaptiveTimeouts.timeoutMs("Wikipedia", queryType, timeoutMs);
+        HttpRequest request;
         try {
-            HttpRequest request = HttpRequest.newBuilder()
+            HttpRequest.Builder builder = HttpRequest.newBuilder()
                     .uri(URI.create(url))
-                    .timeout(Duration.ofMillis(timeoutMs))
+                    .timeout(Duration.ofMillis(limitMs))
                     .header("User-Agent", userAgent)
                     .header("Accept", "application/json")
-                    .GET()
-                    .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() != 200) {
-                log.debug("Wikipedia response {} for {}", response.statusCode(), url);
-                return null;
+                    .header(CompressedTransfer.HEADER_ACCEPT_ENCODING, compressedTransfer.acceptEncoding());
+            headers.forEach(builder::header);
+            request = builder.GET().build();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpResponse.BodyHandler<InputStream> bodyHandler =
+                compressedTransfer.metered("Wikipedia", HttpResponse.BodyHandlers.ofInputStream());
+        long startedAt = System.nanoTime();
+        // Sent with the deadline current, so the transport queues it by the caller's priority.
+        return circuitBreaker.callAsync(() -> deadline.call(() -> httpClient.sendAsync(request, bodyHandler))
+                .whenComplete((response, error) -> adaptiveTimeouts.record("Wikipedia", queryType, startedAt, error))
+                .handleAsync((response, error) -> {
+                    if (error != null) throw failure(error);
+                    return readBody(url, response, reader);
+                }, bodyExecutor));
+    }
+
+    private <T> Fetched<T> readBody(String url, HttpResponse<InputStream> response, BodyReader<T> reader) {
+        try (InputStream body = response.body()) {
+            int status = response.statusCode();
+            if (isServerFailure(status)) {
+                throw new UpstreamException("Wikipedia responded " + status + " for " + url);
+            }
+            if (status != 200) {
+                if (status != 304) log.debug("Wikipedia response {} for {}", status, url);
+                return new Fetched<>(status, null, response.headers());
+            }
+            try (JsonParser parser = objectMapper.createParser(compressedTransfer.decode(response))) {
+                return new Fetched<>(status, reader.read(parser), response.headers());
+            } catch (JsonProcessingException e) {
+                log.debug("Wikipedia response for {} could not be read: {}", url, e.getMessage());
+                return new Fetched<>(status, null, response.headers());
             }
-            return response.body();
-        } catch (Exception e) {
-            log.warn("Wikipedia request failed: {}", e.getMessage());
-            return null;
+        } catch (IOException e) {
+            throw failure(e);
         }
     }
 
+    private static UpstreamException failure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof UpstreamException upstream) return upstream;
+        log.warn("Wikipedia request failed: {}", cause.getMessage());
+        return new UpstreamException("Wikipedia", cause);
+    }
+
+    private static boolean isServerFailure(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
+    }
+
     private boolean isPlaceholder(String text) {
         String lower = text.toLowerCase();
         return lower.contains("may refer to") || lower.contains("may also refer to");
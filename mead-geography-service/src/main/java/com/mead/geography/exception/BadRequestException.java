@@ -0,0 +1,11 @@
+package com.mead.geography.exception;
+
+/**
+ * Thrown when a request is well-formed but its content is not acceptable, e.g. an empty or oversized batch.
+ */
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
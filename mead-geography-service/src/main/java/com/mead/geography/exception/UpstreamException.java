@@ -0,0 +1,16 @@
+package com.mead.geography.exception;
+
+/**
+ * Thrown when an external source cannot be reached or answers with an error, so a failed lookup
+ * is not mistaken for one that found nothing (and cached as such).
+ */
+public class UpstreamException extends RuntimeException {
+
+    public UpstreamException(String source, Throwable cause) {
+        super(source + " request failed: " + cause.getMessage(), cause);
+    }
+
+    public UpstreamException(String message) {
+        super(message);
+    }
+}
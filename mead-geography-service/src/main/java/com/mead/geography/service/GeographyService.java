@@ -1,5 +1,10 @@
 package com.mead.geography.service;
 
+import com.mead.geography.cache.StaleWhileRevalidateCache;
+import com.mead.geography.cache.StaleWhileRevalidateCache.Loaded;
+import com.mead.geography.config.Deadline;
+import com.mead.geography.config.FallbackChain;
+import com.mead.geography.dto.GeographyDto.BatchGetRegionsResponse;
 import com.mead.geography.dto.GeographyDto.RegionDetail;
 import com.mead.geography.dto.GeographyDto.RegionSummary;
 import com.mead.geography.enrich.DbpediaClient;
@@ -10,24 +15,33 @@ import com.mead.geography.enrich.WikidataClient.WikidataEnrichment;
 import com.mead.geography.enrich.WikipediaSummaryLoader;
 import com.mead.geography.repository.RegionsRepository;
 import com.mead.geography.repository.RegionsRepository.Region;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.mead.geography.config.AsyncConfig.MEAD_EXECUTOR;
+import static com.mead.geography.config.ForkJoinTasks.fork;
+import static com.mead.geography.config.ForkJoinTasks.awaitAll;
 
 @Service
 public class GeographyService {
 
+    private static final Logger log = LoggerFactory.getLogger(GeographyService.class);
+
     private static final String SCHEMA_ORG_CONTEXT = "https://schema.org/";
     private static final String PLACE_TYPE = "Place";
     private static final String MEAD_REGION_BASE_URL = "https://mead.example/region/";
@@ -35,22 +49,34 @@ public class GeographyService {
     private static final String WIKIDATA_ENTITY_MARKER = "wikidata.org/entity/";
     private static final String DBPEDIA_RESOURCE_MARKER = "dbpedia.org/resource/";
 
+    @Value("${mead.detail.deadline-ms:1500}")
+    private long deadlineMs;
+
+    @Value("${mead.warmup.deadline-ms:30000}")
+    private long warmupDeadlineMs;
+
+    @Value("${mead.detail.fallback.speculate-after-ms:-1}")
+    private long speculateAfterMs;
+
     private final RegionsRepository repo;
     private final WikidataClient wikidata;
     private final DbpediaClient dbpedia;
     private final WikipediaSummaryLoader wikipedia;
     private final Executor asyncExecutor;
+    private final StaleWhileRevalidateCache<RegionDetail> detailCache;
 
     public GeographyService(RegionsRepository repo,
                             WikidataClient wikidata,
                             DbpediaClient dbpedia,
                             WikipediaSummaryLoader wikipedia,
-                            @Qualifier(MEAD_EXECUTOR) Executor asyncExecutor) {
+                            @Qualifier(MEAD_EXECUTOR) Executor asyncExecutor,
+                            StaleWhileRevalidateCache<RegionDetail> detailCache) {
         this.repo = repo;
         this.wikidata = wikidata;
         this.dbpedia = dbpedia;
         this.wikipedia = wikipedia;
         this.asyncExecutor = asyncExecutor;
+        this.detailCache = detailCache;
     }
 
     public List<RegionSummary> listRegions() {
@@ -64,45 +90,240 @@ public class GeographyService {
                 .toList();
     }
 
-    @Cacheable(cacheNames = "regionDetails", key = "#regionId")
+    /**
+     * Returns the region detail, served from cache even when stale; stale or incomplete
+     * entries are rebuilt in the background. Concurrent misses for one region share a single build.
+     * A miss answers within {@code mead.detail.deadline-ms}: fields whose sources have not answered
+     * by then are listed in {@code missingFields}, and the detail is completed from those same
+     * calls, which keep their own timeouts, once they answer.
+     */
     public RegionDetail getRegion(String regionId) {
-        Region region = repo.findById(regionId)
+        Region region = findRegion(regionId);
+        return detailCache.get(regionId, () -> buildDetail(region), () -> buildDetailWithinDeadline(region));
+    }
+
+    /**
+     * Returns the details of several regions in request order, one per requested id, so an id asked
+     * for twice appears twice but is built once. Cached details are reused and details another request
+     * is already building are awaited rather than built twice; for the rest, Wikidata, DBpedia and
+     * Wikipedia title redirects are queried once per batch instead of once per region, and every
+     * remaining upstream call is started before any of them is awaited.
+     * Like {@link #getRegion}, builds answer within the request deadline. Ids that match no region are
+     * left out of the details and listed in {@code missingIds} instead of failing the batch.
+     */
+    public BatchGetRegionsResponse getRegions(List<String> regionIds) {
+        Map<String, RegionDetail> details = getRegions(regionIds, false);
+        return new BatchGetRegionsResponse(
+                regionIds.stream().map(details::get).filter(Objects::nonNull).toList(),
+                regionIds.stream().filter(id -> !details.containsKey(id)).distinct().toList()
+        );
+    }
+
+    /**
+     * Like {@link #getRegions}, for warm-ups: their upstream calls queue behind those of interactive requests,
+     * and builds wait up to {@code mead.warmup.deadline-ms} rather than the request deadline.
+     */
+    public List<RegionDetail> warmRegions(List<String> regionIds) {
+        Map<String, RegionDetail> details = getRegions(regionIds, true);
+        return regionIds.stream().map(details::get).filter(Objects::nonNull).toList();
+    }
+
+    private Map<String, RegionDetail> getRegions(List<String> regionIds, boolean background) {
+        Map<String, Region> regions = new LinkedHashMap<>();
+        regionIds.stream()
+                .distinct()
+                .forEach(regionId -> repo.findById(regionId).ifPresent(region -> regions.put(regionId, region)));
+
+        return detailCache.getAll(
+                List.copyOf(regions.keySet()),
+                regionId -> () -> buildDetail(regions.get(regionId)),
+                missingIds -> loadDetails(missingIds.stream().map(regions::get).toList(), background)
+        );
+    }
+
+    private Map<String, Loaded<RegionDetail>> loadDetails(List<Region> missing, boolean background) {
+        Deadline deadline = background ? Deadline.afterMillis(warmupDeadlineMs).inBackground() : Deadline.afterMillis(deadlineMs);
+        Map<Region, EnrichmentFutures> pending = deadline.unbounded().call(() -> startEnrichments(missing));
+
+        Map<String, Loaded<RegionDetail>> details = new LinkedHashMap<>();
+        pending.forEach((region, futures) -> details.put(region.identifier(), assembleDetail(region, futures, deadline)));
+        return details;
+    }
+
+    private Map<Region, EnrichmentFutures> startEnrichments(List<Region> missing) {
+        List<String> wikidataUris = missing.stream()
+                .map(r -> findUriByMarker(r.sameAs(), WIKIDATA_ENTITY_MARKER))
+                .filter(Objects::nonNull)
+                .toList();
+        List<String> dbpediaUris = missing.stream()
+                .map(r -> findUriByMarker(r.sameAs(), DBPEDIA_RESOURCE_MARKER))
+                .filter(Objects::nonNull)
+                .toList();
+        Map<String, String> regionNames = new LinkedHashMap<>();
+        missing.forEach(r -> regionNames.put(r.identifier(), r.name()));
+
+        // Not joined: the per-region loads below wait on these lookups while they are in flight.
+        wikipedia.resolveTitles(regionNames).exceptionally(e -> batchFailed("Wikipedia title", e));
+        CompletableFuture<Map<String, WikidataEnrichment>> wikidataBatch = wikidataUris.isEmpty()
+                ? CompletableFuture.completedFuture(Map.of())
+                : executeAsync(() -> wikidata.enrichFromEntityUris(wikidataUris)).exceptionally(e -> batchFailed("Wikidata", e));
+        CompletableFuture<Map<String, DbpediaEnrichment>> dbpediaBatch = dbpediaUris.isEmpty()
+                ? CompletableFuture.completedFuture(Map.of())
+                : executeAsync(() -> dbpedia.enrichFromResourceUris(dbpediaUris)).exceptionally(e -> batchFailed("DBpedia", e));
+
+        Map<Region, EnrichmentFutures> pending = new LinkedHashMap<>();
+        for (Region region : missing) {
+            String wikidataUri = findUriByMarker(region.sameAs(), WIKIDATA_ENTITY_MARKER);
+            String dbpediaUri = findUriByMarker(region.sameAs(), DBPEDIA_RESOURCE_MARKER);
+            pending.put(region, startEnrichment(
+                    region,
+                    wikidataBatch.thenApply(batch -> wikidataUri == null ? null : batch.get(wikidataUri)),
+                    dbpediaBatch.thenApply(batch -> dbpediaUri == null ? null : batch.get(dbpediaUri))
+            ));
+        }
+        return pending;
+    }
+
+    private Loaded<RegionDetail> buildDetail(Region region) {
+        return assembleDetail(region, startEnrichment(region), Deadline.NONE);
+    }
+
+    private Loaded<RegionDetail> buildDetailWithinDeadline(Region region) {
+        Deadline deadline = Deadline.afterMillis(deadlineMs);
+        EnrichmentFutures futures = deadline.unbounded().call(() -> startEnrichment(region));
+        return assembleDetail(region, futures, deadline);
+    }
+
+    private static <K, V> Map<K, V> batchFailed(String source, Throwable error) {
+        // Entities left out of the batch are fetched one by one, each failing on its own.
+        log.warn("{} batch enrichment failed: {}", source, error.getMessage());
+        return Map.of();
+    }
+
+    private Region findRegion(String regionId) {
+        return repo.findById(regionId)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown region: " + regionId));
+    }
+
+    private record EnrichmentFutures(
+            CompletableFuture<WikidataEnrichment> wikidata,
+            CompletableFuture<DbpediaEnrichment> dbpedia,
+            CompletableFuture<String> description,
+            CompletableFuture<String> populationTotal,
+            CompletableFuture<String> populationDensity,
+            CompletableFuture<String> summary,
+            CompletableFuture<String> regionType
+    ) {
+        void await(Deadline deadline) {
+            awaitAll(deadline, all());
+        }
+
+        boolean complete() {
+            return Stream.of(all()).allMatch(GeographyService::delivered);
+        }
+
+        boolean pending() {
+            return !Stream.of(all()).allMatch(CompletableFuture::isDone);
+        }
+
+        private CompletableFuture<?>[] all() {
+            return new CompletableFuture<?>[]{
+                    wikidata, dbpedia, description, populationTotal, populationDensity, summary, regionType
+            };
+        }
+
+        List<String> missingFields() {
+            Set<String> missing = new LinkedHashSet<>();
+            if (!delivered(regionType)) missing.add("type");
+            if (!delivered(wikidata) || !delivered(dbpedia)) {
+                missing.addAll(List.of("description", "populationTotal", "populationDensity", "culturalFactors", "images"));
+            }
+            if (!delivered(summary)) missing.add("wikipediaSnippet");
+            return List.copyOf(missing);
+        }
+    }
 
+    private EnrichmentFutures startEnrichment(Region region) {
+        return startEnrichment(region, CompletableFuture.completedFuture(null), CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Starts every upstream call for one region. The knowledge-base entities come from
+     * {@code prefetchedWikidata} and {@code prefetchedDbpedia} when those yield them, and are
+     * looked up on their own otherwise.
+     */
+    private EnrichmentFutures startEnrichment(Region region,
+                                              CompletableFuture<WikidataEnrichment> prefetchedWikidata,
+                                              CompletableFuture<DbpediaEnrichment> prefetchedDbpedia) {
         String wikidataUri = findUriByMarker(region.sameAs(), WIKIDATA_ENTITY_MARKER);
         String dbpediaUri = findUriByMarker(region.sameAs(), DBPEDIA_RESOURCE_MARKER);
 
-        CompletableFuture<WikidataEnrichment> wikidataFuture = executeAsync(() ->
+        CompletableFuture<WikidataEnrichment> wikidataFuture = orFetch(prefetchedWikidata, () ->
                 wikidataUri == null
                         ? new WikidataEnrichment(null, null, null, List.of(), List.of())
                         : wikidata.enrichFromEntityUri(wikidataUri)
         );
 
-        CompletableFuture<DbpediaEnrichment> dbpediaFuture = executeAsync(() ->
+        CompletableFuture<DbpediaEnrichment> dbpediaFuture = orFetch(prefetchedDbpedia, () ->
                 dbpediaUri == null
                         ? new DbpediaEnrichment(null, null, null, List.of(), List.of())
                         : dbpedia.enrichFromResourceUri(dbpediaUri)
         );
 
-        CompletableFuture<String> summaryFuture = executeAsync(() -> wikipedia.loadSummary(regionId, region.name()));
-
-        CompletableFuture.allOf(wikidataFuture, dbpediaFuture, summaryFuture).join();
-
-        WikidataEnrichment wikidataEnrichment = wikidataFuture.join();
-        DbpediaEnrichment dbpediaEnrichment = dbpediaFuture.join();
+        // Source priority per field; images and cultural factors are merged from both sources instead.
+        CompletableFuture<String> descriptionFuture = FallbackChain.firstUsable(GeographyService::notBlank)
+                .then(dbpediaFuture.thenApply(DbpediaEnrichment::description))
+                .then(wikidataFuture.thenApply(WikidataEnrichment::description))
+                .resolve(speculateAfterMs, asyncExecutor);
+        CompletableFuture<String> populationTotalFuture = FallbackChain.firstUsable(GeographyService::isNumeric)
+                .then(wikidataFuture.thenApply(WikidataEnrichment::populationTotal))
+                .then(dbpediaFuture.thenApply(DbpediaEnrichment::populationTotal))
+                .resolve(speculateAfterMs, asyncExecutor);
+        CompletableFuture<String> populationDensityFuture = FallbackChain.firstUsable(GeographyService::isNumeric)
+                .then(dbpediaFuture.thenApply(DbpediaEnrichment::populationDensity))
+                .then(wikidataFuture.thenApply(WikidataEnrichment::populationDensity))
+                .resolve(speculateAfterMs, asyncExecutor);
+
+        CompletableFuture<String> summaryFuture = wikipedia.loadSummary(region.identifier(), region.name());
+        CompletableFuture<String> regionTypeFuture = executeAsync(() -> resolveRegionType(region.type(), region.sameAs()));
+
+        return new EnrichmentFutures(
+                wikidataFuture,
+                dbpediaFuture,
+                descriptionFuture,
+                populationTotalFuture,
+                populationDensityFuture,
+                summaryFuture,
+                regionTypeFuture
+        );
+    }
 
-        String description = pickFirstNotBlank(dbpediaEnrichment.description(), wikidataEnrichment.description());
-        String populationTotal = pickFirstNumeric(wikidataEnrichment.populationTotal(), dbpediaEnrichment.populationTotal());
-        String populationDensity = pickFirstNumeric(dbpediaEnrichment.populationDensity(), wikidataEnrichment.populationDensity());
+    /**
+     * Merges the enrichment results that are in by the deadline into a detail. Sources that failed
+     * or are still running contribute nothing and make the result incomplete, so it is never cached
+     * as a good value. While sources are still running, the detail carries the one they will build.
+     */
+    private Loaded<RegionDetail> assembleDetail(Region region, EnrichmentFutures futures, Deadline deadline) {
+        futures.await(deadline);
+        CompletableFuture<Loaded<RegionDetail>> completion = futures.pending()
+                ? CompletableFuture.allOf(futures.all()).handle((done, error) -> assembleDetail(region, futures, Deadline.NONE))
+                : null;
+
+        WikidataEnrichment wikidataEnrichment = joinOrDefault(futures.wikidata(), new WikidataEnrichment(null, null, null, List.of(), List.of()));
+        DbpediaEnrichment dbpediaEnrichment = joinOrDefault(futures.dbpedia(), new DbpediaEnrichment(null, null, null, List.of(), List.of()));
+
+        String description = joinOrDefault(futures.description(), null);
+        String populationTotal = joinOrDefault(futures.populationTotal(), null);
+        String populationDensity = joinOrDefault(futures.populationDensity(), null);
         List<String> cultural = mergeUnique(dbpediaEnrichment.culturalFactors(), wikidataEnrichment.culturalFactors());
         List<String> images = combineAndNormalizeImages(wikidataEnrichment.images(), dbpediaEnrichment.images());
 
-        String wikipediaSnippet = fallbackSnippet(summaryFuture.join());
+        String wikipediaSnippet = fallbackSnippet(joinOrDefault(futures.summary(), null));
 
-        return new RegionDetail(
+        RegionDetail detail = new RegionDetail(
                 SCHEMA_ORG_CONTEXT,
                 MEAD_REGION_BASE_URL + region.identifier(),
-                resolveRegionType(region.type(), region.sameAs()),
+                joinOrDefault(futures.regionType(), PLACE_TYPE),
                 region.identifier(),
                 region.name(),
                 description,
@@ -111,12 +332,32 @@ public class GeographyService {
                 cultural,
                 images,
                 region.sameAs(),
-                wikipediaSnippet
+                wikipediaSnippet,
+                futures.missingFields()
         );
+        return new Loaded<>(detail, futures.complete(), completion);
     }
 
     private <T> CompletableFuture<T> executeAsync(Supplier<T> supplier) {
-        return CompletableFuture.supplyAsync(supplier, asyncExecutor);
+        return fork(supplier, asyncExecutor);
+    }
+
+    /**
+     * The prefetched value, or {@code fetch} started under the current deadline when there is none.
+     */
+    private <T> CompletableFuture<T> orFetch(CompletableFuture<T> prefetched, Supplier<T> fetch) {
+        Deadline deadline = Deadline.current();
+        return prefetched.thenCompose(value -> value != null
+                ? CompletableFuture.completedFuture(value)
+                : deadline.call(() -> executeAsync(fetch)));
+    }
+
+    private static <T> T joinOrDefault(CompletableFuture<T> future, T fallback) {
+        return delivered(future) ? future.join() : fallback;
+    }
+
+    private static boolean delivered(CompletableFuture<?> future) {
+        return future.isDone() && !future.isCompletedExceptionally();
     }
 
     private static String findUriByMarker(List<String> sameAsList, String marker) {
@@ -135,9 +376,8 @@ public class GeographyService {
         return type == null ? PLACE_TYPE : type;
     }
 
-    private static String pickFirstNotBlank(String first, String second) {
-        if (first != null && !first.isBlank()) return first;
-        return second;
+    private static boolean notBlank(String value) {
+        return value != null && !value.isBlank();
     }
 
     private static List<String> mergeUnique(List<String> first, List<String> second) {
@@ -168,7 +408,7 @@ public class GeographyService {
         return "Wikipedia summary unavailable.";
     }
 
-    private boolean isNumeric(String value) {
+    private static boolean isNumeric(String value) {
         if (value == null) return false;
         String normalized = value.replace(",", "").trim();
         if (normalized.isBlank()) return false;
@@ -180,12 +420,6 @@ public class GeographyService {
         }
     }
 
-    private String pickFirstNumeric(String first, String second) {
-        if (isNumeric(first)) return first;
-        if (isNumeric(second)) return second;
-        return pickFirstNotBlank(first, second);
-    }
-
     private RegionSummary toSummaryIfEligible(Region region) {
         if (region.type() == null || region.type().isBlank()) {
             return null;
@@ -0,0 +1,145 @@
+package com.mead.geography.warmup;
+
+import com.mead.geography.dto.GeographyDto.RegionDetail;
+import com.mead.geography.repository.RegionsRepository;
+import com.mead.geography.repository.RegionsRepository.Region;
+import com.mead.geography.service.GeographyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pre-computes the detail of every known region once the application is ready, a batch at a time
+ * with at most {@code parallelism} batches in flight. The service counts as ready once
+ * {@code ready-fraction} of the regions are warm or the warm-up has finished. A region counts as warm
+ * only when its detail came back complete; one still missing fields counts as failed.
+ */
+@Component
+public class CacheWarmer implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmer.class);
+
+    public enum State { DISABLED, PENDING, RUNNING, COMPLETED }
+
+    public record Progress(
+            State state,
+            int total,
+            int warmed,
+            int failed,
+            double warmFraction,
+            double readyFraction,
+            boolean ready,
+            Instant startedAt,
+            Instant finishedAt
+    ) {}
+
+    @Value("${mead.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mead.warmup.parallelism:2}")
+    private int parallelism;
+
+    @Value("${mead.warmup.batch-size:10}")
+    private int batchSize;
+
+    @Value("${mead.warmup.ready-fraction:0.8}")
+    private double readyFraction;
+
+    private final RegionsRepository repo;
+    private final GeographyService geographyService;
+
+    private final AtomicInteger warmed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile State state = State.PENDING;
+    private volatile int total;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private ExecutorService workers;
+
+    public CacheWarmer(RegionsRepository repo, GeographyService geographyService) {
+        this.repo = repo;
+        this.geographyService = geographyService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            state = State.DISABLED;
+            return;
+        }
+
+        List<String> regionIds = repo.findAll().stream()
+                .map(Region::identifier)
+                .toList();
+        total = regionIds.size();
+        startedAt = Instant.now();
+        state = State.RUNNING;
+        log.info("Warming {} region details, {} batches in parallel", total, parallelism);
+
+        // Own workers, so batches waiting on enrichment never hold meadExecutor threads.
+        workers = Executors.newFixedThreadPool(Math.max(1, parallelism), new CustomizableThreadFactory("mead-warmup-"));
+        CompletableFuture<?>[] batches = partition(regionIds, batchSize).stream()
+                .map(batch -> CompletableFuture.runAsync(() -> warmBatch(batch), workers))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(batches).whenComplete((ignored, error) -> {
+            finishedAt = Instant.now();
+            state = State.COMPLETED;
+            workers.shutdown();
+            log.info("Warm-up finished: {} warmed, {} failed", warmed.get(), failed.get());
+        });
+    }
+
+    public Progress progress() {
+        int totalCount = total;
+        int warmedCount = warmed.get();
+        double warmFraction = totalCount == 0 ? 0 : (double) warmedCount / totalCount;
+        return new Progress(state, totalCount, warmedCount, failed.get(), warmFraction, readyFraction, isReady(), startedAt, finishedAt);
+    }
+
+    public boolean isReady() {
+        State current = state;
+        if (current == State.DISABLED || current == State.COMPLETED) return true;
+        if (current == State.PENDING) return false;
+        return total == 0 || (double) warmed.get() / total >= readyFraction;
+    }
+
+    @Override
+    public void destroy() {
+        if (workers != null) workers.shutdownNow();
+    }
+
+    private void warmBatch(List<String> regionIds) {
+        try {
+            List<RegionDetail> details = geographyService.warmRegions(regionIds);
+            int complete = (int) details.stream().filter(detail -> detail.missingFields().isEmpty()).count();
+            warmed.addAndGet(complete);
+            failed.addAndGet(regionIds.size() - complete);
+        } catch (RuntimeException e) {
+            failed.addAndGet(regionIds.size());
+            log.warn("Warm-up batch {} failed: {}", regionIds, e.getMessage());
+        }
+    }
+
+    private static List<List<String>> partition(List<String> values, int size) {
+        int step = Math.max(1, size);
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += step) {
+            batches.add(values.subList(i, Math.min(values.size(), i + step)));
+        }
+        return batches;
+    }
+}
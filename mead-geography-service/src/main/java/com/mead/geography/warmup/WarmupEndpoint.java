@@ -0,0 +1,24 @@
+package com.mead.geography.warmup;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes cache warm-up progress at {@code /actuator/warmup}.
+ */
+@Component
+@Endpoint(id = "warmup")
+public class WarmupEndpoint {
+
+    private final CacheWarmer cacheWarmer;
+
+    public WarmupEndpoint(CacheWarmer cacheWarmer) {
+        this.cacheWarmer = cacheWarmer;
+    }
+
+    @ReadOperation
+    public CacheWarmer.Progress progress() {
+        return cacheWarmer.progress();
+    }
+}
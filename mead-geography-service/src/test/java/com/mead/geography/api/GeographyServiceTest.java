@@ -1,23 +1,41 @@
 package com.mead.geography.api;
 
+import com.mead.geography.cache.StaleWhileRevalidateCache;
+import com.mead.geography.config.Deadline;
+import com.mead.geography.dto.GeographyDto.BatchGetRegionsResponse;
 import com.mead.geography.dto.GeographyDto.RegionDetail;
 import com.mead.geography.dto.GeographyDto.RegionSummary;
 import com.mead.geography.enrich.DbpediaClient;
 import com.mead.geography.enrich.DbpediaClient.DbpediaEnrichment;
 import com.mead.geography.enrich.WikidataClient;
 import com.mead.geography.enrich.WikipediaSummaryLoader;
+import com.mead.geography.exception.UpstreamException;
 import com.mead.geography.repository.RegionsRepository;
 import com.mead.geography.repository.RegionsRepository.Region;
 import com.mead.geography.service.GeographyService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 class GeographyServiceTest {
@@ -35,8 +53,16 @@ class GeographyServiceTest {
         wikidata = mock(WikidataClient.class);
         dbpedia = mock(DbpediaClient.class);
         wikipedia = mock(WikipediaSummaryLoader.class);
+        when(wikipedia.resolveTitles(anyMap())).thenReturn(completedFuture(Map.of()));
+        when(wikipedia.loadSummary(anyString(), anyString())).thenReturn(completedFuture(null));
         executor = runnable -> runnable.run();
-        service = new GeographyService(repo, wikidata, dbpedia, wikipedia, executor);
+        service = serviceWithStaleAfter(Duration.ofMinutes(30));
+    }
+
+    private GeographyService serviceWithStaleAfter(Duration staleAfter) {
+        StaleWhileRevalidateCache<RegionDetail> detailCache = new StaleWhileRevalidateCache<>(
+                new ConcurrentMapCache("regionDetails"), staleAfter, Duration.ofMinutes(10), executor);
+        return new GeographyService(repo, wikidata, dbpedia, wikipedia, executor, detailCache);
     }
 
     @Test
@@ -61,7 +87,7 @@ class GeographyServiceTest {
                         List.of(), List.of()
                 ));
 
-        when(wikipedia.loadSummary("germany", "Germany")).thenReturn("snippet");
+        when(wikipedia.loadSummary("germany", "Germany")).thenReturn(completedFuture("snippet"));
 
         RegionDetail detail = service.getRegion("germany");
 
@@ -90,7 +116,7 @@ class GeographyServiceTest {
                         List.of("French"), List.of("img2")
                 ));
 
-        when(wikipedia.loadSummary("france", "France")).thenReturn("snippet");
+        when(wikipedia.loadSummary("france", "France")).thenReturn(completedFuture("snippet"));
 
         RegionDetail detail = service.getRegion("france");
 
@@ -113,7 +139,7 @@ class GeographyServiceTest {
                         "db desc", "3500000", "4000",
                         List.of("German"), List.of("img")
                 ));
-        when(wikipedia.loadSummary("berlin", "Berlin")).thenReturn("snippet");
+        when(wikipedia.loadSummary("berlin", "Berlin")).thenReturn(completedFuture("snippet"));
 
         RegionDetail detail = service.getRegion("berlin");
 
@@ -145,7 +171,7 @@ class GeographyServiceTest {
                         List.of(), List.of()
                 ));
 
-        when(wikipedia.loadSummary("unknown", "Unknown")).thenReturn("snippet");
+        when(wikipedia.loadSummary("unknown", "Unknown")).thenReturn(completedFuture("snippet"));
 
         RegionDetail detail = service.getRegion("unknown");
 
@@ -153,6 +179,196 @@ class GeographyServiceTest {
         assertThat(detail.populationDensity()).isNull();
     }
 
+    @Test
+    void getRegions_sharesBatchEnrichment_andKeepsRequestOrder() {
+        Region germany = new Region(
+                "germany", "Germany", "Country",
+                List.of("http://dbpedia.org/resource/Germany", "https://www.wikidata.org/entity/Q183")
+        );
+        Region france = new Region(
+                "france", "France", "Country",
+                List.of("http://dbpedia.org/resource/France", "https://www.wikidata.org/entity/Q142")
+        );
+        when(repo.findById("germany")).thenReturn(Optional.of(germany));
+        when(repo.findById("france")).thenReturn(Optional.of(france));
+
+        when(wikidata.enrichFromEntityUris(List.of(
+                "https://www.wikidata.org/entity/Q142", "https://www.wikidata.org/entity/Q183")))
+                .thenReturn(Map.of(
+                        "https://www.wikidata.org/entity/Q142",
+                        new WikidataClient.WikidataEnrichment("france wd", "68000000", null, List.of(), List.of()),
+                        "https://www.wikidata.org/entity/Q183",
+                        new WikidataClient.WikidataEnrichment("germany wd", "83000000", null, List.of(), List.of())
+                ));
+        when(dbpedia.enrichFromResourceUris(List.of(
+                "http://dbpedia.org/resource/France", "http://dbpedia.org/resource/Germany")))
+                .thenReturn(Map.of(
+                        "http://dbpedia.org/resource/France",
+                        new DbpediaEnrichment(null, null, "120.5", List.of("French"), List.of()),
+                        "http://dbpedia.org/resource/Germany",
+                        new DbpediaEnrichment(null, null, "232.1", List.of("German"), List.of())
+                ));
+
+        List<RegionDetail> details = service.getRegions(List.of("france", "germany", "france")).regions();
+
+        assertThat(details).extracting(RegionDetail::identifier).containsExactly("france", "germany", "france");
+        assertThat(details.get(0).populationTotal()).isEqualTo("68000000");
+        assertThat(details.get(1).populationDensity()).isEqualTo("232.1");
+        assertThat(details.get(2)).isSameAs(details.get(0));
+        verify(wikidata, times(1)).enrichFromEntityUris(anyList());
+        verify(wikidata, never()).enrichFromEntityUri(anyString());
+        verify(dbpedia, never()).enrichFromResourceUri(anyString());
+    }
+
+    @Test
+    void getRegions_looksUpResourcesOneByOne_whenTheDbpediaBatchFails() {
+        Region germany = new Region(
+                "germany", "Germany", "Country",
+                List.of("http://dbpedia.org/resource/Germany", "https://www.wikidata.org/entity/Q183")
+        );
+        when(repo.findById("germany")).thenReturn(Optional.of(germany));
+        when(wikidata.enrichFromEntityUris(anyList())).thenReturn(Map.of());
+        when(wikidata.enrichFromEntityUri("https://www.wikidata.org/entity/Q183"))
+                .thenReturn(new WikidataClient.WikidataEnrichment(null, null, null, List.of(), List.of()));
+        when(dbpedia.enrichFromResourceUris(anyList())).thenThrow(new UpstreamException("DBpedia responded 503"));
+        when(dbpedia.enrichFromResourceUri("http://dbpedia.org/resource/Germany"))
+                .thenReturn(new DbpediaEnrichment("dbpedia desc", null, "232.1", List.of("German"), List.of()));
+
+        List<RegionDetail> details = service.getRegions(List.of("germany")).regions();
+
+        assertThat(details.get(0).description()).isEqualTo("dbpedia desc");
+        assertThat(details.get(0).populationDensity()).isEqualTo("232.1");
+        verify(dbpedia, times(1)).enrichFromResourceUri("http://dbpedia.org/resource/Germany");
+    }
+
+
+    @Test
+    void getRegions_listsUnknownIds_andReturnsTheKnownOnes() {
+        when(repo.findById("germany")).thenReturn(Optional.of(germany()));
+        when(repo.findById("atlantis")).thenReturn(Optional.empty());
+        when(wikidata.enrichFromEntityUris(anyList())).thenReturn(Map.of(
+                "https://www.wikidata.org/entity/Q183",
+                new WikidataClient.WikidataEnrichment("germany wd", null, null, List.of(), List.of())
+        ));
+        when(dbpedia.enrichFromResourceUris(anyList())).thenReturn(Map.of(
+                "http://dbpedia.org/resource/Germany",
+                new DbpediaEnrichment(null, null, "232.1", List.of(), List.of())
+        ));
+
+        BatchGetRegionsResponse response = service.getRegions(List.of("atlantis", "germany", "atlantis"));
+
+        assertThat(response.regions()).extracting(RegionDetail::identifier).containsExactly("germany");
+        assertThat(response.missingIds()).containsExactly("atlantis");
+    }
+
+    @Test
+    void upstreamFailure_servesDegradedDetail_thenRefreshesIt() {
+        when(repo.findById("germany")).thenReturn(Optional.of(germany()));
+        when(dbpedia.enrichFromResourceUri("http://dbpedia.org/resource/Germany"))
+                .thenReturn(new DbpediaEnrichment(null, null, null, List.of(), List.of()));
+        when(wikidata.enrichFromEntityUri("https://www.wikidata.org/entity/Q183"))
+                .thenThrow(new UpstreamException("Wikidata timed out"))
+                .thenReturn(new WikidataClient.WikidataEnrichment("wd desc", "100", "5.0", List.of(), List.of()));
+
+        RegionDetail degraded = service.getRegion("germany");
+        RegionDetail servedWhileRefreshing = service.getRegion("germany");
+        RegionDetail refreshed = service.getRegion("germany");
+
+        assertThat(degraded.description()).isNull();
+        assertThat(servedWhileRefreshing.description()).isNull();
+        assertThat(refreshed.description()).isEqualTo("wd desc");
+    }
+
+    @Test
+    void failedRefresh_keepsLastGoodDetail() {
+        GeographyService alwaysStale = serviceWithStaleAfter(Duration.ZERO);
+        when(repo.findById("germany")).thenReturn(Optional.of(germany()));
+        when(dbpedia.enrichFromResourceUri("http://dbpedia.org/resource/Germany"))
+                .thenReturn(new DbpediaEnrichment(null, null, null, List.of(), List.of()));
+        when(wikidata.enrichFromEntityUri("https://www.wikidata.org/entity/Q183"))
+                .thenReturn(new WikidataClient.WikidataEnrichment("wd desc", "100", "5.0", List.of(), List.of()))
+                .thenThrow(new UpstreamException("Wikidata timed out"));
+
+        alwaysStale.getRegion("germany");
+        RegionDetail afterFailedRefresh = alwaysStale.getRegion("germany");
+        RegionDetail duringRetryBackoff = alwaysStale.getRegion("germany");
+
+        assertThat(afterFailedRefresh.description()).isEqualTo("wd desc");
+        assertThat(duringRetryBackoff.description()).isEqualTo("wd desc");
+        verify(wikidata, times(2)).enrichFromEntityUri("https://www.wikidata.org/entity/Q183");
+    }
+
+    @Test
+    void concurrentMisses_shareOneBuild() throws Exception {
+        when(repo.findById("germany")).thenReturn(Optional.of(germany()));
+        when(dbpedia.enrichFromResourceUri("http://dbpedia.org/resource/Germany"))
+                .thenReturn(new DbpediaEnrichment(null, null, null, List.of(), List.of()));
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(wikidata.enrichFromEntityUri("https://www.wikidata.org/entity/Q183")).thenAnswer(invocation -> {
+            building.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new WikidataClient.WikidataEnrichment("wd desc", "100", "5.0", List.of(), List.of());
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        try {
+            Future<RegionDetail> first = callers.submit(() -> service.getRegion("germany"));
+            assertThat(building.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<RegionDetail> second = callers.submit(() -> service.getRegion("germany"));
+            Future<List<RegionDetail>> batch = callers.submit(() -> service.getRegions(List.of("germany")).regions());
+            Thread.sleep(100);
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS).description()).isEqualTo("wd desc");
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(first.get());
+            assertThat(batch.get(5, TimeUnit.SECONDS)).containsExactly(first.get());
+        } finally {
+            callers.shutdownNow();
+        }
+        verify(wikidata, times(1)).enrichFromEntityUri("https://www.wikidata.org/entity/Q183");
+        verify(wikipedia, times(1)).loadSummary("germany", "Germany");
+    }
+
+    @Test
+    void deadline_returnsFinishedFields_andCompletesDetailFromTheSameCalls() throws Exception {
+        when(repo.findById("germany")).thenReturn(Optional.of(germany()));
+        when(wikipedia.loadSummary("germany", "Germany")).thenReturn(completedFuture("Germany summary"));
+        when(dbpedia.enrichFromResourceUri("http://dbpedia.org/resource/Germany"))
+                .thenReturn(new DbpediaEnrichment(null, null, null, List.of(), List.of()));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean boundedByDeadline = new AtomicBoolean();
+        when(wikidata.enrichFromEntityUri("https://www.wikidata.org/entity/Q183")).thenAnswer(invocation -> {
+            boundedByDeadline.set(Deadline.current().isBounded());
+            release.await(5, TimeUnit.SECONDS);
+            return new WikidataClient.WikidataEnrichment("wd desc", "100", "5.0", List.of(), List.of());
+        });
+
+        try (ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor = virtualThreads;
+            GeographyService withDeadline = serviceWithStaleAfter(Duration.ofMinutes(30));
+            ReflectionTestUtils.setField(withDeadline, "deadlineMs", 1000L);
+
+            RegionDetail partial = withDeadline.getRegion("germany");
+            release.countDown();
+
+            assertThat(partial.description()).isNull();
+            assertThat(partial.wikipediaSnippet()).isEqualTo("Germany summary");
+            assertThat(partial.missingFields()).contains("description", "populationTotal").doesNotContain("wikipediaSnippet");
+
+            RegionDetail completed = partial;
+            for (int attempt = 0; attempt < 100 && !completed.missingFields().isEmpty(); attempt++) {
+                Thread.sleep(20);
+                completed = withDeadline.getRegion("germany");
+            }
+            assertThat(completed.description()).isEqualTo("wd desc");
+            assertThat(completed.missingFields()).isEmpty();
+        }
+        assertThat(boundedByDeadline).isFalse();
+        verify(wikidata, times(1)).enrichFromEntityUri("https://www.wikidata.org/entity/Q183");
+        verify(wikipedia, times(1)).loadSummary("germany", "Germany");
+    }
+
     @Test
     void list_returnsSummaries() {
         when(repo.findAll()).thenReturn(List.of(
@@ -178,4 +394,13 @@ class GeographyServiceTest {
         assertThatThrownBy(() -> service.getRegion("nope"))
                 .isInstanceOf(IllegalArgumentException.class);
     }
+
+    private static Region germany() {
+        return new Region(
+                "germany",
+                "Germany",
+                "Country",
+                List.of("http://dbpedia.org/resource/Germany", "https://www.wikidata.org/entity/Q183")
+        );
+    }
 }
@@ -13,6 +13,7 @@ import java.util.List;
 
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = RegionsController.class)
@@ -38,7 +39,8 @@ class RegionsControllerWebTest {
                 List.of("Romanian"),
                 List.of("https://commons.wikimedia.org/wiki/Special:FilePath/Romania.jpg"),
                 List.of("http://dbpedia.org/resource/Romania", "https://www.wikidata.org/entity/Q218"),
-                "snippet"
+                "snippet",
+                List.of()
         );
 
         when(geographyService.getRegion("romania")).thenReturn(detail);
@@ -74,4 +76,60 @@ class RegionsControllerWebTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].id").value("romania"));
     }
+
+    @Test
+    void batchGetRegions_returns200_inRequestOrder() throws Exception {
+        when(geographyService.getRegions(List.of("romania", "europe"))).thenReturn(new GeographyDto.BatchGetRegionsResponse(List.of(
+                detail("romania", "Romania", "Country"),
+                detail("europe", "Europe", "Continent")
+        ), List.of()));
+
+        mvc.perform(post("/api/v1/regions:batchGet")
+                        .contentType("application/json")
+                        .content("{\"ids\":[\"romania\",\"europe\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.regions[0].identifier").value("romania"))
+                .andExpect(jsonPath("$.regions[1].identifier").value("europe"));
+    }
+
+    @Test
+    void batchGetRegions_withUnknownIds_returnsTheRestAndListsTheUnknown() throws Exception {
+        when(geographyService.getRegions(List.of("romania", "atlantis"))).thenReturn(new GeographyDto.BatchGetRegionsResponse(
+                List.of(detail("romania", "Romania", "Country")),
+                List.of("atlantis")
+        ));
+
+        mvc.perform(post("/api/v1/regions:batchGet")
+                        .contentType("application/json")
+                        .content("{\"ids\":[\"romania\",\"atlantis\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.regions[0].identifier").value("romania"))
+                .andExpect(jsonPath("$.missingIds[0]").value("atlantis"));
+    }
+
+    @Test
+    void batchGetRegions_withoutIds_returns400() throws Exception {
+        mvc.perform(post("/api/v1/regions:batchGet")
+                        .contentType("application/json")
+                        .content("{\"ids\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static GeographyDto.RegionDetail detail(String id, String name, String type) {
+        return new GeographyDto.RegionDetail(
+                "https://schema.org/",
+                "https://mead.example/region/" + id,
+                type,
+                id,
+                name,
+                null,
+                null,
+                null,
+                List.of(),
+                List.of(),
+                List.of(),
+                "snippet",
+                List.of()
+        );
+    }
 }
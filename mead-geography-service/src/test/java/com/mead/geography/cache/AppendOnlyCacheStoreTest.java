@@ -0,0 +1,198 @@
+package com.mead.geography.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mead.geography.enrich.WikidataClient.WikidataEnrichment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cache.interceptor.SimpleKey;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AppendOnlyCacheStoreTest {
+
+    private static final Duration MAX_AGE = Duration.ofDays(7);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void entries_surviveReopen_andLastWriteWins() throws IOException {
+        Path file = tempDir.resolve("wikidataEnrichment.log");
+        WikidataEnrichment first = enrichment("first");
+        WikidataEnrichment second = enrichment("second");
+
+        try (AppendOnlyCacheStore store = AppendOnlyCacheStore.open(file, MAX_AGE)) {
+            store.write("http://www.wikidata.org/entity/Q218", first);
+            store.write("http://www.wikidata.org/entity/Q218", second);
+            store.write(new SimpleKey("romania", "Romania"), List.of("Romanian"));
+            store.write("http://www.wikidata.org/entity/Q219", first);
+            store.remove("http://www.wikidata.org/entity/Q219");
+        }
+
+        try (AppendOnlyCacheStore reopened = AppendOnlyCacheStore.open(file, MAX_AGE)) {
+            assertThat(reopened.size()).isEqualTo(2);
+            assertThat(reopened.read("http://www.wikidata.org/entity/Q218")).isEqualTo(second);
+            assertThat(reopened.read(new SimpleKey("romania", "Romania"))).isEqualTo(List.of("Romanian"));
+            assertThat(reopened.read("http://www.wikidata.org/entity/Q219")).isNull();
+        }
+    }
+
+    @Test
+    void expiredEntries_areIgnored() throws IOException {
+        Path file = tempDir.resolve("expiring.log");
+        Instant writtenAt = Instant.parse("2025-01-01T00:00:00Z");
+
+        try (AppendOnlyCacheStore store = AppendOnlyCacheStore.open(file, MAX_AGE, Clock.fixed(writtenAt, ZoneOffset.UTC))) {
+            store.write("key", "value");
+        }
+
+        Clock later = Clock.fixed(writtenAt.plus(MAX_AGE).plusSeconds(1), ZoneOffset.UTC);
+        try (AppendOnlyCacheStore reopened = AppendOnlyCacheStore.open(file, MAX_AGE, later)) {
+            assertThat(reopened.read("key")).isNull();
+        }
+    }
+
+    @Test
+    void truncatedTrailingRecord_isDropped() throws IOException {
+        Path file = tempDir.resolve("torn.log");
+        try (AppendOnlyCacheStore store = AppendOnlyCacheStore.open(file, MAX_AGE)) {
+            store.write("kept", "value");
+            store.write("torn", "value that is cut short by a crash");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        try (AppendOnlyCacheStore reopened = AppendOnlyCacheStore.open(file, MAX_AGE)) {
+            assertThat(reopened.read("kept")).isEqualTo("value");
+            assertThat(reopened.read("torn")).isNull();
+            reopened.write("next", "appended after recovery");
+            assertThat(reopened.read("next")).isEqualTo("appended after recovery");
+        }
+    }
+
+    @Test
+    void supersededRecords_areCompactedOnOpen() throws IOException {
+        Path file = tempDir.resolve("compact.log");
+        try (AppendOnlyCacheStore store = AppendOnlyCacheStore.open(file, MAX_AGE)) {
+            for (int i = 0; i < 20; i++) {
+                store.write("key", "value-" + i);
+            }
+        }
+        long sizeBefore = Files.size(file);
+
+        try (AppendOnlyCacheStore reopened = AppendOnlyCacheStore.open(file, MAX_AGE)) {
+            assertThat(Files.size(file)).isLessThan(sizeBefore);
+            assertThat(reopened.read("key")).isEqualTo("value-19");
+        }
+    }
+
+    @Test
+    void supersededRecords_areCompactedWhileRunning() throws IOException {
+        Path file = tempDir.resolve("running.log");
+        String padding = "x".repeat(1000);
+
+        try (AppendOnlyCacheStore store = AppendOnlyCacheStore.open(file, MAX_AGE, Clock.systemUTC(), 8192)) {
+            store.write("kept", "value");
+            for (int i = 0; i < 100; i++) {
+                store.write("key", padding + i);
+            }
+
+            assertThat(Files.size(file)).isLessThan(20_000);
+            assertThat(store.read("key")).isEqualTo(padding + 99);
+            assertThat(store.read("kept")).isEqualTo("value");
+            store.write("next", "appended after compaction");
+        }
+
+        try (AppendOnlyCacheStore reopened = AppendOnlyCacheStore.open(file, MAX_AGE)) {
+            assertThat(reopened.size()).isEqualTo(3);
+            assertThat(reopened.read("key")).isEqualTo(padding + 99);
+            assertThat(reopened.read("next")).isEqualTo("appended after compaction");
+        }
+    }
+
+    @Test
+    void secondOpenOfSameFile_isRejected() throws IOException {
+        Path file = tempDir.resolve("shared.log");
+        try (AppendOnlyCacheStore ignored = AppendOnlyCacheStore.open(file, MAX_AGE)) {
+            assertThatThrownBy(() -> AppendOnlyCacheStore.open(file, MAX_AGE))
+                    .isInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    void persistentCache_restoresFromDiskAfterRestart() throws IOException {
+        Path file = tempDir.resolve("wikipediaRegionSummary.log");
+        SimpleKey key = new SimpleKey("romania", "Romania");
+
+        try (AppendOnlyCacheStore store = AppendOnlyCacheStore.open(file, MAX_AGE)) {
+            new PersistentCaffeineCache("wikipediaRegionSummary", Caffeine.newBuilder().build(), true, store)
+                    .put(key, "Romania summary");
+        }
+
+        try (AppendOnlyCacheStore store = AppendOnlyCacheStore.open(file, MAX_AGE)) {
+            PersistentCaffeineCache cache = new PersistentCaffeineCache("wikipediaRegionSummary", Caffeine.newBuilder().build(), true, store);
+
+            assertThat(cache.getNativeCache().getIfPresent(key)).isNull();
+            assertThat(cache.get(key, String.class)).isEqualTo("Romania summary");
+            assertThat(cache.getNativeCache().getIfPresent(key)).isNull();
+        }
+    }
+
+    @Test
+    void persistentCache_keyExpiredInMemory_staysAMiss() throws IOException {
+        Path file = tempDir.resolve("wikipediaRegionSummary.log");
+        SimpleKey key = new SimpleKey("romania", "Romania");
+        Duration ttl = Duration.ofHours(12);
+        AtomicLong nanos = new AtomicLong();
+
+        try (AppendOnlyCacheStore store = AppendOnlyCacheStore.open(file, ttl, clockOf(nanos))) {
+            PersistentCaffeineCache cache = new PersistentCaffeineCache("wikipediaRegionSummary",
+                    Caffeine.newBuilder().expireAfterWrite(ttl).ticker(nanos::get).build(), true, store);
+            cache.put(key, "Romania summary");
+
+            nanos.addAndGet(ttl.plusMinutes(1).toNanos());
+
+            assertThat(cache.get(key)).isNull();
+            assertThat(cache.getNativeCache().getIfPresent(key)).isNull();
+        }
+    }
+
+    private static Clock clockOf(AtomicLong nanos) {
+        Instant start = Instant.parse("2025-01-01T00:00:00Z");
+        return new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return start.plusNanos(nanos.get());
+            }
+        };
+    }
+
+    private static WikidataEnrichment enrichment(String description) {
+        return new WikidataEnrichment(description, "1000", "10.0", List.of("Romanian"), List.of("https://img/1.jpg"));
+    }
+}
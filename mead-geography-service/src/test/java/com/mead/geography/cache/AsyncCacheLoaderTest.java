@@ -0,0 +1,65 @@
+package com.mead.geography.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncCacheLoaderTest {
+
+    private final ConcurrentMapCache cache = new ConcurrentMapCache("wikipediaRegionSummary");
+    private final AsyncCacheLoader loader = new AsyncCacheLoader(cache);
+
+    @Test
+    void concurrentMissesOfOneKey_shareOneLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = loader.get("romania", () -> {
+            loads.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> second = loader.get("romania", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("second load");
+        });
+        assertThat(first).isNotDone();
+        upstream.complete("Romania summary");
+
+        assertThat(first.join()).isEqualTo("Romania summary");
+        assertThat(second.join()).isEqualTo("Romania summary");
+        assertThat(loads).hasValue(1);
+        assertThat(cache.get("romania", String.class)).isEqualTo("Romania summary");
+    }
+
+    @Test
+    void failedLoad_isNotCached() {
+        CompletableFuture<String> failed = loader.get("romania", () ->
+                CompletableFuture.failedFuture(new IllegalStateException("Wikipedia timed out")));
+
+        assertThatThrownBy(failed::join).isInstanceOf(CompletionException.class)
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+        assertThat(cache.get("romania")).isNull();
+        assertThat(loader.get("romania", () -> CompletableFuture.completedFuture("Romania summary")).join())
+                .isEqualTo("Romania summary");
+    }
+
+    @Test
+    void nullValues_areCachedLikeOtherValues() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            loader.get("rare", () -> {
+                loads.incrementAndGet();
+                return CompletableFuture.completedFuture(null);
+            }).join();
+        }
+
+        assertThat(loads).hasValue(1);
+    }
+}
@@ -0,0 +1,78 @@
+package com.mead.geography.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightCaffeineCacheTest {
+
+    private final SingleFlightCaffeineCache cache =
+            new SingleFlightCaffeineCache("wikipediaRegionSummary", Caffeine.newBuilder().build(), true);
+
+    @Test
+    void concurrentLoadsOfOneKey_runTheLoaderOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> first = callers.submit(() -> cache.get("romania", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return "Romania summary";
+            }));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            List<Future<String>> waiters = List.of(
+                    callers.submit(() -> cache.get("romania", () -> "second load " + loads.incrementAndGet())),
+                    callers.submit(() -> cache.get("romania", () -> "third load " + loads.incrementAndGet()))
+            );
+            Thread.sleep(100);
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("Romania summary");
+            for (Future<String> waiter : waiters) {
+                assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo("Romania summary");
+            }
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void failedLoad_isNotCached() {
+        assertThatThrownBy(() -> cache.get("romania", () -> {
+            throw new IllegalStateException("Wikipedia timed out");
+        })).isInstanceOf(Cache.ValueRetrievalException.class)
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.get("romania")).isNull();
+        assertThat(cache.get("romania", () -> "Romania summary")).isEqualTo("Romania summary");
+    }
+
+    @Test
+    void nullValues_areCachedLikeOtherValues() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("rare", () -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        cache.get("rare", () -> {
+            loads.incrementAndGet();
+            return null;
+        });
+
+        assertThat(loads).hasValue(1);
+    }
+}
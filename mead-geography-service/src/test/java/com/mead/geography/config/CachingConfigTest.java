@@ -0,0 +1,72 @@
+package com.mead.geography.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingConfigTest {
+
+    private final CacheManager cacheManager = new CachingConfig().cacheManager(new CacheSpecProperties(
+            "maximumSize=10,expireAfterWrite=1m",
+            Map.of("regionDetails", "maximumSize=2,expireAfterWrite=6h"),
+            null,
+            null
+    ));
+
+    @Test
+    void configuredCache_isBoundedWithItsOwnTtl_andRecordsStats() {
+        Cache<Object, Object> nativeCache = nativeCache("regionDetails");
+
+        assertThat(nativeCache.policy().eviction().orElseThrow().getMaximum()).isEqualTo(2);
+        assertThat(nativeCache.policy().expireAfterWrite().orElseThrow().getExpiresAfter())
+                .isEqualTo(Duration.ofHours(6));
+
+        cacheManager.getCache("regionDetails").get("missing");
+        cacheManager.getCache("regionDetails").put("key", "value");
+        cacheManager.getCache("regionDetails").get("key");
+
+        assertThat(nativeCache.stats().missCount()).isEqualTo(1);
+        assertThat(nativeCache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void unconfiguredCache_usesDefaultSpec() {
+        Cache<Object, Object> nativeCache = nativeCache("adHoc");
+
+        assertThat(nativeCache.policy().eviction().orElseThrow().getMaximum()).isEqualTo(10);
+        assertThat(nativeCache.policy().expireAfterWrite().orElseThrow().getExpiresAfter())
+                .isEqualTo(Duration.ofMinutes(1));
+    }
+
+    @Test
+    void persistentCache_expiresOnDiskWithItsOwnTtl(@TempDir Path directory) throws Exception {
+        CacheManager persistentManager = new CachingConfig().cacheManager(new CacheSpecProperties(
+                null,
+                Map.of("wikipediaRegionSummary", "maximumSize=10,expireAfterWrite=1s"),
+                new CacheSpecProperties.Persistent(true, directory.toString(), Duration.ofDays(7), List.of("wikipediaRegionSummary")),
+                null
+        ));
+        try {
+            persistentManager.getCache("wikipediaRegionSummary").put("key", "value");
+            Thread.sleep(1200);
+
+            assertThat(persistentManager.getCache("wikipediaRegionSummary").get("key")).isNull();
+        } finally {
+            ((DisposableBean) persistentManager).destroy();
+        }
+    }
+
+    private Cache<Object, Object> nativeCache(String cacheName) {
+        return ((CaffeineCache) cacheManager.getCache(cacheName)).getNativeCache();
+    }
+}
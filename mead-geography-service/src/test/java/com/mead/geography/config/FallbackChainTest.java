@@ -0,0 +1,112 @@
+package com.mead.geography.config;
+
+import com.mead.geography.exception.UpstreamException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FallbackChainTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void lowerPrioritySource_isNotStarted_whenAHigherOneHasAValue() {
+        AtomicInteger wikipediaCalls = new AtomicInteger();
+
+        CompletableFuture<List<String>> languages = FallbackChain.<List<String>>firstUsable(list -> !list.isEmpty())
+                .then(CompletableFuture.completedFuture(List.of()))
+                .then(CompletableFuture.completedFuture(List.of("German")))
+                .thenLazily(() -> {
+                    wikipediaCalls.incrementAndGet();
+                    return CompletableFuture.completedFuture(List.of("Bavarian"));
+                })
+                .resolve(-1, executor);
+
+        assertThat(languages.join()).containsExactly("German");
+        assertThat(wikipediaCalls).hasValue(0);
+    }
+
+    @Test
+    void lowerPrioritySource_startsOnceTheOnesAheadComeUpEmpty() {
+        CompletableFuture<List<String>> wikidata = new CompletableFuture<>();
+        AtomicInteger wikipediaCalls = new AtomicInteger();
+
+        CompletableFuture<List<String>> languages = FallbackChain.<List<String>>firstUsable(list -> !list.isEmpty())
+                .then(wikidata)
+                .thenLazily(() -> {
+                    wikipediaCalls.incrementAndGet();
+                    return CompletableFuture.completedFuture(List.of("Bavarian"));
+                })
+                .resolve(-1, executor);
+
+        assertThat(wikipediaCalls).hasValue(0);
+        wikidata.completeExceptionally(new UpstreamException("Wikidata responded 503"));
+
+        assertThat(languages.join()).containsExactly("Bavarian");
+        assertThat(wikipediaCalls).hasValue(1);
+    }
+
+    @Test
+    void speculativeStart_runsTheNextSourceEarly_butKeepsPriority() throws Exception {
+        CompletableFuture<String> dbpedia = new CompletableFuture<>();
+        CompletableFuture<String> wikidataStarted = new CompletableFuture<>();
+
+        CompletableFuture<String> description = FallbackChain.<String>firstUsable(value -> value != null)
+                .then(dbpedia)
+                .thenLazily(() -> {
+                    wikidataStarted.complete("started");
+                    return CompletableFuture.completedFuture("wd desc");
+                })
+                .resolve(20, executor);
+
+        assertThat(wikidataStarted.get(5, TimeUnit.SECONDS)).isEqualTo("started");
+        assertThat(description).isNotDone();
+        dbpedia.complete("db desc");
+
+        assertThat(description.join()).isEqualTo("db desc");
+    }
+
+    @Test
+    void noUsableValue_givesTheFallback_orTheFailureWhenASourceFailed() {
+        CompletableFuture<String> empty = FallbackChain.<String>firstUsable(value -> value != null)
+                .then(CompletableFuture.completedFuture(null))
+                .orElse("Place")
+                .resolve(-1, executor);
+        CompletableFuture<String> failed = FallbackChain.<String>firstUsable(value -> value != null)
+                .then(CompletableFuture.failedFuture(new UpstreamException("DBpedia timed out")))
+                .then(CompletableFuture.completedFuture(null))
+                .orElse("Place")
+                .resolve(-1, executor);
+
+        assertThat(empty.join()).isEqualTo("Place");
+        assertThatThrownBy(failed::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(UpstreamException.class);
+    }
+
+    @Test
+    void lazySources_startUnderTheResolvingDeadline() {
+        Deadline deadline = Deadline.afterMillis(200);
+        CompletableFuture<Deadline> started = deadline.call(() -> FallbackChain.<Deadline>firstUsable(value -> value != null)
+                .thenLazily(() -> CompletableFuture.supplyAsync(() -> null, executor))
+                .thenLazily(() -> CompletableFuture.completedFuture(Deadline.current()))
+                .resolve(-1, executor));
+
+        assertThat(started.join()).isSameAs(deadline);
+    }
+}
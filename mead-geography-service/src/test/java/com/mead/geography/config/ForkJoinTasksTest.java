@@ -0,0 +1,75 @@
+package com.mead.geography.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.mead.geography.config.ForkJoinTasks.awaitAll;
+import static com.mead.geography.config.ForkJoinTasks.fork;
+import static com.mead.geography.config.ForkJoinTasks.joinAll;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ForkJoinTasksTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void nestedForks_completeOnSaturatedExecutor() throws Exception {
+        CompletableFuture<String> outer = fork(() -> {
+            CompletableFuture<String> first = fork(() -> "wikidata", executor);
+            CompletableFuture<String> second = fork(() -> "dbpedia", executor);
+            joinAll(first, second);
+            return first.join() + "+" + second.join();
+        }, executor);
+
+        assertThat(outer.get(5, TimeUnit.SECONDS)).isEqualTo("wikidata+dbpedia");
+    }
+
+    @Test
+    void joinAll_failsWhenAnyTaskFails() {
+        CompletableFuture<String> ok = fork(() -> "ok", executor);
+        CompletableFuture<String> failing = fork(() -> {
+            throw new IllegalStateException("upstream down");
+        }, executor);
+
+        assertThatThrownBy(() -> joinAll(ok, failing))
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(ok.join()).isEqualTo("ok");
+    }
+
+    @Test
+    void forkedTasks_runUnderTheCallersDeadline() {
+        Deadline deadline = Deadline.afterMillis(200);
+
+        CompletableFuture<Deadline> inherited = deadline.call(() -> fork(Deadline::current, executor));
+        CompletableFuture<Deadline> background = fork(Deadline::current, executor);
+
+        assertThat(inherited.join()).isSameAs(deadline);
+        assertThat(background.join()).isSameAs(Deadline.NONE);
+    }
+
+    @Test
+    void awaitAll_stopsWaitingAtTheDeadline() {
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        CompletableFuture<String> fast = fork(() -> "fast", executor);
+
+        long started = System.nanoTime();
+        awaitAll(Deadline.afterMillis(100), fast, slow);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(2000);
+        assertThat(fast).isCompletedWithValue("fast");
+        assertThat(slow).isNotDone();
+    }
+}
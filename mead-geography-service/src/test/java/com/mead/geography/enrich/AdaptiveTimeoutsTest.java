@@ -0,0 +1,95 @@
+package com.mead.geography.enrich;
+
+import com.mead.geography.exception.UpstreamException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.jena.sparql.engine.http.QueryExceptionHTTP;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveTimeoutsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AdaptiveTimeouts timeouts;
+
+    @BeforeEach
+    void setUp() {
+        timeouts = new AdaptiveTimeouts(meterRegistry);
+        ReflectionTestUtils.setField(timeouts, "enabled", true);
+        ReflectionTestUtils.setField(timeouts, "percentile", 0.99);
+        ReflectionTestUtils.setField(timeouts, "multiplier", 2.0);
+        ReflectionTestUtils.setField(timeouts, "floorMs", 50L);
+        ReflectionTestUtils.setField(timeouts, "ceilingMs", 20_000L);
+        ReflectionTestUtils.setField(timeouts, "minSamples", 50);
+        ReflectionTestUtils.setField(timeouts, "windowSize", 100);
+    }
+
+    @Test
+    void configuredTimeout_isUsedUntilEnoughCallsAreSeen() {
+        assertThat(timeouts.timeoutMs("Wikidata", "img", 8000)).isEqualTo(8000);
+        recordAnswers("Wikidata", "img", 49, 150);
+
+        assertThat(timeouts.timeoutMs("Wikidata", "img", 8000)).isEqualTo(8000);
+    }
+
+    @Test
+    void timeout_isTwiceTheObservedP99_perQueryType() {
+        timeouts.timeoutMs("Wikidata", "img", 8000);
+        timeouts.timeoutMs("Wikidata", "rows", 8000);
+        recordAnswers("Wikidata", "img", 50, 150);
+
+        assertThat(timeouts.timeoutMs("Wikidata", "img", 8000)).isBetween(300L, 320L);
+        assertThat(timeouts.timeoutMs("Wikidata", "rows", 8000)).isEqualTo(8000);
+        assertThat(meterRegistry.get(AdaptiveTimeouts.TIMEOUT).tag("source", "Wikidata").tag("query", "img")
+                .gauge().value()).isBetween(300.0, 320.0);
+    }
+
+    @Test
+    void timeout_staysWithinFloorAndCeiling() {
+        timeouts.timeoutMs("Wikidata", "img", 8000);
+        recordAnswers("Wikidata", "img", 50, 0);
+        assertThat(timeouts.timeoutMs("Wikidata", "img", 8000)).isEqualTo(50);
+
+        timeouts.timeoutMs("DBpedia", "rows", 8000);
+        recordAnswers("DBpedia", "rows", 50, 0);
+        timeouts.record("DBpedia", "rows", startedMillisAgo(15_000), null);
+        assertThat(timeouts.timeoutMs("DBpedia", "rows", 8000)).isEqualTo(20_000);
+    }
+
+    @Test
+    void timedOutCalls_countTowardsTheHistogram_otherFailuresDoNot() {
+        timeouts.timeoutMs("Wikidata", "img", 8000);
+        recordAnswers("Wikidata", "img", 49, 100);
+        timeouts.record("Wikidata", "img", startedMillisAgo(5000), new QueryExceptionHTTP(503, "Service Unavailable"));
+        timeouts.record("Wikidata", "img", startedMillisAgo(5000), new UpstreamException("Wikidata circuit is open"));
+        assertThat(timeouts.timeoutMs("Wikidata", "img", 8000)).isEqualTo(8000);
+
+        timeouts.record("Wikidata", "img", startedMillisAgo(5000),
+                new QueryExceptionHTTP(new HttpTimeoutException("request timed out")));
+        assertThat(timeouts.timeoutMs("Wikidata", "img", 8000)).isBetween(10_000L, 10_100L);
+    }
+
+    @Test
+    void disabled_keepsTheConfiguredTimeout() {
+        ReflectionTestUtils.setField(timeouts, "enabled", false);
+        timeouts.timeoutMs("Wikidata", "img", 8000);
+        recordAnswers("Wikidata", "img", 50, 150);
+
+        assertThat(timeouts.timeoutMs("Wikidata", "img", 8000)).isEqualTo(8000);
+    }
+
+    private void recordAnswers(String source, String queryType, int calls, long latencyMs) {
+        for (int i = 0; i < calls; i++) {
+            timeouts.record(source, queryType, startedMillisAgo(latencyMs), null);
+        }
+    }
+
+    private static long startedMillisAgo(long millis) {
+        return System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,93 @@
+package com.mead.geography.enrich;
+
+import com.mead.geography.enrich.CircuitBreaker.State;
+import com.mead.geography.exception.UpstreamException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CircuitBreakerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Clock clock = mock(Clock.class);
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        when(clock.millis()).thenReturn(0L);
+        breaker = new CircuitBreaker("DBpedia", 3, Duration.ofSeconds(30), meterRegistry, clock);
+    }
+
+    @Test
+    void opensAfterConsecutiveFailures_andRejectsWithoutCalling() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+        breaker.onFailure();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> rejected = breaker.callAsync(() -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("answer");
+        });
+
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        assertThat(calls).hasValue(0);
+        assertThatThrownBy(rejected::join).hasRootCauseInstanceOf(UpstreamException.class)
+                .hasRootCauseMessage("DBpedia circuit is open");
+        assertThat(meterRegistry.get(CircuitBreaker.REJECTED).tag("source", "DBpedia").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get(CircuitBreaker.STATE).tag("source", "DBpedia").gauge().value())
+                .isEqualTo(State.OPEN.ordinal());
+    }
+
+    @Test
+    void letsOneProbeThrough_onceOpenDurationHasPassed() {
+        openCircuit();
+        when(clock.millis()).thenReturn(30_000L);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.onSuccess();
+        assertThat(breaker.state()).isEqualTo(State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void failedProbe_opensTheCircuitAgain() {
+        openCircuit();
+        when(clock.millis()).thenReturn(30_000L);
+
+        CompletableFuture<String> probe = breaker.callAsync(
+                () -> CompletableFuture.failedFuture(new UpstreamException("DBpedia responded 503")));
+
+        assertThat(probe).isCompletedExceptionally();
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+        when(clock.millis()).thenReturn(59_999L);
+        assertThat(breaker.tryAcquire()).isFalse();
+        when(clock.millis()).thenReturn(60_000L);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+        assertThat(breaker.state()).isEqualTo(State.OPEN);
+    }
+}
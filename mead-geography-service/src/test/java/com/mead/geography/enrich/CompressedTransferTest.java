@@ -0,0 +1,102 @@
+package com.mead.geography.enrich;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompressedTransferTest {
+
+    private static final String PAGE = "<p>Transylvania is a historical region in central Romania.</p>\n".repeat(200);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CompressedTransfer transfer = new CompressedTransfer(meterRegistry);
+    private final HttpClient client = HttpClient.newHttpClient();
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String encoding = exchange.getRequestURI().getPath().substring(1);
+            byte[] body = encode(PAGE.getBytes(StandardCharsets.UTF_8), encoding);
+            if (!encoding.equals("identity")) {
+                exchange.getResponseHeaders().set("Content-Encoding", encoding.equals("raw-deflate") ? "deflate" : encoding);
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void decodesGzipAndBothDeflateVariants_andCountsWireBytes() throws Exception {
+        for (String encoding : new String[]{"gzip", "deflate", "raw-deflate", "identity"}) {
+            assertThat(fetch(encoding)).as(encoding).isEqualTo(PAGE);
+        }
+
+        double gzipBytes = meterRegistry.get(CompressedTransfer.RECEIVED_BYTES)
+                .tag("source", "Wikipedia").tag("encoding", "gzip").counter().count();
+        double identityBytes = meterRegistry.get(CompressedTransfer.RECEIVED_BYTES)
+                .tag("source", "Wikipedia").tag("encoding", "identity").counter().count();
+        assertThat(identityBytes).isEqualTo(PAGE.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(gzipBytes).isPositive().isLessThan(identityBytes / 5);
+    }
+
+    @Test
+    void unadvertisedEncoding_isRejected() {
+        assertThatThrownBy(() -> fetch("compress")).isInstanceOf(IOException.class)
+                .hasMessageContaining("compress");
+    }
+
+    private String fetch(String encoding) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + server.getAddress().getPort() + "/" + encoding))
+                .header(CompressedTransfer.HEADER_ACCEPT_ENCODING, transfer.acceptEncoding())
+                .build();
+        HttpResponse<InputStream> response = client.send(request,
+                transfer.metered("Wikipedia", HttpResponse.BodyHandlers.ofInputStream()));
+        try (InputStream body = transfer.decode(response)) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] encode(byte[] data, String encoding) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        OutputStream out = switch (encoding) {
+            case "gzip" -> new GZIPOutputStream(encoded);
+            case "deflate" -> new DeflaterOutputStream(encoded);
+            case "raw-deflate" -> new DeflaterOutputStream(encoded, new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+            default -> encoded;
+        };
+        try (out) {
+            out.write(data);
+        }
+        return encoded.toByteArray();
+    }
+}
@@ -0,0 +1,161 @@
+package com.mead.geography.enrich;
+
+import com.mead.geography.enrich.ConcurrencyLimiter.Limits;
+import com.mead.geography.enrich.ConcurrencyLimiter.Priority;
+import com.mead.geography.exception.UpstreamException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+    private final Clock clock = mock(Clock.class);
+
+    @BeforeEach
+    void setUp() {
+        when(clock.millis()).thenReturn(0L);
+    }
+
+    @Test
+    void interactiveWaiters_goAheadOfBackgroundOnes() {
+        ConcurrencyLimiter limiter = limiter(1);
+        CompletableFuture<Void> first = limiter.acquire(Priority.BACKGROUND, -1);
+        CompletableFuture<Void> warmup = limiter.acquire(Priority.BACKGROUND, -1);
+        CompletableFuture<Void> user = limiter.acquire(Priority.INTERACTIVE, 60_000);
+
+        assertThat(first).isCompleted();
+        assertThat(queued("interactive")).isEqualTo(1.0);
+        assertThat(queued("background")).isEqualTo(1.0);
+
+        limiter.releaseUnused();
+
+        assertThat(user).isCompleted();
+        assertThat(warmup).isNotDone();
+        assertThat(limiter.queued(Priority.INTERACTIVE)).isZero();
+
+        limiter.releaseUnused();
+        assertThat(warmup).isCompleted();
+    }
+
+    @Test
+    void successWhileSaturated_raisesTheLimit() {
+        ConcurrencyLimiter limiter = limiter(2);
+        limiter.acquire(Priority.BACKGROUND, -1);
+        limiter.acquire(Priority.BACKGROUND, -1);
+
+        limiter.release(response(200, Map.of()));
+
+        assertThat(limiter.limit()).isEqualTo(2.5);
+        assertThat(meterRegistry.get(ConcurrencyLimiter.LIMIT).tag("host", "query.wikidata.org").gauge().value())
+                .isEqualTo(2.5);
+
+        // With a free slot left over, an answer says nothing about the host's capacity.
+        limiter.release(response(200, Map.of()));
+        assertThat(limiter.limit()).isEqualTo(2.5);
+    }
+
+    @Test
+    void overload_cutsTheLimit_andHoldsRequestsUntilRetryAfterHasPassed() {
+        ConcurrencyLimiter limiter = limiter(4);
+        limiter.acquire(Priority.BACKGROUND, -1);
+
+        limiter.release(response(429, Map.of("Retry-After", List.of("2"))));
+
+        assertThat(limiter.limit()).isEqualTo(2.0);
+        assertThat(meterRegistry.get(ConcurrencyLimiter.BACKOFFS).tag("host", "query.wikidata.org").counter().count())
+                .isEqualTo(1.0);
+
+        CompletableFuture<Void> held = limiter.acquire(Priority.BACKGROUND, -1);
+        assertThat(held).isNotDone();
+
+        ArgumentCaptor<Runnable> wakeUp = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(wakeUp.capture(), eq(2000L), eq(TimeUnit.MILLISECONDS));
+        when(clock.millis()).thenReturn(2000L);
+        wakeUp.getValue().run();
+
+        assertThat(held).isCompleted();
+    }
+
+    @Test
+    void timeout_countsAsOverload_butNeverCutsBelowTheMinimum() {
+        ConcurrencyLimiter limiter = limiter(3);
+        limiter.acquire(Priority.BACKGROUND, -1);
+
+        limiter.release(new HttpTimeoutException("request timed out"));
+        assertThat(limiter.limit()).isEqualTo(1.5);
+
+        limiter.acquire(Priority.BACKGROUND, -1);
+        limiter.release(new HttpTimeoutException("request timed out"));
+        assertThat(limiter.limit()).isEqualTo(1.0);
+        assertThat(limiter.acquire(Priority.BACKGROUND, -1)).isCompleted();
+    }
+
+    @Test
+    void waiter_givesUpAfterItsMaxWait() {
+        ConcurrencyLimiter limiter = limiter(1);
+        limiter.acquire(Priority.BACKGROUND, -1);
+        CompletableFuture<Void> waiting = limiter.acquire(Priority.INTERACTIVE, 1000);
+
+        ArgumentCaptor<Runnable> expiry = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(expiry.capture(), eq(1000L), eq(TimeUnit.MILLISECONDS));
+        expiry.getValue().run();
+
+        assertThatThrownBy(waiting::join).hasCauseInstanceOf(HttpTimeoutException.class);
+        assertThat(limiter.queued(Priority.INTERACTIVE)).isZero();
+    }
+
+    @Test
+    void hostHeldBackLongerThanTheMaxWait_failsFast_butBackgroundRequestsWait() {
+        ConcurrencyLimiter limiter = limiter(4);
+        limiter.acquire(Priority.BACKGROUND, -1);
+        limiter.release(response(503, Map.of("Retry-After", List.of("120"))));
+
+        CompletableFuture<Void> interactive = limiter.acquire(Priority.INTERACTIVE, 5000);
+        CompletableFuture<Void> background = limiter.acquire(Priority.BACKGROUND, -1);
+
+        assertThatThrownBy(interactive::join).hasCauseInstanceOf(UpstreamException.class);
+        assertThat(limiter.queued(Priority.INTERACTIVE)).isZero();
+        assertThat(background).isNotDone();
+    }
+
+    private ConcurrencyLimiter limiter(int initial) {
+        return new ConcurrencyLimiter("query.wikidata.org", new Limits(initial, 1, 16, 0.5, Duration.ofMinutes(5)),
+                scheduler, meterRegistry, clock);
+    }
+
+    private double queued(String priority) {
+        return meterRegistry.get(ConcurrencyLimiter.QUEUED)
+                .tag("host", "query.wikidata.org")
+                .tag("priority", priority)
+                .gauge().value();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<Void> response(int status, Map<String, List<String>> headers) {
+        HttpResponse<Void> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(status);
+        when(response.headers()).thenReturn(HttpHeaders.of(headers, (name, value) -> true));
+        return response;
+    }
+}
@@ -0,0 +1,136 @@
+package com.mead.geography.enrich;
+
+import com.mead.geography.enrich.DbpediaClient.DbpediaEnrichment;
+import com.mead.geography.exception.UpstreamException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static com.mead.geography.config.CachingConfig.DBPEDIA_ENRICHMENT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DbpediaBatchEnrichmentTest {
+
+    private static final String FRANCE = "http://dbpedia.org/resource/France";
+    private static final String GERMANY = "http://dbpedia.org/resource/Germany";
+    private static final String ITALY = "http://dbpedia.org/resource/Italy";
+
+    private SparqlHttpClient sparql;
+    private CacheManager cacheManager;
+    private DbpediaClient client;
+
+    @BeforeEach
+    void setUp() {
+        sparql = mock(SparqlHttpClient.class);
+        cacheManager = new ConcurrentMapCacheManager();
+        client = new DbpediaClient(sparql, Runnable::run, cacheManager);
+        ReflectionTestUtils.setField(client, "endpoint", "https://dbpedia.org/sparql");
+        ReflectionTestUtils.setField(client, "batchSize", 25);
+    }
+
+    @Test
+    void splitsRowsPerResource_appliesFallbacks_andFillsCache() {
+        when(sparql.selectRows(any())).thenReturn(List.of(
+                Map.of("item", FRANCE, "comment", "france comment"),
+                Map.of("item", FRANCE, "abstract", "france abstract"),
+                Map.of("item", FRANCE, "dbpPopulation", "67000000"),
+                Map.of("item", FRANCE, "officialLanguagesLiteral", "French; Occitan"),
+                Map.of("item", GERMANY, "dbpPopulationTotal", "83000000"),
+                Map.of("item", GERMANY, "populationTotal", "84000000"),
+                Map.of("item", GERMANY, "dbpPopulationDensity", "232.1"),
+                Map.of("item", GERMANY, "img", "http://commons.wikimedia.org/x.jpg")
+        ));
+
+        Map<String, DbpediaEnrichment> result = client.enrichFromResourceUris(List.of(FRANCE, GERMANY));
+
+        assertThat(result.get(FRANCE).description()).isEqualTo("france abstract");
+        assertThat(result.get(FRANCE).populationTotal()).isEqualTo("67000000");
+        assertThat(result.get(FRANCE).culturalFactors()).containsExactly("French", "Occitan");
+        assertThat(result.get(GERMANY).populationTotal()).isEqualTo("84000000");
+        assertThat(result.get(GERMANY).populationDensity()).isEqualTo("232.1");
+        assertThat(result.get(GERMANY).images()).containsExactly("http://commons.wikimedia.org/x.jpg");
+        assertThat(cacheManager.getCache(DBPEDIA_ENRICHMENT).get(FRANCE, DbpediaEnrichment.class))
+                .isEqualTo(result.get(FRANCE));
+        assertThat(cacheManager.getCache(DBPEDIA_ENRICHMENT).get(GERMANY, DbpediaEnrichment.class))
+                .isEqualTo(result.get(GERMANY));
+        verify(sparql, times(1)).selectRows(any());
+    }
+
+    @Test
+    void skipsCachedResources_andDoesNotCacheResourcesWithoutRows() {
+        DbpediaEnrichment cached = new DbpediaEnrichment("cached", null, null, List.of(), List.of());
+        cacheManager.getCache(DBPEDIA_ENRICHMENT).put(FRANCE, cached);
+        when(sparql.selectRows(any())).thenReturn(List.of());
+
+        Map<String, DbpediaEnrichment> result = client.enrichFromResourceUris(List.of(FRANCE, GERMANY));
+
+        assertThat(result).containsOnlyKeys(FRANCE);
+        assertThat(result.get(FRANCE)).isSameAs(cached);
+        assertThat(cacheManager.getCache(DBPEDIA_ENRICHMENT).get(GERMANY)).isNull();
+        ArgumentCaptor<SparqlHttpClient.SelectRequest> request = ArgumentCaptor.forClass(SparqlHttpClient.SelectRequest.class);
+        verify(sparql).selectRows(request.capture());
+        assertThat(request.getValue().sparql()).contains("<" + GERMANY + ">").doesNotContain("<" + FRANCE + ">");
+    }
+
+    @Test
+    void splitsResourcesIntoBatchesOfBatchSize() {
+        ReflectionTestUtils.setField(client, "batchSize", 2);
+        when(sparql.selectRows(any())).thenReturn(List.of());
+
+        client.enrichFromResourceUris(List.of(FRANCE, GERMANY, ITALY, FRANCE));
+
+        ArgumentCaptor<SparqlHttpClient.SelectRequest> requests = ArgumentCaptor.forClass(SparqlHttpClient.SelectRequest.class);
+        verify(sparql, times(2)).selectRows(requests.capture());
+        assertThat(requests.getAllValues().get(0).sparql())
+                .contains("<" + FRANCE + "> <" + GERMANY + ">")
+                .doesNotContain(ITALY);
+        assertThat(requests.getAllValues().get(1).sparql())
+                .contains("VALUES ?item { <" + ITALY + "> }");
+    }
+
+    @Test
+    void failedBatch_fails_butKeepsEarlierBatchesCached() {
+        ReflectionTestUtils.setField(client, "batchSize", 1);
+        when(sparql.selectRows(any()))
+                .thenReturn(List.of(Map.of("item", FRANCE, "abstract", "france abstract")))
+                .thenThrow(new UpstreamException("DBpedia responded 503"));
+
+        assertThatThrownBy(() -> client.enrichFromResourceUris(List.of(FRANCE, GERMANY)))
+                .isInstanceOf(UpstreamException.class);
+
+        assertThat(cacheManager.getCache(DBPEDIA_ENRICHMENT).get(FRANCE, DbpediaEnrichment.class).description())
+                .isEqualTo("france abstract");
+        assertThat(cacheManager.getCache(DBPEDIA_ENRICHMENT).get(GERMANY)).isNull();
+    }
+
+    @Test
+    void batchFillingItsRowLimit_isQueriedAgainOneResourceAtATime() {
+        List<Map<String, String>> franceRows = IntStream.range(0, 10_000)
+                .mapToObj(i -> Map.of("item", FRANCE, "img", "http://commons.wikimedia.org/" + i + ".jpg"))
+                .toList();
+        when(sparql.selectRows(any())).thenAnswer(invocation -> {
+            String query = invocation.<SparqlHttpClient.SelectRequest>getArgument(0).sparql();
+            if (query.contains("<" + FRANCE + "> <" + GERMANY + ">")) return franceRows;
+            if (query.contains("<" + FRANCE + ">")) return franceRows.subList(0, 100);
+            return List.of(Map.of("item", GERMANY, "abstract", "germany abstract"));
+        });
+
+        Map<String, DbpediaEnrichment> result = client.enrichFromResourceUris(List.of(FRANCE, GERMANY));
+
+        assertThat(result.get(FRANCE).images()).isNotEmpty();
+        assertThat(result.get(GERMANY).description()).isEqualTo("germany abstract");
+        assertThat(cacheManager.getCache(DBPEDIA_ENRICHMENT).get(GERMANY, DbpediaEnrichment.class))
+                .isEqualTo(result.get(GERMANY));
+        verify(sparql, times(3)).selectRows(any());
+    }
+}
@@ -0,0 +1,89 @@
+package com.mead.geography.enrich;
+
+import com.mead.geography.exception.UpstreamException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.jena.query.QueryParseException;
+import org.apache.jena.sparql.engine.http.QueryExceptionHTTP;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestRetrierTest {
+
+    private static final String ENDPOINT = "https://query.wikidata.org/sparql";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger attempts = new AtomicInteger();
+    private RequestRetrier retrier;
+
+    @BeforeEach
+    void setUp() {
+        retrier = new RequestRetrier(meterRegistry);
+        ReflectionTestUtils.setField(retrier, "maxAttempts", 3);
+        ReflectionTestUtils.setField(retrier, "baseDelayMs", 1L);
+        ReflectionTestUtils.setField(retrier, "maxDelayMs", 5L);
+        ReflectionTestUtils.setField(retrier, "budgetRatio", 1.0);
+        ReflectionTestUtils.setField(retrier, "budgetMaxTokens", 10);
+    }
+
+    @Test
+    void transientFailures_areRetriedUntilAnAttemptSucceeds() {
+        String answer = retrier.call("Wikidata", ENDPOINT, e -> true, () -> {
+            if (attempts.incrementAndGet() < 3) throw new QueryExceptionHTTP(503, "Service Unavailable");
+            return "Q12174";
+        });
+
+        assertThat(answer).isEqualTo("Q12174");
+        assertThat(attempts).hasValue(3);
+        assertThat(meterRegistry.get(RequestRetrier.RETRIES).tag("source", "Wikidata").counter().count())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    void lastFailure_isRethrownOnceAttemptsRunOut() {
+        assertThatThrownBy(() -> retrier.call("Wikidata", ENDPOINT, e -> true, () -> {
+            throw new UpstreamException("attempt " + attempts.incrementAndGet() + " failed");
+        })).hasMessage("attempt 3 failed");
+    }
+
+    @Test
+    void failureThatIsNotRetryable_isThrownAtOnce() {
+        assertThatThrownBy(() -> retrier.call("Wikidata", ENDPOINT, e -> false, () -> {
+            attempts.incrementAndGet();
+            throw new QueryExceptionHTTP(400, "Bad Request");
+        })).isInstanceOf(QueryExceptionHTTP.class);
+
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void spentBudget_stopsRetries() {
+        ReflectionTestUtils.setField(retrier, "budgetRatio", 0.1);
+        ReflectionTestUtils.setField(retrier, "budgetMaxTokens", 1);
+
+        assertThatThrownBy(() -> retrier.call("Wikidata", ENDPOINT, e -> true, () -> {
+            attempts.incrementAndGet();
+            throw new QueryExceptionHTTP(503, "Service Unavailable");
+        })).isInstanceOf(QueryExceptionHTTP.class);
+
+        assertThat(attempts).hasValue(2);
+        assertThat(meterRegistry.get(RequestRetrier.THROTTLED).tag("source", "Wikidata").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void sparqlFailures_areTransientOnlyWhenTheEndpointMayAnswerNextTime() {
+        assertThat(SparqlHttpClient.isTransient(new QueryExceptionHTTP(503, "Service Unavailable"))).isTrue();
+        assertThat(SparqlHttpClient.isTransient(new QueryExceptionHTTP(429, "Too Many Requests"))).isTrue();
+        assertThat(SparqlHttpClient.isTransient(new QueryExceptionHTTP(new HttpTimeoutException("timed out")))).isTrue();
+        assertThat(SparqlHttpClient.isTransient(new QueryExceptionHTTP(400, "Bad Request"))).isFalse();
+        assertThat(SparqlHttpClient.isTransient(new QueryParseException("Encountered \"}\"", 3, 1))).isFalse();
+        assertThat(SparqlHttpClient.isTransient(new UpstreamException("Wikidata circuit is open"))).isFalse();
+    }
+}
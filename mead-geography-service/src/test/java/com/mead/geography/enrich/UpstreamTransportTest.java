@@ -0,0 +1,118 @@
+package com.mead.geography.enrich;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamTransportTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch answer = new CountDownLatch(1);
+    private HttpServer server;
+    private String baseUrl;
+    private UpstreamTransport transport;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                answer.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+
+        transport = new UpstreamTransport(meterRegistry);
+        ReflectionTestUtils.setField(transport, "connectTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(transport, "version", HttpClient.Version.HTTP_2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        transport.close();
+    }
+
+    @Test
+    void sharesOneClientPerHost() {
+        HttpClient api = transport.clientFor(baseUrl + "/w/api.php?action=query");
+        HttpClient summary = transport.clientFor(baseUrl + "/api/rest_v1/page/summary/");
+
+        assertThat(summary).isSameAs(api);
+        assertThat(transport.clientFor("http://localhost:1/sparql")).isNotSameAs(api);
+    }
+
+    @Test
+    void close_shutsDownTheSharedClients() throws InterruptedException {
+        HttpClient client = transport.clientFor(baseUrl);
+
+        transport.close();
+
+        assertThat(client.awaitTermination(Duration.ofSeconds(5))).isTrue();
+        assertThat(client.isTerminated()).isTrue();
+    }
+
+    @Test
+    void reportsPendingRequests_andAnsweredRequestsByProtocol() throws Exception {
+        HttpClient client = transport.clientFor(baseUrl);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/sparql")).GET().build();
+
+        CompletableFuture<HttpResponse<String>> response = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        assertThat(meterRegistry.get(UpstreamTransport.IN_FLIGHT).tag("host", "localhost").gauge().value())
+                .isEqualTo(1.0);
+        answer.countDown();
+
+        assertThat(response.get(5, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+        assertThat(meterRegistry.get(UpstreamTransport.IN_FLIGHT).tag("host", "localhost").gauge().value())
+                .isZero();
+        // The test server only speaks HTTP/1.1, so the HTTP/2 upgrade is declined.
+        assertThat(meterRegistry.get(UpstreamTransport.REQUESTS)
+                .tag("host", "localhost")
+                .tag("version", "HTTP_1_1")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void requestCancelledWhileWaitingForASlot_givesTheSlotBack() throws Exception {
+        ReflectionTestUtils.setField(transport, "initialLimit", 1);
+        ReflectionTestUtils.setField(transport, "maxLimit", 1);
+        HttpClient client = transport.clientFor(baseUrl);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/sparql")).GET().build();
+
+        CompletableFuture<HttpResponse<String>> first = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        CompletableFuture<HttpResponse<String>> abandoned = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        abandoned.cancel(true);
+        answer.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+
+        CompletableFuture<HttpResponse<String>> next = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        assertThat(next.get(5, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+        assertThat(abandoned).isCancelled();
+    }
+}
@@ -0,0 +1,113 @@
+package com.mead.geography.enrich;
+
+import com.mead.geography.enrich.WikidataClient.WikidataEnrichment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.concurrent.CompletableFuture;
+
+import static com.mead.geography.config.CachingConfig.WIKIDATA_ENRICHMENT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class WikidataBatchEnrichmentTest {
+
+    private static final String GERMANY = "https://www.wikidata.org/entity/Q183";
+    private static final String FRANCE = "https://www.wikidata.org/entity/Q142";
+
+    private SparqlHttpClient sparql;
+    private CacheManager cacheManager;
+    private WikidataClient client;
+
+    @BeforeEach
+    void setUp() {
+        sparql = mock(SparqlHttpClient.class);
+        cacheManager = new ConcurrentMapCacheManager();
+        client = new WikidataClient(sparql, Runnable::run, cacheManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(client, "userAgent", "MeAd-test");
+        ReflectionTestUtils.setField(client, "batchSize", 50);
+    }
+
+    @Test
+    void splitsRowsPerEntity_computesDensity_andFillsCache() {
+        when(sparql.selectRows(any())).thenReturn(List.of(
+                Map.of("item", "http://www.wikidata.org/entity/Q183", "population", "1000"),
+                Map.of("item", "http://www.wikidata.org/entity/Q183", "area", "10"),
+                Map.of("item", "http://www.wikidata.org/entity/Q183", "langLabel", "German"),
+                Map.of("item", "http://www.wikidata.org/entity/Q142", "desc", "country in Europe"),
+                Map.of("item", "http://www.wikidata.org/entity/Q142", "demonym", "French")
+        ));
+
+        Map<String, WikidataEnrichment> result = client.enrichFromEntityUris(List.of(GERMANY, FRANCE));
+
+        assertThat(result.get(GERMANY).populationTotal()).isEqualTo("1000");
+        assertThat(result.get(GERMANY).populationDensity()).isEqualTo("100.00");
+        assertThat(result.get(GERMANY).culturalFactors()).containsExactly("German");
+        assertThat(result.get(FRANCE).description()).isEqualTo("country in Europe");
+        assertThat(result.get(FRANCE).culturalFactors()).containsExactly("French");
+        assertThat(cacheManager.getCache(WIKIDATA_ENRICHMENT).get(GERMANY, WikidataEnrichment.class))
+                .isEqualTo(result.get(GERMANY));
+        verify(sparql, times(1)).selectRows(any());
+    }
+
+    @Test
+    void skipsCachedEntities_andDoesNotCacheEntitiesWithoutRows() {
+        WikidataEnrichment cached = new WikidataEnrichment("cached", null, null, List.of(), List.of());
+        cacheManager.getCache(WIKIDATA_ENRICHMENT).put(GERMANY, cached);
+        when(sparql.selectRows(any())).thenReturn(List.of());
+
+        Map<String, WikidataEnrichment> result = client.enrichFromEntityUris(List.of(GERMANY, FRANCE));
+
+        assertThat(result).containsOnlyKeys(GERMANY);
+        assertThat(result.get(GERMANY)).isSameAs(cached);
+        assertThat(cacheManager.getCache(WIKIDATA_ENRICHMENT).get(FRANCE)).isNull();
+    }
+
+    @Test
+    void concurrentSingleLookups_shareOneMicroBatchQuery() {
+        ReflectionTestUtils.setField(client, "consolidatedQuery", true);
+        ReflectionTestUtils.setField(client, "microBatchEnabled", true);
+        ReflectionTestUtils.setField(client, "microBatchWindowMs", 10_000L);
+        ReflectionTestUtils.setField(client, "microBatchMaxKeys", 2);
+        when(sparql.selectRows(any())).thenReturn(List.of(
+                Map.of("item", "http://www.wikidata.org/entity/Q183", "desc", "country in Central Europe"),
+                Map.of("item", "http://www.wikidata.org/entity/Q142", "desc", "country in Europe")
+        ));
+
+        CompletableFuture<WikidataEnrichment> germany = CompletableFuture.supplyAsync(() -> client.enrichFromEntityUri(GERMANY));
+        CompletableFuture<WikidataEnrichment> france = CompletableFuture.supplyAsync(() -> client.enrichFromEntityUri(FRANCE));
+
+        assertThat(germany.join().description()).isEqualTo("country in Central Europe");
+        assertThat(france.join().description()).isEqualTo("country in Europe");
+        verify(sparql, times(1)).selectRows(any());
+    }
+
+    @Test
+    void batchFillingItsRowLimit_isQueriedAgainOneEntityAtATime() {
+        List<Map<String, String>> germanyRows = IntStream.range(0, 1000)
+                .mapToObj(i -> Map.of("item", "http://www.wikidata.org/entity/Q183", "langLabel", "language " + i))
+                .toList();
+        when(sparql.selectRows(any())).thenAnswer(invocation -> {
+            String query = invocation.<SparqlHttpClient.SelectRequest>getArgument(0).sparql();
+            if (query.contains("wd:Q183 wd:Q142")) return germanyRows;
+            if (query.contains("wd:Q183")) return germanyRows.subList(0, 500);
+            return List.of(Map.of("item", "http://www.wikidata.org/entity/Q142", "desc", "country in Europe"));
+        });
+
+        Map<String, WikidataEnrichment> result = client.enrichFromEntityUris(List.of(GERMANY, FRANCE));
+
+        assertThat(result.get(GERMANY).culturalFactors()).isNotEmpty();
+        assertThat(result.get(FRANCE).description()).isEqualTo("country in Europe");
+        assertThat(cacheManager.getCache(WIKIDATA_ENRICHMENT).get(FRANCE, WikidataEnrichment.class))
+                .isEqualTo(result.get(FRANCE));
+        verify(sparql, times(3)).selectRows(any());
+    }
+}
@@ -0,0 +1,181 @@
+package com.mead.geography.enrich;
+
+import com.mead.geography.enrich.WikipediaSummaryLoader.ValidatedSummary;
+import com.mead.geography.exception.UpstreamException;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.mead.geography.config.CachingConfig.WIKIPEDIA_REGION_SUMMARY;
+import static com.mead.geography.config.CachingConfig.WIKIPEDIA_SUMMARY_VALIDATORS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WikipediaSummaryLoaderTest {
+
+    private static final String TITLE_LOOKUP = """
+            {"query":{
+              "normalized":[{"from":"Transylvania_Region","to":"Transylvania Region"}],
+              "pages":{
+                "-1":{"title":"Transylvania Region","missing":""},
+                "1":{"title":"Transylvania"}
+              }
+            }}
+            """;
+
+    private static final String TRANSYLVANIA_SUMMARY = """
+            {"titles":{"canonical":"Transylvania","display":"<span>Transylvania</span>"},
+             "thumbnail":{"source":"https://upload.wikimedia.org/t.jpg","width":320},
+             "type":"standard",
+             "extract":"Transylvania is a historical   region in central Romania.",
+             "extract_html":"<p>Transylvania is a historical region in central Romania.</p>"}
+            """;
+
+    private static final String TRANSYLVANIA_ETAG = "W/\"1183452934/d4a1e6c0\"";
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<Integer> summaryStatuses = new CopyOnWriteArrayList<>();
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+    private volatile CountDownLatch summaryAnswers = new CountDownLatch(0);
+    private volatile int status = 200;
+    private HttpServer server;
+    private WikipediaSummaryLoader loader;
+    private UpstreamTransport upstreamTransport;
+    private CircuitBreakers circuitBreakers;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            requests.add(path);
+            if (path.startsWith("/summary/")) {
+                try {
+                    summaryAnswers.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            String response = path.equals("/w/api.php") ? TITLE_LOOKUP
+                    : path.equals("/summary/Transylvania") ? TRANSYLVANIA_SUMMARY
+                    : "{\"type\":\"disambiguation\",\"extract\":\"Transylvania may refer to:\"}";
+            if (path.equals("/summary/Transylvania")) {
+                exchange.getResponseHeaders().set("ETag", TRANSYLVANIA_ETAG);
+                boolean unchanged = TRANSYLVANIA_ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"));
+                summaryStatuses.add(unchanged ? 304 : 200);
+                if (unchanged) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+            }
+            byte[] body = response.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        String baseUrl = "http://localhost:" + server.getAddress().getPort();
+        CompressedTransfer compressedTransfer = new CompressedTransfer(new SimpleMeterRegistry());
+        upstreamTransport = new UpstreamTransport(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(upstreamTransport, "connectTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(upstreamTransport, "version", HttpClient.Version.HTTP_2);
+        circuitBreakers = new CircuitBreakers(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(circuitBreakers, "failureThreshold", 1);
+        ReflectionTestUtils.setField(circuitBreakers, "openMs", 30000L);
+        AdaptiveTimeouts adaptiveTimeouts = new AdaptiveTimeouts(new SimpleMeterRegistry());
+        TitleResolver titleResolver = new TitleResolver(cacheManager, compressedTransfer, upstreamTransport, circuitBreakers,
+                adaptiveTimeouts);
+        ReflectionTestUtils.setField(titleResolver, "queryUrl", baseUrl + "/w/api.php");
+        ReflectionTestUtils.setField(titleResolver, "timeoutMs", 2000L);
+        ReflectionTestUtils.setField(titleResolver, "userAgent", "MeAd-test");
+        ReflectionTestUtils.setField(titleResolver, "batchSize", 50);
+        titleResolver.init();
+
+        loader = new WikipediaSummaryLoader(cacheManager, titleResolver, compressedTransfer,
+                upstreamTransport, circuitBreakers, adaptiveTimeouts);
+        ReflectionTestUtils.setField(loader, "summaryUrl", baseUrl + "/summary/");
+        ReflectionTestUtils.setField(loader, "timeoutMs", 2000L);
+        ReflectionTestUtils.setField(loader, "userAgent", "MeAd-test");
+        ReflectionTestUtils.setField(loader, "revalidate", true);
+        loader.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        upstreamTransport.close();
+    }
+
+    @Test
+    void streamsExtractOutOfSummary_andSkipsMissingCandidates() {
+        String summary = loader.loadSummary("transylvania", "Transylvania Region").join();
+
+        assertThat(summary).isEqualTo("Transylvania is a historical region in central Romania.");
+        assertThat(requests).containsExactly("/w/api.php", "/summary/Transylvania");
+    }
+
+    @Test
+    void disambiguationSummary_isNotUsed() {
+        String summary = loader.loadSummary("Georgia", "Georgia").join();
+
+        assertThat(summary).isNull();
+    }
+
+    @Test
+    void returnsBeforeWikipediaAnswers_andSharesOneLoadBetweenCallers() throws Exception {
+        summaryAnswers = new CountDownLatch(1);
+
+        CompletableFuture<String> first = loader.loadSummary("transylvania", "Transylvania Region");
+        CompletableFuture<String> second = loader.loadSummary("transylvania", "Transylvania Region");
+        assertThat(first).isNotDone();
+        summaryAnswers.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("Transylvania is a historical region in central Romania.");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("Transylvania is a historical region in central Romania.");
+        assertThat(requests).containsExactly("/w/api.php", "/summary/Transylvania");
+    }
+
+    @Test
+    void expiredSummary_isRevalidatedWithItsEtag_insteadOfDownloadedAgain() {
+        loader.loadSummary("transylvania", "Transylvania Region").join();
+        cacheManager.getCache(WIKIPEDIA_REGION_SUMMARY).clear();
+
+        String summary = loader.loadSummary("transylvania", "Transylvania Region").join();
+
+        assertThat(summary).isEqualTo("Transylvania is a historical region in central Romania.");
+        assertThat(summaryStatuses).containsExactly(200, 304);
+        assertThat(cacheManager.getCache(WIKIPEDIA_SUMMARY_VALIDATORS).get("Transylvania", ValidatedSummary.class))
+                .isEqualTo(new ValidatedSummary(TRANSYLVANIA_ETAG, null, summary));
+    }
+
+    @Test
+    void openCircuit_failsFastWithoutCallingWikipedia_andCachesNothing() {
+        status = 503;
+        assertThatThrownBy(() -> loader.loadSummary("transylvania", "Transylvania Region").join())
+                .hasRootCauseInstanceOf(UpstreamException.class);
+        int sent = requests.size();
+        status = 200;
+
+        assertThatThrownBy(() -> loader.loadSummary("transylvania", "Transylvania Region").join())
+                .hasRootCauseMessage("Wikipedia circuit is open");
+        assertThat(requests).hasSize(sent);
+    }
+}
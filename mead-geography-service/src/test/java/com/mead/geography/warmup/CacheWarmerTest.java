@@ -0,0 +1,144 @@
+package com.mead.geography.warmup;
+
+import com.mead.geography.dto.GeographyDto.RegionDetail;
+import com.mead.geography.exception.UpstreamException;
+import com.mead.geography.repository.RegionsRepository;
+import com.mead.geography.repository.RegionsRepository.Region;
+import com.mead.geography.service.GeographyService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class CacheWarmerTest {
+
+    private RegionsRepository repo;
+    private GeographyService geographyService;
+    private CacheWarmer warmer;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(RegionsRepository.class);
+        geographyService = mock(GeographyService.class);
+        warmer = new CacheWarmer(repo, geographyService);
+        ReflectionTestUtils.setField(warmer, "enabled", true);
+        ReflectionTestUtils.setField(warmer, "parallelism", 2);
+        ReflectionTestUtils.setField(warmer, "batchSize", 2);
+        ReflectionTestUtils.setField(warmer, "readyFraction", 0.5);
+        when(geographyService.warmRegions(anyList())).thenAnswer(invocation -> details(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        warmer.destroy();
+    }
+
+    @Test
+    void warmsEveryRegionInBatches_andBecomesReady() throws InterruptedException {
+        when(repo.findAll()).thenReturn(regions("romania", "france", "spain", "italy", "europe"));
+
+        assertThat(warmer.isReady()).isFalse();
+        warmer.warmUp();
+        awaitTrue(() -> warmer.progress().state() == CacheWarmer.State.COMPLETED);
+
+        verify(geographyService).warmRegions(List.of("romania", "france"));
+        verify(geographyService).warmRegions(List.of("spain", "italy"));
+        verify(geographyService).warmRegions(List.of("europe"));
+        CacheWarmer.Progress progress = warmer.progress();
+        assertThat(progress.total()).isEqualTo(5);
+        assertThat(progress.warmed()).isEqualTo(5);
+        assertThat(progress.failed()).isZero();
+        assertThat(progress.ready()).isTrue();
+        assertThat(progress.finishedAt()).isNotNull();
+    }
+
+    @Test
+    void failedBatch_isCounted_andWarmupStillCompletes() throws InterruptedException {
+        when(repo.findAll()).thenReturn(regions("romania", "france", "spain"));
+        when(geographyService.warmRegions(List.of("romania", "france"))).thenThrow(new UpstreamException("Wikidata is down"));
+
+        warmer.warmUp();
+        awaitTrue(() -> warmer.progress().state() == CacheWarmer.State.COMPLETED);
+
+        CacheWarmer.Progress progress = warmer.progress();
+        assertThat(progress.warmed()).isEqualTo(1);
+        assertThat(progress.failed()).isEqualTo(2);
+        assertThat(progress.ready()).isTrue();
+    }
+
+    @Test
+    void incompleteDetails_areNotCountedAsWarm() throws InterruptedException {
+        when(repo.findAll()).thenReturn(regions("romania", "france", "spain"));
+        when(geographyService.warmRegions(List.of("romania", "france"))).thenReturn(List.of(
+                detail("romania"), detail("france", "description")));
+
+        warmer.warmUp();
+        awaitTrue(() -> warmer.progress().state() == CacheWarmer.State.COMPLETED);
+
+        CacheWarmer.Progress progress = warmer.progress();
+        assertThat(progress.warmed()).isEqualTo(2);
+        assertThat(progress.failed()).isEqualTo(1);
+    }
+
+    @Test
+    void becomesReady_onceReadyFractionIsWarm() throws InterruptedException {
+        ReflectionTestUtils.setField(warmer, "parallelism", 1);
+        ReflectionTestUtils.setField(warmer, "batchSize", 1);
+        when(repo.findAll()).thenReturn(regions("romania", "france", "spain", "europe"));
+        CountDownLatch release = new CountDownLatch(1);
+        when(geographyService.warmRegions(List.of("spain"))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        warmer.warmUp();
+        awaitTrue(() -> warmer.progress().warmed() == 2);
+
+        assertThat(warmer.progress().state()).isEqualTo(CacheWarmer.State.RUNNING);
+        assertThat(warmer.isReady()).isTrue();
+        release.countDown();
+    }
+
+    @Test
+    void disabledWarmup_isReadyRightAway() {
+        ReflectionTestUtils.setField(warmer, "enabled", false);
+
+        warmer.warmUp();
+
+        assertThat(warmer.progress().state()).isEqualTo(CacheWarmer.State.DISABLED);
+        assertThat(warmer.isReady()).isTrue();
+        verifyNoInteractions(repo, geographyService);
+    }
+
+    private static List<Region> regions(String... ids) {
+        return Arrays.stream(ids)
+                .map(id -> new Region(id, id, "Country", List.of()))
+                .toList();
+    }
+
+    private static List<RegionDetail> details(List<String> ids) {
+        return ids.stream().map(id -> detail(id)).toList();
+    }
+
+    private static RegionDetail detail(String id, String... missingFields) {
+        return new RegionDetail(null, null, null, id, id, null, null, null, List.of(), List.of(), List.of(), null, List.of(missingFields));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("timed out waiting for warm-up").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
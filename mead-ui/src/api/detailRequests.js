@@ -0,0 +1,44 @@
+// Matches the services' stale-after window (mead.cache.stale-while-revalidate.stale-after).
+const DETAIL_REQUEST_TTL_MS = 30 * 60 * 1000;
+
+/**
+ * Remembers a detail request for reuse. Failed requests and details still missing fields are
+ * forgotten so the next view asks again; the rest expire after DETAIL_REQUEST_TTL_MS.
+ */
+function rememberDetailRequest(requests, id, request) {
+    const entry = { request, expiresAt: Date.now() + DETAIL_REQUEST_TTL_MS };
+    requests.set(id, entry);
+    const forget = () => {
+        if (requests.get(id) === entry) requests.delete(id);
+    };
+    request.then((detail) => {
+        if (detail?.missingFields?.length) forget();
+    }, forget);
+}
+
+function rememberedDetailRequest(requests, id) {
+    const entry = requests.get(id);
+    if (!entry) return null;
+    if (entry.expiresAt <= Date.now()) {
+        requests.delete(id);
+        return null;
+    }
+    return entry.request;
+}
+
+/**
+ * Returns the remembered request for a detail, or starts one with fetchDetail and remembers it.
+ * Pages call it when a detail is opened and when its list entry is hovered, so opening a
+ * hovered entry reuses the request already in flight.
+ * @param {Map<string, object>} requests - The page's remembered requests.
+ * @param {string} id - The identifier of the detail.
+ * @param {(id: string) => Promise<object>} fetchDetail - Fetches one detail.
+ */
+export function requestDetail(requests, id, fetchDetail) {
+    let request = rememberedDetailRequest(requests, id);
+    if (!request) {
+        request = fetchDetail(id);
+        rememberDetailRequest(requests, id, request);
+    }
+    return request;
+}
@@ -1,6 +1,7 @@
 import React, { useEffect, useMemo, useRef, useState } from "react";
 import { Link } from "react-router-dom";
 import { getAllConditions, getConditionDetails } from "../api/conditionsApi.js";
+import { requestDetail } from "../api/detailRequests.js";
 
 const DEFAULT_PAGE_SIZE = 8;
 const SWIPE_DISTANCE_THRESHOLD = 40;
@@ -44,6 +45,7 @@ export default function ConditionsExplorerPage() {
     const listPanelRef = useRef(null);
     const paginationRef = useRef(null);
     const detailCardRef = useRef(null);
+    const detailRequestsRef = useRef(new Map());
 
     useEffect(() => {
         let isMounted = true;
@@ -139,7 +141,7 @@ export default function ConditionsExplorerPage() {
             try {
                 setDetailError("");
                 setIsDetailLoading(true);
-                const data = await getConditionDetails(activeConditionId);
+                const data = await requestDetail(detailRequestsRef.current, activeConditionId, getConditionDetails);
                 if (isMounted) setConditionDetail(data);
             } catch (err) {
                 if (isMounted) setDetailError(err.message || String(err));
@@ -212,6 +214,10 @@ export default function ConditionsExplorerPage() {
         });
     };
 
+    const prefetchDetail = (conditionId) => {
+        requestDetail(detailRequestsRef.current, conditionId, getConditionDetails);
+    };
+
     const handleSearchChange = (event) => {
         setSearchQuery(event.target.value);
         setPageNumber(1);
@@ -287,6 +293,8 @@ export default function ConditionsExplorerPage() {
                                                             type="button"
                                                             className="button"
                                                             onClick={() => setActiveConditionId(condition.id)}
+                                                            onMouseEnter={() => prefetchDetail(condition.id)}
+                                                            onFocus={() => prefetchDetail(condition.id)}
                                                             aria-pressed={condition.id === activeConditionId}
                                                         >
                                                             View details
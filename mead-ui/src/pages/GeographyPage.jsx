@@ -1,6 +1,7 @@
 import React, { useEffect, useMemo, useRef, useState } from "react";
 import { Link } from "react-router-dom";
 import { getAllRegions, getRegionDetails } from "../api/geographyApi.js";
+import { requestDetail } from "../api/detailRequests.js";
 
 const DEFAULT_PAGE_SIZE = 8;
 
@@ -70,6 +71,7 @@ export default function GeographyPage() {
     const listPanelRef = useRef(null);
     const paginationRef = useRef(null);
     const detailCardRef = useRef(null);
+    const detailRequestsRef = useRef(new Map());
 
     useEffect(() => {
         let isMounted = true;
@@ -169,7 +171,7 @@ export default function GeographyPage() {
             try {
                 setDetailError("");
                 setIsDetailLoading(true);
-                const data = await getRegionDetails(activeRegionId);
+                const data = await requestDetail(detailRequestsRef.current, activeRegionId, getRegionDetails);
                 if (isMounted) setRegionDetail(data);
             } catch (err) {
                 if (isMounted) setDetailError(err.message || String(err));
@@ -204,6 +206,10 @@ export default function GeographyPage() {
         });
     };
 
+    const prefetchDetail = (regionId) => {
+        requestDetail(detailRequestsRef.current, regionId, getRegionDetails);
+    };
+
     const handleSearchChange = (event) => {
         setSearchQuery(event.target.value);
         setPageNumber(1);
@@ -300,6 +306,8 @@ export default function GeographyPage() {
                                                             type="button"
                                                             className="button"
                                                             onClick={() => setActiveRegionId(region.id)}
+                                                            onMouseEnter={() => prefetchDetail(region.id)}
+                                                            onFocus={() => prefetchDetail(region.id)}
                                                             aria-pressed={region.id === activeRegionId}
                                                         >
                                                             View details